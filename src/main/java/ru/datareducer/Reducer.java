@@ -47,6 +47,27 @@ public final class Reducer extends Application {
     public final static String RAPPORT_USER_PARAM = "rapport-user";
     public final static String RAPPORT_PASSWORD_PARAM = "rapport-password";
 
+    public final static String METADATA_DIR_PARAM = "metadata-dir";
+
+    // Объём всех кэшей результатов запросов и кэша одной информационной базы, МБ
+    public final static String CACHE_SIZE_PARAM = "cache-size";
+    public final static String CACHE_INFOBASE_SIZE_PARAM = "cache-infobase-size";
+    // Порог заполнения кучи после сборки мусора, при превышении которого кэши сокращаются, %
+    public final static String CACHE_HEAP_THRESHOLD_PARAM = "cache-heap-threshold";
+    // Объём хранилища кэша вне кучи и на диске, МБ. 0 - хранилище не используется.
+    public final static String CACHE_OFFHEAP_SIZE_PARAM = "cache-offheap-size";
+    public final static String CACHE_DISK_SIZE_PARAM = "cache-disk-size";
+    // Каталог хранилища кэша на диске
+    public final static String CACHE_DIR_PARAM = "cache-dir";
+    // Остаток времени кэширования, при котором результат обновляется в фоне, %. 0 - не обновлять заранее.
+    public final static String CACHE_REFRESH_AHEAD_PARAM = "cache-refresh-ahead";
+    // Период после истечения времени кэширования, в течение которого возвращается устаревший результат
+    // с обновлением в фоне, секунд. 0 - устаревший результат не возвращается.
+    public final static String CACHE_STALE_GRACE_PARAM = "cache-stale-grace";
+    // Количество одновременных запросов прогрева кэша наборов данных скриптов, доступных через веб.
+    // 0 - прогрев не выполняется.
+    public final static String WARMUP_CONCURRENCY_PARAM = "warmup-concurrency";
+
     private final Set<ModelReplacedListener> modelReplacedListeners;
 
     private ExecutorService executor;
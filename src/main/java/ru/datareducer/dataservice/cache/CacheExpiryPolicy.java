@@ -24,13 +24,38 @@ import ru.datareducer.dataservice.entity.DataServiceRequest;
 import ru.datareducer.dataservice.entity.DataServiceResponse;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.function.Supplier;
 
+/**
+ * Время хранения результата запроса в кэше.
+ * <p>
+ * Время отсчитывается от момента получения данных от REST-сервиса 1С, поэтому результат,
+ * восстановленный из хранилища кэша, не живёт дольше, чем время кэширования ресурса.
+ * К времени кэширования добавляется период допустимого устаревания {@link RefreshParams}.
+ *
+ * @author Kirill Mikhaylov
+ */
 public class CacheExpiryPolicy implements ExpiryPolicy<DataServiceRequest, DataServiceResponse> {
+    private final RefreshParams refreshParams;
+
+    public CacheExpiryPolicy() {
+        this(RefreshParams.NONE);
+    }
+
+    /**
+     * @param refreshParams Параметры фонового обновления результатов
+     */
+    public CacheExpiryPolicy(RefreshParams refreshParams) {
+        if (refreshParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'refreshParams': null");
+        }
+        this.refreshParams = refreshParams;
+    }
 
     @Override
     public Duration getExpiryForCreation(DataServiceRequest dataServiceRequest, DataServiceResponse dataServiceResponse) {
-        return dataServiceRequest.getCacheLifetime();
+        return remaining(refreshParams.getRetention(dataServiceRequest.getCacheLifetime()), dataServiceResponse.getTime());
     }
 
     @Override
@@ -41,6 +66,18 @@ public class CacheExpiryPolicy implements ExpiryPolicy<DataServiceRequest, DataS
     @Override
     public Duration getExpiryForUpdate(DataServiceRequest dataServiceRequest, Supplier<? extends DataServiceResponse> supplier,
                                        DataServiceResponse dataServiceResponse) {
-        return dataServiceRequest.getCacheLifetime();
+        return remaining(refreshParams.getRetention(dataServiceRequest.getCacheLifetime()), dataServiceResponse.getTime());
+    }
+
+    /**
+     * Возвращает оставшееся время хранения данных.
+     *
+     * @param lifetime Время кэширования
+     * @param time     Момент получения данных
+     * @return Оставшееся время хранения, не меньше нуля
+     */
+    static Duration remaining(Duration lifetime, Instant time) {
+        Duration result = lifetime.minus(Duration.between(time, Instant.now()));
+        return result.isNegative() ? Duration.ZERO : result;
     }
 }
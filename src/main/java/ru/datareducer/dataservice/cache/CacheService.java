@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.CachePersistenceException;
+import org.ehcache.PersistentCacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import ru.datareducer.dataservice.entity.DataServiceRequest;
+import ru.datareducer.dataservice.entity.DataServiceResponse;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэши результатов запросов всех информационных баз приложения.
+ * <p>
+ * Кэши создаются одним менеджером Ehcache: кэш результатов в куче - для каждой информационной базы,
+ * хранилище таблиц данных вне кучи и на диске - для каждого сочетания адреса сервера, имени
+ * информационной базы и пользователя. Хранилища не удаляются при изменении настроек информационной базы
+ * и закрываются только вместе со службой.
+ * <p>
+ * Общий объём кэшей в куче распределяется между информационными базами по справедливости: кэш,
+ * использующий меньше равной доли, получает объём по потребности с запасом, заполненные кэши делят
+ * освободившийся объём, а остаток делится поровну. Объём одного кэша не превышает объём, заданный
+ * для одной информационной базы.
+ * Распределение пересматривается при создании и удалении кэшей и периодически. Размер элементов кэша
+ * оценивается {@link ResponseSizeOfEngineProvider}.
+ * <p>
+ * Копии данных ресурсов, получаемых с синхронизацией изменений, хранятся в отдельных кэшах без срока хранения
+ * ({@link #getReplicaCache(String)}). Их объём распределяется вместе с объёмом кэшей результатов.
+ * <p>
+ * Если после сборки мусора занятая часть старшего поколения кучи превышает порог, общий объём
+ * уменьшается вдвое (но не более чем в 16 раз), а лишние элементы удаляются. Когда занятая память
+ * снижается, объём постепенно восстанавливается.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class CacheService implements AutoCloseable {
+    // Общий объём кэшей по умолчанию - четверть максимального размера кучи
+    public static final long DEFAULT_TOTAL_SIZE = Runtime.getRuntime().maxMemory() / 4;
+    // Порог заполнения старшего поколения кучи по умолчанию, в процентах
+    public static final int DEFAULT_PRESSURE_THRESHOLD = 80;
+
+    private static final String CACHE_ALIAS_PREFIX = "responses-";
+    private static final String REPLICA_ALIAS_PREFIX = "replicas-";
+    private static final String STORAGE_ALIAS_PREFIX = "dataTables-";
+
+    private static final double MIN_PRESSURE_FACTOR = 1.0 / 16;
+    // Доля порога, ниже которой общий объём восстанавливается
+    private static final double RECOVERY_RATIO = 0.75;
+    // Доля объёма, при заполнении которой кэш считается заполненным
+    private static final double FULL_RATIO = 0.9;
+    private static final long REBALANCE_INTERVAL_SECONDS = 30;
+
+    private final long totalSize;
+    private final long infoBaseSize;
+    private final long offHeapSize;
+    private final long diskSize;
+    private final RefreshParams refreshParams;
+
+    private final CacheManager cacheManager;
+    // Кэши результатов и копий данных в куче по именам и их текущие объёмы
+    private final Map<String, Cache<DataServiceRequest, DataServiceResponse>> caches = new LinkedHashMap<>();
+    private final Map<Cache<DataServiceRequest, DataServiceResponse>, Long> cacheSizes = new HashMap<>();
+    // Хранилища таблиц данных по ключам
+    private final Map<String, Cache<String, CachedDataTable>> storageCaches = new HashMap<>();
+    // Ключи хранилищ, которые не удалось создать
+    private final Set<String> failedStorageCaches = new HashSet<>();
+    // Множитель общего объёма, уменьшаемый при нехватке памяти
+    private double pressureFactor = 1.0;
+    private boolean closed;
+
+    // Пул памяти старшего поколения или null, если не отслеживается
+    private final MemoryPoolMXBean tenuredPool;
+    private final long pressureThreshold;
+    private final NotificationListener pressureListener;
+    private final ScheduledExecutorService scheduler;
+
+    private static final Logger log = LogManager.getFormatterLogger(CacheService.class);
+
+    /**
+     * Создаёт службу кэшей.
+     *
+     * @param totalSize         Общий объём кэшей в куче в байтах
+     * @param infoBaseSize      Объём кэша одной информационной базы в байтах
+     * @param pressureThreshold Порог заполнения старшего поколения кучи после сборки мусора, в процентах.
+     *                          0 - не отслеживать заполнение кучи.
+     * @param offHeapSize       Объём каждого хранилища вне кучи в мегабайтах. 0 - не использовать.
+     * @param diskSize          Объём каждого хранилища на диске в мегабайтах. 0 - не использовать.
+     * @param storageDir        Каталог хранилищ на диске. Обязателен, если используется хранилище на диске.
+     * @param refreshParams     Параметры фонового обновления результатов
+     */
+    public CacheService(long totalSize, long infoBaseSize, int pressureThreshold,
+                        long offHeapSize, long diskSize, Path storageDir, RefreshParams refreshParams) {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'totalSize': " + totalSize);
+        }
+        if (infoBaseSize <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'infoBaseSize': " + infoBaseSize);
+        }
+        if (pressureThreshold < 0 || pressureThreshold > 100) {
+            throw new IllegalArgumentException("Значение параметра 'pressureThreshold': " + pressureThreshold);
+        }
+        if (offHeapSize < 0) {
+            throw new IllegalArgumentException("Значение параметра 'offHeapSize': " + offHeapSize);
+        }
+        if (diskSize < 0) {
+            throw new IllegalArgumentException("Значение параметра 'diskSize': " + diskSize);
+        }
+        if (diskSize > 0 && storageDir == null) {
+            throw new IllegalArgumentException("Значение параметра 'storageDir': null");
+        }
+        if (refreshParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'refreshParams': null");
+        }
+        this.refreshParams = refreshParams;
+        this.totalSize = totalSize;
+        this.infoBaseSize = Math.min(infoBaseSize, totalSize);
+        if (offHeapSize > 0 && diskSize > 0 && diskSize <= offHeapSize) {
+            log.warn("Объём хранилища кэша на диске (%s МБ) должен быть больше объёма вне кучи (%s МБ). " +
+                    "Хранилище вне кучи не используется", diskSize, offHeapSize);
+            offHeapSize = 0;
+        }
+        this.offHeapSize = offHeapSize;
+        this.diskSize = diskSize;
+
+        CacheManagerBuilder<CacheManager> builder = CacheManagerBuilder.newCacheManagerBuilder()
+                .using(new ResponseSizeOfEngineProvider(this.infoBaseSize));
+        if (diskSize > 0) {
+            this.cacheManager = builder.with(CacheManagerBuilder.persistence(storageDir.toFile())).build(true);
+        } else {
+            this.cacheManager = builder.build(true);
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebalance, REBALANCE_INTERVAL_SECONDS, REBALANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        MemoryPoolMXBean pool = null;
+        if (pressureThreshold > 0) {
+            for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans()) {
+                // Пороги использования поддерживает только старшее поколение
+                if (p.getType() == MemoryType.HEAP && p.isUsageThresholdSupported()
+                        && p.isCollectionUsageThresholdSupported() && p.getUsage().getMax() > 0) {
+                    pool = p;
+                    break;
+                }
+            }
+        }
+        this.tenuredPool = pool;
+
+        if (tenuredPool != null) {
+            this.pressureThreshold = tenuredPool.getUsage().getMax() / 100 * pressureThreshold;
+            this.pressureListener = (notification, handback) -> {
+                if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                    scheduler.execute(this::relievePressure);
+                }
+            };
+            tenuredPool.setCollectionUsageThreshold(this.pressureThreshold);
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(pressureListener, null, null);
+        } else {
+            this.pressureThreshold = 0;
+            this.pressureListener = null;
+        }
+    }
+
+    /**
+     * Возвращает объём кэша одной информационной базы в байтах.
+     * Это и максимальный размер одного элемента кэша.
+     */
+    public long getInfoBaseSize() {
+        return infoBaseSize;
+    }
+
+    public RefreshParams getRefreshParams() {
+        return refreshParams;
+    }
+
+    /**
+     * Возвращает текущий общий объём кэшей в куче в байтах.
+     */
+    public synchronized long getTotalSize() {
+        return Math.max(1, (long) (totalSize * pressureFactor));
+    }
+
+    /**
+     * Возвращает кэш результатов запросов информационной базы. Если кэш ещё не создан,
+     * он создаётся и общий объём перераспределяется.
+     *
+     * @param infoBaseId Идентификатор информационной базы
+     * @return Кэш результатов запросов
+     */
+    public synchronized Cache<DataServiceRequest, DataServiceResponse> getCache(String infoBaseId) {
+        if (infoBaseId == null) {
+            throw new IllegalArgumentException("Значение параметра 'infoBaseId': null");
+        }
+        return getOrCreateCache(CACHE_ALIAS_PREFIX + infoBaseId, new CacheExpiryPolicy(refreshParams));
+    }
+
+    /**
+     * Возвращает кэш копий данных ресурсов информационной базы, получаемых с синхронизацией изменений.
+     * Копии не устаревают, а вытесняются при нехватке объёма. Если кэш ещё не создан,
+     * он создаётся и общий объём перераспределяется.
+     *
+     * @param infoBaseId Идентификатор информационной базы
+     * @return Кэш копий данных
+     */
+    public synchronized Cache<DataServiceRequest, DataServiceResponse> getReplicaCache(String infoBaseId) {
+        if (infoBaseId == null) {
+            throw new IllegalArgumentException("Значение параметра 'infoBaseId': null");
+        }
+        return getOrCreateCache(REPLICA_ALIAS_PREFIX + infoBaseId, ExpiryPolicyBuilder.noExpiration());
+    }
+
+    private Cache<DataServiceRequest, DataServiceResponse> getOrCreateCache(
+            String alias, ExpiryPolicy<? super DataServiceRequest, ? super DataServiceResponse> expiry) {
+        checkNotClosed();
+        Cache<DataServiceRequest, DataServiceResponse> cache = caches.get(alias);
+        if (cache == null) {
+            cache = cacheManager.createCache(alias, CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(DataServiceRequest.class, DataServiceResponse.class,
+                            ResourcePoolsBuilder.newResourcePoolsBuilder().heap(infoBaseSize, MemoryUnit.B))
+                    .withExpiry(expiry));
+            caches.put(alias, cache);
+            cacheSizes.put(cache, infoBaseSize);
+            reallocate();
+        }
+        return cache;
+    }
+
+    /**
+     * Очищает кэш результатов запросов и кэш копий данных информационной базы, если они созданы.
+     * Объём кэшей сохраняется до следующего перераспределения.
+     *
+     * @param infoBaseId Идентификатор информационной базы
+     */
+    public synchronized void clearCache(String infoBaseId) {
+        for (String alias : new String[]{CACHE_ALIAS_PREFIX + infoBaseId, REPLICA_ALIAS_PREFIX + infoBaseId}) {
+            Cache<DataServiceRequest, DataServiceResponse> cache = caches.get(alias);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Удаляет кэш результатов запросов и кэш копий данных информационной базы. Объём кэшей перераспределяется
+     * между остальными кэшами. Хранилища таблиц данных не удаляются.
+     *
+     * @param infoBaseId Идентификатор информационной базы
+     */
+    public synchronized void removeCache(String infoBaseId) {
+        boolean removed = false;
+        for (String alias : new String[]{CACHE_ALIAS_PREFIX + infoBaseId, REPLICA_ALIAS_PREFIX + infoBaseId}) {
+            Cache<DataServiceRequest, DataServiceResponse> cache = caches.remove(alias);
+            if (cache != null) {
+                cacheSizes.remove(cache);
+                if (!closed) {
+                    cacheManager.removeCache(alias);
+                }
+                removed = true;
+            }
+        }
+        if (removed && !closed) {
+            reallocate();
+        }
+    }
+
+    /**
+     * Возвращает хранилище таблиц данных вне кучи и на диске. Если хранилище ещё не создано, оно создаётся,
+     * а сохранённые на диске таблицы становятся доступны.
+     *
+     * @param storageKey Ключ хранилища, допустимый в имени файла
+     * @return Хранилище или null, если хранилище не используется или его не удалось создать
+     */
+    public synchronized Cache<String, CachedDataTable> getStorageCache(String storageKey) {
+        if (storageKey == null || storageKey.isEmpty()) {
+            throw new IllegalArgumentException("Значение параметра 'storageKey': " + storageKey);
+        }
+        checkNotClosed();
+        if (offHeapSize == 0 && diskSize == 0 || failedStorageCaches.contains(storageKey)) {
+            return null;
+        }
+        Cache<String, CachedDataTable> storage = storageCaches.get(storageKey);
+        if (storage == null) {
+            storage = createStorageCache(STORAGE_ALIAS_PREFIX + storageKey);
+            if (storage == null) {
+                failedStorageCaches.add(storageKey);
+            } else {
+                storageCaches.put(storageKey, storage);
+            }
+        }
+        return storage;
+    }
+
+    // Ключ хранилища - URI запроса, так как параметры запроса не сериализуются.
+    // Ярус в куче на один элемент нужен Ehcache как кэширующий для дискового яруса.
+    private Cache<String, CachedDataTable> createStorageCache(String alias) {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(1, EntryUnit.ENTRIES);
+        if (offHeapSize > 0) {
+            pools = pools.offheap(offHeapSize, MemoryUnit.MB);
+        }
+        if (diskSize > 0) {
+            pools = pools.disk(diskSize, MemoryUnit.MB, true);
+        }
+        CacheConfigurationBuilder<String, CachedDataTable> config = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(String.class, CachedDataTable.class, pools)
+                .withValueSerializer(new CachedDataTableSerializer())
+                .withExpiry(new CachedDataTableExpiryPolicy(refreshParams));
+        try {
+            return cacheManager.createCache(alias, config);
+        } catch (RuntimeException e) {
+            // Сохранённые данные несовместимы с новыми настройками хранилища
+            log.warn("Хранилище кэша '%s' будет создано заново: %s", alias, e.getMessage());
+        }
+        try {
+            if (cacheManager instanceof PersistentCacheManager) {
+                ((PersistentCacheManager) cacheManager).destroyCache(alias);
+            } else {
+                cacheManager.removeCache(alias);
+            }
+            return cacheManager.createCache(alias, config);
+        } catch (RuntimeException | CachePersistenceException e) {
+            log.error("Не удалось создать хранилище кэша '%s'. Используется только кэш в куче", alias, e);
+            return null;
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("Служба кэшей закрыта");
+        }
+    }
+
+    // Восстанавливает общий объём, если нехватка памяти миновала, и пересматривает распределение
+    // объёма по текущему заполнению кэшей.
+    private synchronized void rebalance() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (tenuredPool != null) {
+                recover();
+            }
+            reallocate();
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодическое перераспределение
+            log.warn("Ошибка перераспределения объёма кэшей: %s", e.getMessage());
+        }
+    }
+
+    // Распределяет общий объём по заполнению кэшей: потребность незаполненного кэша - занятый объём с запасом
+    // в четверть равной доли, заполненного - объём кэша одной информационной базы. Потребности удовлетворяются
+    // от меньших к большим, каждой - не больше равной доли остатка. Оставшийся объём делится поровну.
+    private void reallocate() {
+        long total = getTotalSize();
+        int count = caches.size();
+        if (count == 0) {
+            return;
+        }
+        long maxSize = Math.min(infoBaseSize, total);
+        long headroom = Math.max(1, total / count / 4);
+
+        Map<Cache<DataServiceRequest, DataServiceResponse>, Long> used = new HashMap<>();
+        List<Cache<DataServiceRequest, DataServiceResponse>> order = new ArrayList<>(caches.values());
+        Map<Cache<DataServiceRequest, DataServiceResponse>, Long> demands = new HashMap<>();
+        for (Cache<DataServiceRequest, DataServiceResponse> cache : order) {
+            long usedSize = usedSize(cache);
+            used.put(cache, usedSize);
+            boolean full = usedSize >= cacheSizes.get(cache) * FULL_RATIO;
+            demands.put(cache, full ? maxSize : Math.min(maxSize, usedSize + headroom));
+        }
+        order.sort((a, b) -> Long.compare(demands.get(a), demands.get(b)));
+
+        Map<Cache<DataServiceRequest, DataServiceResponse>, Long> sizes = new HashMap<>();
+        long remaining = total;
+        for (int i = 0; i < count; i++) {
+            Cache<DataServiceRequest, DataServiceResponse> cache = order.get(i);
+            long size = Math.max(1, Math.min(demands.get(cache), remaining / (count - i)));
+            sizes.put(cache, size);
+            remaining -= size;
+        }
+        for (int i = 0; i < count && remaining > 0; i++) {
+            Cache<DataServiceRequest, DataServiceResponse> cache = order.get(i);
+            long extra = Math.min(maxSize - sizes.get(cache), remaining / (count - i));
+            if (extra > 0) {
+                sizes.put(cache, sizes.get(cache) + extra);
+                remaining -= extra;
+            }
+        }
+
+        for (Cache<DataServiceRequest, DataServiceResponse> cache : order) {
+            long size = sizes.get(cache);
+            if (size != cacheSizes.get(cache)) {
+                cache.getRuntimeConfiguration().updateResourcePools(ResourcePoolsBuilder.newResourcePoolsBuilder()
+                        .heap(size, MemoryUnit.B).build());
+                cacheSizes.put(cache, size);
+            }
+            if (used.get(cache) > size) {
+                trim(cache, size);
+            }
+        }
+    }
+
+    private static long usedSize(Cache<DataServiceRequest, DataServiceResponse> cache) {
+        long used = 0;
+        for (Cache.Entry<DataServiceRequest, DataServiceResponse> entry : cache) {
+            used += entry.getValue().estimateSize();
+        }
+        return used;
+    }
+
+    // Ehcache освобождает место при уменьшении объёма постепенно, при добавлении новых элементов.
+    // Чтобы память освободилась сразу, элементы сверх объёма удаляются явно.
+    private static void trim(Cache<DataServiceRequest, DataServiceResponse> cache, long size) {
+        long used = 0;
+        List<DataServiceRequest> excess = new ArrayList<>();
+        for (Cache.Entry<DataServiceRequest, DataServiceResponse> entry : cache) {
+            used += entry.getValue().estimateSize();
+            if (used > size) {
+                excess.add(entry.getKey());
+            }
+        }
+        for (DataServiceRequest key : excess) {
+            cache.remove(key);
+        }
+    }
+
+    private synchronized void relievePressure() {
+        if (!closed && pressureFactor > MIN_PRESSURE_FACTOR) {
+            pressureFactor = Math.max(MIN_PRESSURE_FACTOR, pressureFactor / 2);
+            log.warn("Заполнение кучи после сборки мусора превысило порог. Общий объём кэшей уменьшен до %s байт", getTotalSize());
+            reallocate();
+        }
+    }
+
+    private synchronized void recover() {
+        if (pressureFactor < 1.0 && tenuredPool.getCollectionUsage().getUsed() < pressureThreshold * RECOVERY_RATIO) {
+            pressureFactor = Math.min(1.0, pressureFactor * 2);
+            log.info("Общий объём кэшей восстановлен до %s байт", getTotalSize());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pressureListener != null) {
+            try {
+                ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(pressureListener);
+            } catch (ListenerNotFoundException e) {
+                log.warn(e);
+            }
+        }
+        scheduler.shutdownNow();
+        caches.clear();
+        cacheSizes.clear();
+        storageCaches.clear();
+        cacheManager.close();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import ru.datareducer.dataservice.entity.DataServiceRequest;
+import ru.datareducer.dataservice.entity.DataServiceResponse;
+import ru.datareducer.dataservice.entity.Field;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Таблица данных результата запроса, хранимая вне кучи или на диске.
+ * <p>
+ * В отличие от {@link DataServiceResponse}, не содержит параметров запроса: они восстанавливаются
+ * из запроса, по которому таблица найдена в хранилище.
+ *
+ * @author Kirill Mikhaylov
+ * @see CachedDataTableSerializer
+ */
+public final class CachedDataTable {
+    private final List<Map<Field, Object>> dataTable;
+    private final Instant time;
+    private final Duration lifetime;
+
+    /**
+     * @param dataTable Таблица данных
+     * @param time      Момент получения данных от REST-сервиса 1С
+     * @param lifetime  Время кэширования
+     */
+    public CachedDataTable(List<Map<Field, Object>> dataTable, Instant time, Duration lifetime) {
+        if (dataTable == null) {
+            throw new IllegalArgumentException("Значение параметра 'dataTable': null");
+        }
+        if (time == null) {
+            throw new IllegalArgumentException("Значение параметра 'time': null");
+        }
+        if (lifetime == null) {
+            throw new IllegalArgumentException("Значение параметра 'lifetime': null");
+        }
+        this.dataTable = dataTable;
+        this.time = time;
+        this.lifetime = lifetime;
+    }
+
+    /**
+     * Создаёт таблицу для хранения по результату запроса.
+     *
+     * @param request  Параметры запроса
+     * @param response Результат запроса
+     * @return Таблица данных
+     */
+    public static CachedDataTable of(DataServiceRequest request, DataServiceResponse response) {
+        return new CachedDataTable(response.asDataTable(), response.getTime(), request.getCacheLifetime());
+    }
+
+    /**
+     * Восстанавливает результат запроса.
+     *
+     * @param request Параметры запроса, по которому таблица найдена в хранилище
+     * @return Результат запроса
+     */
+    public DataServiceResponse toResponse(DataServiceRequest request) {
+        return new DataServiceResponse(request, dataTable, time);
+    }
+
+    public List<Map<Field, Object>> getDataTable() {
+        return dataTable;
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    public Duration getLifetime() {
+        return lifetime;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import org.ehcache.expiry.ExpiryPolicy;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Время хранения таблицы данных в хранилище кэша вне кучи и на диске.
+ * Отсчитывается от момента получения данных, поэтому сохраняется и после перезапуска приложения.
+ * Включает период допустимого устаревания {@link RefreshParams}.
+ *
+ * @author Kirill Mikhaylov
+ */
+public class CachedDataTableExpiryPolicy implements ExpiryPolicy<String, CachedDataTable> {
+    private final RefreshParams refreshParams;
+
+    public CachedDataTableExpiryPolicy() {
+        this(RefreshParams.NONE);
+    }
+
+    /**
+     * @param refreshParams Параметры фонового обновления результатов
+     */
+    public CachedDataTableExpiryPolicy(RefreshParams refreshParams) {
+        if (refreshParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'refreshParams': null");
+        }
+        this.refreshParams = refreshParams;
+    }
+
+    @Override
+    public Duration getExpiryForCreation(String key, CachedDataTable table) {
+        return CacheExpiryPolicy.remaining(refreshParams.getRetention(table.getLifetime()), table.getTime());
+    }
+
+    @Override
+    public Duration getExpiryForAccess(String key, Supplier<? extends CachedDataTable> supplier) {
+        return null;
+    }
+
+    @Override
+    public Duration getExpiryForUpdate(String key, Supplier<? extends CachedDataTable> supplier, CachedDataTable table) {
+        return CacheExpiryPolicy.remaining(refreshParams.getRetention(table.getLifetime()), table.getTime());
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+import ru.datareducer.dataservice.entity.Field;
+import ru.datareducer.dataservice.entity.FieldType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Компактное двоичное представление таблицы данных результата запроса.
+ * <p>
+ * Таблица записывается по столбцам. Каждое значение предваряется байтом типа, целые числа длины
+ * и ссылки записываются в формате переменной длины, а строки каждого столбца - через словарь,
+ * так что повторяющиеся значения (наименования, представления ссылок) хранятся один раз.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class CachedDataTableSerializer implements Serializer<CachedDataTable> {
+    private static final byte VERSION = 1;
+
+    private static final byte ABSENT = 0;
+    private static final byte NULL = 1;
+    private static final byte STRING = 2;
+    private static final byte LONG = 3;
+    private static final byte INTEGER = 4;
+    private static final byte SHORT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte TRUE = 7;
+    private static final byte FALSE = 8;
+    private static final byte GUID = 9;
+    private static final byte INSTANT = 10;
+
+    public CachedDataTableSerializer() {
+    }
+
+    /**
+     * Конструктор, используемый Ehcache при создании сериализатора по классу.
+     *
+     * @param classLoader Загрузчик классов (не используется)
+     */
+    public CachedDataTableSerializer(ClassLoader classLoader) {
+    }
+
+    @Override
+    public ByteBuffer serialize(CachedDataTable table) throws SerializerException {
+        List<Map<Field, Object>> rows = table.getDataTable();
+        // Столбцы - все поля, встречающиеся в строках, в порядке их появления
+        Map<Field, Integer> columns = new LinkedHashMap<>();
+        for (Map<Field, Object> row : rows) {
+            for (Field field : row.keySet()) {
+                columns.putIfAbsent(field, columns.size());
+            }
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, rows.size() * columns.size() * 4));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeLong(table.getTime().getEpochSecond());
+            out.writeInt(table.getTime().getNano());
+            out.writeLong(table.getLifetime().getSeconds());
+            out.writeInt(table.getLifetime().getNano());
+            writeVarInt(out, columns.size());
+            for (Field field : columns.keySet()) {
+                writeString(out, field.getName());
+                writeString(out, field.getFieldType().name());
+            }
+            writeVarInt(out, rows.size());
+            for (Field field : columns.keySet()) {
+                Map<String, Integer> dictionary = new HashMap<>();
+                for (Map<Field, Object> row : rows) {
+                    writeValue(out, row, field, dictionary);
+                }
+            }
+            out.flush();
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Map<Field, Object> row, Field field,
+                                   Map<String, Integer> dictionary) throws IOException {
+        Object value = row.get(field);
+        if (value == null) {
+            out.writeByte(row.containsKey(field) ? NULL : ABSENT);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            Integer ref = dictionary.get(value);
+            if (ref == null) {
+                writeVarInt(out, 0);
+                writeString(out, (String) value);
+                dictionary.put((String) value, dictionary.size() + 1);
+            } else {
+                writeVarInt(out, ref);
+            }
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof UUID) {
+            out.writeByte(GUID);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof Instant) {
+            out.writeByte(INSTANT);
+            out.writeLong(((Instant) value).getEpochSecond());
+            out.writeInt(((Instant) value).getNano());
+        } else {
+            throw new SerializerException(String.format("Неподдерживаемый тип значения поля '%s': %s",
+                    field.getName(), value.getClass().getName()));
+        }
+    }
+
+    @Override
+    public CachedDataTable read(ByteBuffer binary) throws SerializerException {
+        ByteBuffer in = binary.duplicate();
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new SerializerException("Неподдерживаемая версия формата таблицы данных: " + version);
+        }
+        Instant time = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        Duration lifetime = Duration.ofSeconds(in.getLong(), in.getInt());
+        int columnCount = readVarInt(in);
+        List<Field> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String name = readString(in);
+            columns.add(new Field(name, FieldType.valueOf(readString(in))));
+        }
+        int rowCount = readVarInt(in);
+        List<Map<Field, Object>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new LinkedHashMap<>(columnCount * 4 / 3 + 1));
+        }
+        for (Field field : columns) {
+            List<String> dictionary = new ArrayList<>();
+            for (Map<Field, Object> row : rows) {
+                byte tag = in.get();
+                switch (tag) {
+                    case ABSENT:
+                        break;
+                    case NULL:
+                        row.put(field, null);
+                        break;
+                    case STRING:
+                        int ref = readVarInt(in);
+                        if (ref == 0) {
+                            String value = readString(in);
+                            dictionary.add(value);
+                            row.put(field, value);
+                        } else {
+                            row.put(field, dictionary.get(ref - 1));
+                        }
+                        break;
+                    case LONG:
+                        row.put(field, in.getLong());
+                        break;
+                    case INTEGER:
+                        row.put(field, in.getInt());
+                        break;
+                    case SHORT:
+                        row.put(field, in.getShort());
+                        break;
+                    case DOUBLE:
+                        row.put(field, in.getDouble());
+                        break;
+                    case TRUE:
+                        row.put(field, Boolean.TRUE);
+                        break;
+                    case FALSE:
+                        row.put(field, Boolean.FALSE);
+                        break;
+                    case GUID:
+                        row.put(field, new UUID(in.getLong(), in.getLong()));
+                        break;
+                    case INSTANT:
+                        row.put(field, Instant.ofEpochSecond(in.getLong(), in.getInt()));
+                        break;
+                    default:
+                        throw new SerializerException("Недопустимый тип значения в таблице данных: " + tag);
+                }
+            }
+        }
+        return new CachedDataTable(rows, time, lifetime);
+    }
+
+    @Override
+    public boolean equals(CachedDataTable table, ByteBuffer binary) throws SerializerException {
+        return serialize(table).equals(binary.duplicate());
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
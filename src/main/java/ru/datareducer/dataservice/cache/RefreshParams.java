@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Параметры фонового обновления результатов запросов в кэше.
+ * <p>
+ * Результат, время кэширования которого подходит к концу, возвращается из кэша и одновременно
+ * обновляется в фоне (refresh-ahead). Результат, время кэширования которого истекло, ещё хранится
+ * в кэше в течение периода допустимого устаревания: он также возвращается сразу и обновляется в фоне
+ * (stale-while-revalidate). Пока обновление не удалось, например при разомкнутой цепи, возвращается
+ * устаревший результат.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class RefreshParams {
+    /**
+     * Без фонового обновления: результат удаляется из кэша по истечении времени кэширования
+     */
+    public static final RefreshParams NONE = new RefreshParams(0, Duration.ZERO);
+
+    private final int refreshAhead;
+    private final Duration staleGrace;
+
+    /**
+     * Создаёт параметры фонового обновления
+     *
+     * @param refreshAhead Остаток времени кэширования в процентах, при котором результат обновляется в фоне.
+     *                     Ноль - не обновлять до истечения времени кэширования.
+     * @param staleGrace   Период после истечения времени кэширования, в течение которого возвращается
+     *                     устаревший результат. Ноль - устаревший результат не возвращается.
+     */
+    public RefreshParams(int refreshAhead, Duration staleGrace) {
+        if (refreshAhead < 0 || refreshAhead > 100) {
+            throw new IllegalArgumentException("Значение параметра 'refreshAhead': " + refreshAhead);
+        }
+        if (staleGrace == null || staleGrace.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'staleGrace': " + staleGrace);
+        }
+        this.refreshAhead = refreshAhead;
+        this.staleGrace = staleGrace;
+    }
+
+    public int getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public Duration getStaleGrace() {
+        return staleGrace;
+    }
+
+    /**
+     * Возвращает время хранения результата в кэше: время кэширования и период допустимого устаревания.
+     * Результаты ресурсов без кэширования не хранятся.
+     *
+     * @param lifetime Время кэширования
+     */
+    public Duration getRetention(Duration lifetime) {
+        return lifetime.isZero() ? Duration.ZERO : lifetime.plus(staleGrace);
+    }
+
+    /**
+     * Проверяет, истекло ли время хранения результата в кэше.
+     *
+     * @param lifetime Время кэширования
+     * @param time     Момент получения данных
+     */
+    public boolean isExpired(Duration lifetime, Instant time) {
+        return CacheExpiryPolicy.remaining(getRetention(lifetime), time).isZero();
+    }
+
+    /**
+     * Проверяет, нужно ли обновить в фоне результат, возвращаемый из кэша.
+     *
+     * @param lifetime Время кэширования
+     * @param time     Момент получения данных
+     */
+    public boolean isRefreshNeeded(Duration lifetime, Instant time) {
+        return isEnding(lifetime, time, lifetime.multipliedBy(refreshAhead).dividedBy(100));
+    }
+
+    /**
+     * Проверяет, осталось ли до истечения времени кэширования не больше заданного времени.
+     *
+     * @param lifetime Время кэширования
+     * @param time     Момент получения данных
+     * @param ahead    Остаток времени кэширования
+     */
+    public static boolean isEnding(Duration lifetime, Instant time, Duration ahead) {
+        return CacheExpiryPolicy.remaining(lifetime, time).compareTo(ahead) <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "refreshAhead=" + refreshAhead + ", staleGrace=" + staleGrace;
+    }
+}
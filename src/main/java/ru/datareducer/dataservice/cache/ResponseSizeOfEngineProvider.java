@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.cache;
+
+import org.ehcache.config.ResourceUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.spi.store.Store;
+import org.ehcache.core.spi.store.heap.LimitExceededException;
+import org.ehcache.core.spi.store.heap.SizeOfEngine;
+import org.ehcache.core.spi.store.heap.SizeOfEngineProvider;
+import org.ehcache.impl.internal.sizeof.NoopSizeOfEngine;
+import org.ehcache.spi.service.Service;
+import org.ehcache.spi.service.ServiceConfiguration;
+import org.ehcache.spi.service.ServiceProvider;
+import ru.datareducer.dataservice.entity.DataServiceResponse;
+
+/**
+ * Оценка размера элементов кэша результатов запросов для ограничения кэша в байтах.
+ * <p>
+ * Вместо обхода графа объектов средствами Ehcache используется {@link DataServiceResponse#estimateSize()}.
+ * Результат, который больше максимального размера элемента, в кэш не помещается.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class ResponseSizeOfEngineProvider implements SizeOfEngineProvider {
+    // Ключ (параметры запроса) и служебные объекты хранилища
+    private static final long ENTRY_OVERHEAD = 512;
+
+    private final long maxEntrySize;
+
+    /**
+     * @param maxEntrySize Максимальный размер элемента кэша в байтах
+     */
+    public ResponseSizeOfEngineProvider(long maxEntrySize) {
+        if (maxEntrySize <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxEntrySize': " + maxEntrySize);
+        }
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    @Override
+    public SizeOfEngine createSizeOfEngine(ResourceUnit resourceUnit, ServiceConfiguration<?, ?>... serviceConfigs) {
+        if (!(resourceUnit instanceof MemoryUnit)) {
+            // Кэш ограничен количеством элементов
+            return new NoopSizeOfEngine();
+        }
+        return new SizeOfEngine() {
+            @Override
+            public <K, V> long sizeof(K key, Store.ValueHolder<V> holder) throws LimitExceededException {
+                V value = holder.get();
+                long size = ENTRY_OVERHEAD + (value instanceof DataServiceResponse ? ((DataServiceResponse) value).estimateSize() : 0);
+                if (size > maxEntrySize) {
+                    throw new LimitExceededException(String.format("Размер результата запроса (%s байт) превышает " +
+                            "максимальный размер элемента кэша (%s байт)", size, maxEntrySize));
+                }
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void start(ServiceProvider<Service> serviceProvider) {
+    }
+
+    @Override
+    public void stop() {
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.client;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Размыкатель цепи запросов к информационной базе 1С.
+ * <p>
+ * После заданного количества ошибок подряд цепь размыкается, и запросы завершаются ошибкой без обращения
+ * к серверу. По истечении заданного времени к серверу допускается один пробный запрос: при его успешном
+ * выполнении цепь замыкается, при ошибке - снова размыкается. Если пробный запрос не завершился
+ * за то же время (например, сервер принял соединение и не отвечает), допускается следующий пробный запрос.
+ *
+ * @author Kirill Mikhaylov
+ */
+final class CircuitBreaker {
+    private enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    // Количество ошибок подряд.
+    private int failures;
+    // Время размыкания цепи или начала пробного запроса.
+    private long openedAt;
+
+    private static final Logger log = LogManager.getFormatterLogger(CircuitBreaker.class);
+
+    CircuitBreaker(RetryParams retryParams) {
+        if (retryParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'retryParams': null");
+        }
+        this.failureThreshold = retryParams.getFailureThreshold();
+        this.openNanos = retryParams.getOpenDuration().toNanos();
+    }
+
+    /**
+     * Проверяет, можно ли выполнить запрос.
+     *
+     * @return false, если цепь разомкнута
+     */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                log.info("Выполняется пробный запрос к REST-сервису 1С");
+                state = State.HALF_OPEN;
+                openedAt = System.nanoTime();
+                return true;
+            default:
+                // Пробный запрос уже выполняется.
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                log.info("Пробный запрос к REST-сервису 1С не завершён за %s мс. Выполняется следующий пробный запрос",
+                        openNanos / 1_000_000);
+                openedAt = System.nanoTime();
+                return true;
+        }
+    }
+
+    /**
+     * Регистрирует успешное выполнение запроса.
+     */
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("REST-сервис 1С снова доступен");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Регистрирует ошибку, свидетельствующую о недоступности сервера.
+     */
+    synchronized void onFailure() {
+        failures++;
+        if (failureThreshold > 0 && (state == State.HALF_OPEN || failures >= failureThreshold)) {
+            if (state != State.OPEN) {
+                log.warn("REST-сервис 1С недоступен. Ошибок подряд: %s. Запросы приостановлены на %s мс",
+                        failures, openNanos / 1_000_000);
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
@@ -19,6 +19,9 @@
 
 package ru.datareducer.dataservice.client;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
 public class ClientException extends Exception {
     public ClientException() {
         super();
@@ -36,4 +39,28 @@ public class ClientException extends Exception {
         super(msg, ex);
     }
 
+    /**
+     * Возвращает исключение клиента, ставшее причиной ошибки асинхронного выполнения запроса.
+     * Непроверяемые исключения и ошибки пробрасываются как есть.
+     *
+     * @param ex Исключение, полученное при ожидании результата асинхронного запроса.
+     * @return Исключение клиента.
+     */
+    public static ClientException unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ClientException) {
+            return (ClientException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new ClientException((Exception) cause);
+    }
+
 }
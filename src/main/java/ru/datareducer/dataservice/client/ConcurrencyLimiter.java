@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.client;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ограничивает количество одновременно выполняемых запросов к информационной базе 1С.
+ * <p>
+ * Запросы сверх ограничения ожидают в очереди и допускаются к выполнению в порядке поступления.
+ * В адаптивном режиме ограничение уменьшается вдвое при ошибке сервера или превышении допустимого
+ * времени выполнения запроса и увеличивается на единицу за каждое ограничение успешных запросов,
+ * но не более заданного максимума.
+ *
+ * @author Kirill Mikhaylov
+ */
+final class ConcurrencyLimiter {
+    private final ThrottlingParams throttlingParams;
+    private final long latencyThresholdNanos;
+
+    // Текущее ограничение. Дробное, чтобы увеличиваться на единицу за ограничение успешных запросов.
+    private double limit;
+    // Количество выполняющихся запросов.
+    private int inUse;
+    // Запросы, ожидающие выполнения.
+    private final Deque<CompletableFuture<Void>> queue = new ArrayDeque<>();
+
+    private static final Logger log = LogManager.getFormatterLogger(ConcurrencyLimiter.class);
+
+    ConcurrencyLimiter(ThrottlingParams throttlingParams) {
+        if (throttlingParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'throttlingParams': null");
+        }
+        this.throttlingParams = throttlingParams;
+        this.latencyThresholdNanos = throttlingParams.getLatencyThreshold().toNanos();
+        this.limit = throttlingParams.getMaxConcurrentRequests();
+    }
+
+    /**
+     * Запрашивает разрешение на выполнение запроса.
+     *
+     * @return Результат, завершаемый при получении разрешения. Разрешение должно быть возвращено
+     * вызовом {@link #release(long, boolean)}.
+     */
+    CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (queue.isEmpty() && inUse < (int) limit) {
+                inUse++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            queue.addLast(permit);
+            return permit;
+        }
+    }
+
+    /**
+     * Возвращает разрешение и передаёт его следующему запросу в очереди.
+     *
+     * @param latencyNanos Время выполнения запроса
+     * @param overload     Признак перегрузки сервера (ошибка 5xx, таймаут, ошибка соединения)
+     */
+    void release(long latencyNanos, boolean overload) {
+        Deque<CompletableFuture<Void>> granted = new ArrayDeque<>();
+        synchronized (this) {
+            inUse--;
+            if (throttlingParams.isAdaptive()) {
+                adapt(overload || (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos));
+            }
+            while (!queue.isEmpty() && inUse < (int) limit) {
+                inUse++;
+                granted.add(queue.pollFirst());
+            }
+        }
+        // Продолжения запросов выполняются вне блокировки.
+        for (CompletableFuture<Void> permit : granted) {
+            permit.complete(null);
+        }
+    }
+
+    private void adapt(boolean overload) {
+        final int max = throttlingParams.getMaxConcurrentRequests();
+        final int previous = (int) limit;
+        if (overload) {
+            limit = Math.max(1, limit / 2);
+        } else {
+            limit = Math.min(max, limit + 1 / limit);
+        }
+        if ((int) limit < previous) {
+            log.warn("Сервер 1С перегружен. Ограничение одновременных запросов снижено до %s", (int) limit);
+        } else if ((int) limit > previous) {
+            log.info("Ограничение одновременных запросов увеличено до %s", (int) limit);
+        }
+    }
+
+    /**
+     * Текущее ограничение количества одновременных запросов
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Количество запросов, ожидающих в очереди
+     */
+    synchronized int getQueueLength() {
+        return queue.size();
+    }
+}
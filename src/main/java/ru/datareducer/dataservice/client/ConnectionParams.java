@@ -19,16 +19,46 @@
 
 package ru.datareducer.dataservice.client;
 
+import java.time.Duration;
+
 /**
  * Настройки подключения к REST-сервису 1С
  *
  * @author Kirill Mikhaylov
  */
 public final class ConnectionParams {
+    /**
+     * Максимальное количество соединений с сервером 1С по умолчанию
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 10;
+    /**
+     * Время ожидания установки соединения по умолчанию
+     */
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Время ожидания данных по умолчанию. Ноль - без ограничения, т.к. запросы к 1С могут выполняться долго.
+     */
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ZERO;
+    /**
+     * Время удержания неиспользуемого соединения по умолчанию
+     */
+    public static final Duration DEFAULT_KEEP_ALIVE = Duration.ofSeconds(60);
+    /**
+     * Сжатие ответов сервера по умолчанию
+     */
+    public static final boolean DEFAULT_COMPRESSION = true;
+
     private final String host;
     private final String base;
     private final String user;
     private final String password;
+    private final int maxConnections;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration keepAlive;
+    private final boolean compression;
+    private final ThrottlingParams throttlingParams;
+    private final RetryParams retryParams;
 
     /**
      * Создаёт настройки подключения к REST-сервису 1С
@@ -39,14 +69,102 @@ public final class ConnectionParams {
      * @param password Пароль пользователя REST-сервиса
      */
     public ConnectionParams(String host, String base, String user, String password) {
+        this(host, base, user, password, DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+                DEFAULT_KEEP_ALIVE, DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Создаёт настройки подключения к REST-сервису 1С
+     *
+     * @param host           Адрес сервера 1С
+     * @param base           Имя информационной базы
+     * @param user           Имя пользователя REST-сервиса
+     * @param password       Пароль пользователя REST-сервиса
+     * @param maxConnections Максимальное количество одновременных соединений с сервером 1С
+     * @param connectTimeout Время ожидания установки соединения. Ноль - без ограничения.
+     * @param readTimeout    Время ожидания данных. Ноль - без ограничения.
+     * @param keepAlive      Время удержания неиспользуемого соединения в пуле
+     * @param compression    Запрашивать сжатие ответов сервера (gzip, deflate)
+     */
+    public ConnectionParams(String host, String base, String user, String password, int maxConnections,
+                            Duration connectTimeout, Duration readTimeout, Duration keepAlive, boolean compression) {
+        this(host, base, user, password, maxConnections, connectTimeout, readTimeout, keepAlive, compression,
+                new ThrottlingParams(maxConnections, false, Duration.ZERO));
+    }
+
+    /**
+     * Создаёт настройки подключения к REST-сервису 1С
+     *
+     * @param host             Адрес сервера 1С
+     * @param base             Имя информационной базы
+     * @param user             Имя пользователя REST-сервиса
+     * @param password         Пароль пользователя REST-сервиса
+     * @param maxConnections   Максимальное количество одновременных соединений с сервером 1С
+     * @param connectTimeout   Время ожидания установки соединения. Ноль - без ограничения.
+     * @param readTimeout      Время ожидания данных. Ноль - без ограничения.
+     * @param keepAlive        Время удержания неиспользуемого соединения в пуле
+     * @param compression      Запрашивать сжатие ответов сервера (gzip, deflate)
+     * @param throttlingParams Параметры ограничения количества одновременных запросов
+     */
+    public ConnectionParams(String host, String base, String user, String password, int maxConnections,
+                            Duration connectTimeout, Duration readTimeout, Duration keepAlive, boolean compression,
+                            ThrottlingParams throttlingParams) {
+        this(host, base, user, password, maxConnections, connectTimeout, readTimeout, keepAlive, compression,
+                throttlingParams, new RetryParams(RetryParams.DEFAULT_MAX_RETRIES, RetryParams.DEFAULT_INITIAL_BACKOFF,
+                        RetryParams.DEFAULT_MAX_BACKOFF, RetryParams.DEFAULT_FAILURE_THRESHOLD, RetryParams.DEFAULT_OPEN_DURATION));
+    }
+
+    /**
+     * Создаёт настройки подключения к REST-сервису 1С
+     *
+     * @param host             Адрес сервера 1С
+     * @param base             Имя информационной базы
+     * @param user             Имя пользователя REST-сервиса
+     * @param password         Пароль пользователя REST-сервиса
+     * @param maxConnections   Максимальное количество одновременных соединений с сервером 1С
+     * @param connectTimeout   Время ожидания установки соединения. Ноль - без ограничения.
+     * @param readTimeout      Время ожидания данных. Ноль - без ограничения.
+     * @param keepAlive        Время удержания неиспользуемого соединения в пуле
+     * @param compression      Запрашивать сжатие ответов сервера (gzip, deflate)
+     * @param throttlingParams Параметры ограничения количества одновременных запросов
+     * @param retryParams      Параметры повторного выполнения запросов при временных ошибках
+     */
+    public ConnectionParams(String host, String base, String user, String password, int maxConnections,
+                            Duration connectTimeout, Duration readTimeout, Duration keepAlive, boolean compression,
+                            ThrottlingParams throttlingParams, RetryParams retryParams) {
         if (host == null || base == null || user == null || password == null
                 || host.isEmpty() || base.isEmpty() || user.isEmpty() || password.isEmpty()) {
             throw new IllegalArgumentException("host=" + host + ", base=" + base + ", user=" + user + ", password=" + password);
         }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxConnections': " + maxConnections);
+        }
+        if (connectTimeout == null || connectTimeout.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'connectTimeout': " + connectTimeout);
+        }
+        if (readTimeout == null || readTimeout.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'readTimeout': " + readTimeout);
+        }
+        if (keepAlive == null || keepAlive.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'keepAlive': " + keepAlive);
+        }
+        if (throttlingParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'throttlingParams': null");
+        }
+        if (retryParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'retryParams': null");
+        }
         this.host = host;
         this.base = base;
         this.user = user;
         this.password = password;
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.keepAlive = keepAlive;
+        this.compression = compression;
+        this.throttlingParams = throttlingParams;
+        this.retryParams = retryParams;
     }
 
     public String getHost() {
@@ -64,4 +182,32 @@ public final class ConnectionParams {
     public String getPassword() {
         return password;
     }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public ThrottlingParams getThrottlingParams() {
+        return throttlingParams;
+    }
+
+    public RetryParams getRetryParams() {
+        return retryParams;
+    }
 }
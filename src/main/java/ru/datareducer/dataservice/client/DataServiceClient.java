@@ -19,27 +19,39 @@
 
 package ru.datareducer.dataservice.client;
 
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.glassfish.jersey.uri.UriComponent;
 import ru.datareducer.dataservice.entity.*;
 import ru.datareducer.dataservice.jaxb.JaxbUtil;
+import ru.datareducer.dataservice.jaxb.MetadataSnapshot;
+import ru.datareducer.dataservice.jaxb.ResponseFormatException;
 import ru.datareducer.dataservice.jaxb.RestClientBuilder;
-import ru.datareducer.dataservice.jaxb.atom.Feed;
-import ru.datareducer.dataservice.jaxb.csdl.EdmxType;
-import ru.datareducer.dataservice.jaxb.register.Result;
+import ru.datareducer.dataservice.jaxb.StaxUtil;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static org.glassfish.jersey.uri.UriComponent.Type.QUERY_PARAM;
 import static org.glassfish.jersey.uri.UriComponent.Type.QUERY_PARAM_SPACE_ENCODED;
@@ -56,6 +68,14 @@ public final class DataServiceClient {
     private final ConnectionParams connectionParams;
     // Клиент REST-сервиса 1C
     private final Client rsClient;
+    // Пул соединений с сервером 1С
+    private final PoolingHttpClientConnectionManager connectionManager;
+    // Ограничение количества одновременных запросов к информационной базе 1С
+    private final ConcurrencyLimiter concurrencyLimiter;
+    // Размыкатель цепи запросов к информационной базе 1С
+    private final CircuitBreaker circuitBreaker;
+    // Планировщик повторных запросов
+    private final ScheduledExecutorService retryScheduler;
     // URL REST-сервиса 1С
     private final String oDataUrl;
 
@@ -75,7 +95,15 @@ public final class DataServiceClient {
             throw new IllegalArgumentException("Значение параметра 'connectionParams': null");
         }
         this.connectionParams = connectionParams;
-        this.rsClient = RestClientBuilder.build();
+        this.connectionManager = RestClientBuilder.createConnectionManager(connectionParams);
+        this.rsClient = RestClientBuilder.build(connectionParams, connectionManager);
+        this.concurrencyLimiter = new ConcurrencyLimiter(connectionParams.getThrottlingParams());
+        this.circuitBreaker = new CircuitBreaker(connectionParams.getRetryParams());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "DataServiceClient-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
         this.oDataUrl = String.format("http://%s/%s/odata/standard.odata", connectionParams.getHost(), connectionParams.getBase());
     }
 
@@ -87,46 +115,288 @@ public final class DataServiceClient {
      * @throws ClientException
      */
     public DataServiceResponse get(DataServiceRequest request) throws ClientException {
+        return get(request, null);
+    }
+
+    /**
+     * Выполняет HTTP-запрос GET и возвращает полученные данные.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @return Результат выполнения запроса
+     * @throws ClientException
+     * @see #getAsync(DataServiceRequest, PagingParams)
+     */
+    public DataServiceResponse get(DataServiceRequest request, PagingParams pagingParams) throws ClientException {
+        try {
+            return getAsync(request, pagingParams).join();
+        } catch (CompletionException e) {
+            throw ClientException.unwrap(e);
+        }
+    }
+
+    /**
+     * Асинхронно выполняет HTTP-запрос GET.
+     *
+     * @param request Параметры запроса
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     */
+    public CompletableFuture<DataServiceResponse> getAsync(DataServiceRequest request) {
+        return getAsync(request, null);
+    }
+
+    /**
+     * Асинхронно выполняет HTTP-запрос GET.
+     * <p>
+     * Если заданы параметры постраничного получения данных, данные ресурса запрашиваются
+     * страницами ($top/$skip с упорядочиванием по ключевым полям). Страницы запрашиваются
+     * параллельно, порциями не более maxParallelPages, до получения неполной страницы.
+     * Результат собирается в порядке следования страниц. Если ресурс не имеет ключевых полей,
+     * обеспечивающих устойчивый порядок записей (виртуальные таблицы, независимые регистры и т.п.),
+     * выполняется обычный запрос.
+     * <p>
+     * Запросы выполняются в пуле потоков клиента, размер которого ограничен количеством соединений.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     */
+    public CompletableFuture<DataServiceResponse> getAsync(DataServiceRequest request, PagingParams pagingParams) {
         if (request == null) {
             throw new IllegalArgumentException("Значение параметра 'request': null");
         }
 
-        WebTarget wt;
-        if (request instanceof AccumulationRegisterVirtualTable) {
-            wt = getAccumulationRegisterVirtualTableWebTarget((AccumulationRegisterVirtualTable) request);
-        } else if (request instanceof AccountingRegisterVirtualTable) {
-            wt = getAccountingRegisterVirtualTableWebTarget((AccountingRegisterVirtualTable) request);
-        } else if (request instanceof InformationRegisterVirtualTable) {
-            wt = getInformationRegisterVirtualTableWebTarget((InformationRegisterVirtualTable) request);
-        } else if (request instanceof CalculationRegisterVirtualTable) {
-            wt = getCalculationRegisterVirtualTableWebTarget((CalculationRegisterVirtualTable) request);
+        final int reqId = request.hashCode();
+
+        String orderBy = null;
+        if (pagingParams != null) {
+            orderBy = getPagingOrder(request);
+            if (orderBy == null) {
+                log.info("[%s] Постраничное получение не поддерживается для '%s'", reqId, request.getResourceName());
+            }
+        }
+
+        CompletableFuture<List<Map<Field, Object>>> result;
+        if (orderBy == null) {
+            result = fetchAsync(getRequestWebTarget(request), request, reqId);
         } else {
-            wt = getWebTarget(request);
+            WebTarget wt = getWebTarget(request).queryParam("$orderby", orderBy);
+            result = fetchPagesAsync(wt, request, reqId, pagingParams, 0, new ArrayList<>());
         }
 
-        final int reqId = request.hashCode();
+        return result.thenApply(records -> {
+            log.info("[%s] Запрос вернул %s записей '%s'", reqId, records.size(), request.getResourceName());
+            return new DataServiceResponse(request, records);
+        });
+    }
+
+    // Запрашивает порцию страниц, начиная с записи skip, и добавляет их к результату.
+    // Если все страницы порции полные, запрашивает следующую порцию.
+    private CompletableFuture<List<Map<Field, Object>>> fetchPagesAsync(WebTarget wt, DataServiceRequest request, int reqId,
+                                                                       PagingParams pagingParams, int skip,
+                                                                       List<Map<Field, Object>> result) {
+        final int pageSize = pagingParams.getPageSize();
+
+        List<CompletableFuture<List<Map<Field, Object>>>> pages = new ArrayList<>();
+        for (int i = 0; i < pagingParams.getMaxParallelPages(); i++) {
+            WebTarget page = wt.queryParam("$top", pageSize).queryParam("$skip", skip + i * pageSize);
+            pages.add(fetchAsync(page, request, reqId));
+        }
+
+        return CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0])).thenCompose(v -> {
+            for (CompletableFuture<List<Map<Field, Object>>> page : pages) {
+                List<Map<Field, Object>> records = page.join();
+                result.addAll(records);
+                if (records.size() < pageSize) {
+                    return CompletableFuture.completedFuture(result);
+                }
+            }
+            return fetchPagesAsync(wt, request, reqId, pagingParams, skip + pages.size() * pageSize, result);
+        });
+    }
+
+    // Выполняет запрос, повторяя его при временных ошибках.
+    private CompletableFuture<List<Map<Field, Object>>> fetchAsync(WebTarget wt, DataServiceRequest request, int reqId) {
+        log.info("[%s] Сформирован запрос: %s", reqId, UriComponent.decode(wt.getUri().toString(), QUERY_PARAM));
 
+        CompletableFuture<List<Map<Field, Object>>> result = new CompletableFuture<>();
+        attemptAsync(wt, request, reqId, 0, result);
+        return result;
+    }
+
+    private void attemptAsync(WebTarget wt, DataServiceRequest request, int reqId, int retry,
+                              CompletableFuture<List<Map<Field, Object>>> result) {
+        if (!circuitBreaker.allowRequest()) {
+            log.error("[%s] Запрос не выполнен: REST-сервис 1С временно недоступен", reqId);
+            result.completeExceptionally(new ClientException("REST-сервис 1С временно недоступен"));
+            return;
+        }
+        throttledAsync(wt, request, reqId).whenComplete((records, ex) -> {
+            if (ex == null) {
+                circuitBreaker.onSuccess();
+                result.complete(records);
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!isRetryable(cause)) {
+                // Сервер ответил, ошибка не связана с его доступностью.
+                circuitBreaker.onSuccess();
+                result.completeExceptionally(cause);
+                return;
+            }
+            circuitBreaker.onFailure();
+            final RetryParams retryParams = connectionParams.getRetryParams();
+            if (retry >= retryParams.getMaxRetries()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            // Пауза выбирается случайно, чтобы повторы одновременных запросов не совпадали по времени.
+            long delay = ThreadLocalRandom.current().nextLong(retryParams.getBackoff(retry + 1).toMillis() + 1);
+            log.warn("[%s] Повтор запроса %s из %s через %s мс", reqId, retry + 1, retryParams.getMaxRetries(), delay);
+            try {
+                retryScheduler.schedule(() -> attemptAsync(wt, request, reqId, retry + 1, result), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    // Выполняет запрос после получения разрешения ограничителя одновременных запросов.
+    private CompletableFuture<List<Map<Field, Object>>> throttledAsync(WebTarget wt, DataServiceRequest request, int reqId) {
+        final long queued = System.nanoTime();
+        CompletableFuture<Void> permit = concurrencyLimiter.acquire();
+        if (!permit.isDone()) {
+            log.info("[%s] Запрос поставлен в очередь. Ожидают: %s, ограничение: %s", reqId,
+                    concurrencyLimiter.getQueueLength(), concurrencyLimiter.getLimit());
+        }
+        return permit.thenCompose(v -> {
+            final long started = System.nanoTime();
+            if (started - queued >= 1_000_000) {
+                log.info("[%s] Время ожидания в очереди: %s мс", reqId, (started - queued) / 1_000_000);
+            }
+            return executeAsync(wt, request, reqId).whenComplete((records, ex) ->
+                    concurrencyLimiter.release(System.nanoTime() - started, isOverload(ex)));
+        });
+    }
+
+    private CompletableFuture<List<Map<Field, Object>>> executeAsync(WebTarget wt, DataServiceRequest request, int reqId) {
         Invocation.Builder ib = wt.request(MediaType.APPLICATION_ATOM_XML)
                 .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_BASIC_USERNAME, connectionParams.getUser())
                 .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_BASIC_PASSWORD, connectionParams.getPassword());
 
-        log.info("[%s] Сформирован запрос: %s", reqId, UriComponent.decode(wt.getUri().toString(), QUERY_PARAM));
+        CompletableFuture<List<Map<Field, Object>>> result = new CompletableFuture<>();
+        ib.rx().get(InputStream.class).whenComplete((entityStream, ex) -> {
+            try {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof ProcessingException || cause instanceof WebApplicationException) {
+                        log.error("[%s] При выполнении запроса к REST-сервису 1C:", reqId, cause);
+                        result.completeExceptionally(new ClientException((Exception) cause));
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                    return;
+                }
+                try (InputStream in = entityStream) {
+                    if (request.isVirtual()) {
+                        result.complete(StaxUtil.parseResult(in, request));
+                    } else {
+                        result.complete(StaxUtil.parseFeed(in, request));
+                    }
+                }
+            } catch (ProcessingException | WebApplicationException | IOException e) {
+                log.error("[%s] При выполнении запроса к REST-сервису 1C:", reqId, e);
+                result.completeExceptionally(new ClientException(e));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                log.debug("[%s] Пул соединений: %s", reqId, connectionManager.getTotalStats());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Признак перегрузки сервера 1С: ошибка 5xx, таймаут или ошибка соединения.
+     */
+    private static boolean isOverload(Throwable ex) {
+        Throwable cause = ex instanceof ClientException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof WebApplicationException) {
+            return ((WebApplicationException) cause).getResponse().getStatus() >= 500;
+        }
+        return isIoFailure(cause);
+    }
 
-        List<Map<Field, Object>> result;
+    /**
+     * Признак временной ошибки, при которой запрос может быть повторён:
+     * 502, 503, 504, таймаут или ошибка соединения.
+     */
+    private static boolean isRetryable(Throwable ex) {
+        Throwable cause = ex instanceof ClientException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof WebApplicationException) {
+            int status = ((WebApplicationException) cause).getResponse().getStatus();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return isIoFailure(cause);
+    }
 
-        try {
-            if (request.isVirtual()) {
-                result = JaxbUtil.parseResult(ib.get(Result.class), request);
-            } else {
-                result = JaxbUtil.parseFeed(ib.get(Feed.class), request);
-            }
-        } catch (ProcessingException | WebApplicationException e) {
-            log.error("[%s] При выполнении запроса к REST-сервису 1C:", reqId, e);
-            throw new ClientException(e);
+    /**
+     * Признак таймаута или ошибки соединения. Ошибка разбора ответа, также передаваемая
+     * в ProcessingException, к ним не относится.
+     */
+    private static boolean isIoFailure(Throwable cause) {
+        if (cause instanceof ResponseFormatException) {
+            return false;
         }
-        log.info("[%s] Запрос вернул %s записей '%s'", reqId, result.size(), request.getResourceName());
+        if (cause instanceof ProcessingException) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException;
+    }
 
-        return new DataServiceResponse(request, result);
+    /**
+     * Возвращает URI запроса к ресурсу REST-сервиса 1С без параметров постраничного получения.
+     * URI однозначно определяет получаемые данные и не зависит от экземпляра клиента.
+     *
+     * @param request Параметры запроса
+     * @return URI запроса
+     */
+    public String getRequestUri(DataServiceRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        return getRequestWebTarget(request).getUri().toString();
+    }
+
+    private WebTarget getRequestWebTarget(DataServiceRequest request) {
+        if (request instanceof AccumulationRegisterVirtualTable) {
+            return getAccumulationRegisterVirtualTableWebTarget((AccumulationRegisterVirtualTable) request);
+        } else if (request instanceof AccountingRegisterVirtualTable) {
+            return getAccountingRegisterVirtualTableWebTarget((AccountingRegisterVirtualTable) request);
+        } else if (request instanceof InformationRegisterVirtualTable) {
+            return getInformationRegisterVirtualTableWebTarget((InformationRegisterVirtualTable) request);
+        } else if (request instanceof CalculationRegisterVirtualTable) {
+            return getCalculationRegisterVirtualTableWebTarget((CalculationRegisterVirtualTable) request);
+        } else {
+            return getWebTarget(request);
+        }
+    }
+
+    /**
+     * Возвращает значение параметра $orderby, однозначно упорядочивающего записи ресурса,
+     * или <code>null</code>, если для ресурса такого порядка нет.
+     */
+    private static String getPagingOrder(DataServiceRequest request) {
+        if (request instanceof Catalog || request instanceof Document || request instanceof ChartOfCharacteristicTypes
+                || request instanceof ChartOfAccounts || request instanceof ChartOfCalculationTypes
+                || request instanceof ExchangePlan || request instanceof BusinessProcess || request instanceof Task) {
+            return "Ref_Key";
+        } else if (request instanceof TabularSection) {
+            return "Ref_Key,LineNumber";
+        } else if (request instanceof InformationRegister && ((InformationRegister) request).isDependent()) {
+            return "Recorder,LineNumber";
+        }
+        return null;
     }
 
     private WebTarget getWebTarget(DataServiceRequest request) {
@@ -464,6 +734,22 @@ public final class DataServiceClient {
      * @throws ClientException
      */
     public MetadataTree metadata() throws ClientException {
+        return JaxbUtil.parseEdmx(metadataSnapshot(null).getEdmx());
+    }
+
+    /**
+     * Запрашивает описание метаданных информационной базы, если оно изменилось по сравнению со снимком.
+     * <p>
+     * Если в снимке сохранены заголовки ETag и Last-Modified, запрос выполняется условно.
+     * Если сервер вернул описание метаданных полностью, оно демаршализуется из потока ответа
+     * с одновременным вычислением контрольной суммы, по которой сравнивается со снимком.
+     *
+     * @param snapshot Ранее сохранённый снимок метаданных или null
+     * @return Снимок актуального описания метаданных. Если метаданные не изменились,
+     * возвращается снимок с прежним описанием метаданных.
+     * @throws ClientException
+     */
+    public MetadataSnapshot metadataSnapshot(MetadataSnapshot snapshot) throws ClientException {
         WebTarget wt = rsClient.target(oDataUrl).path("$metadata");
 
         log.info("Сформирован запрос метаданных конфигурации 1С: %s", wt.getUri());
@@ -471,18 +757,42 @@ public final class DataServiceClient {
         Invocation.Builder ib = wt.request(MediaType.APPLICATION_XML)
                 .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_BASIC_USERNAME, connectionParams.getUser())
                 .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_BASIC_PASSWORD, connectionParams.getPassword());
+        if (snapshot != null && snapshot.getETag() != null) {
+            ib = ib.header(HttpHeaders.IF_NONE_MATCH, snapshot.getETag());
+        }
+        if (snapshot != null && snapshot.getLastModified() != null) {
+            ib = ib.header(HttpHeaders.IF_MODIFIED_SINCE, snapshot.getLastModified());
+        }
 
-        MetadataTree metadata;
+        Response response = null;
         try {
-            metadata = JaxbUtil.parseEdmx(ib.get(EdmxType.class));
+            response = ib.get();
+            if (snapshot != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                log.info("Метаданные конфигурации 1С не изменились");
+                return snapshot;
+            }
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new WebApplicationException(response);
+            }
+            String eTag = response.getHeaderString(HttpHeaders.ETAG);
+            String lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+
+            MetadataSnapshot result = response.readEntity(MetadataSnapshot.class);
+            if (snapshot != null && result.getDigest().equals(snapshot.getDigest())) {
+                log.info("Метаданные конфигурации 1С не изменились");
+                return snapshot.withValidators(eTag, lastModified);
+            }
+            return result.withValidators(eTag, lastModified);
         } catch (ProcessingException | WebApplicationException e) {
             log.error("При загрузке метаданных:", e);
             throw new ClientException(e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
         }
-        return metadata;
     }
 
-
     private String namesListAsString(List<String> names) {
         Iterator<String> it = names.iterator();
         StringBuilder sb = new StringBuilder();
@@ -523,7 +833,9 @@ public final class DataServiceClient {
      * Закрывает связанные ресурсы
      */
     public void close() {
+        retryScheduler.shutdownNow();
         rsClient.close();
+        connectionManager.shutdown();
     }
 
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.client;
+
+/**
+ * Параметры постраничного получения данных ресурса REST-сервиса 1С
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class PagingParams {
+    private final int pageSize;
+    private final int maxParallelPages;
+
+    /**
+     * Создаёт параметры постраничного получения данных
+     *
+     * @param pageSize         Количество записей на одной странице ($top)
+     * @param maxParallelPages Максимальное количество страниц, запрашиваемых одновременно
+     */
+    public PagingParams(int pageSize, int maxParallelPages) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'pageSize': " + pageSize);
+        }
+        if (maxParallelPages <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxParallelPages': " + maxParallelPages);
+        }
+        this.pageSize = pageSize;
+        this.maxParallelPages = maxParallelPages;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getMaxParallelPages() {
+        return maxParallelPages;
+    }
+
+    @Override
+    public String toString() {
+        return "pageSize=" + pageSize + ", maxParallelPages=" + maxParallelPages;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.client;
+
+import java.time.Duration;
+
+/**
+ * Параметры повторного выполнения запросов к REST-сервису 1С при временных ошибках
+ * и размыкания цепи при недоступности информационной базы
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class RetryParams {
+    /**
+     * Максимальное количество повторов запроса по умолчанию
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    /**
+     * Время ожидания перед первым повтором по умолчанию
+     */
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+    /**
+     * Максимальное время ожидания перед повтором по умолчанию
+     */
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+    /**
+     * Количество ошибок подряд, после которого цепь размыкается, по умолчанию
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /**
+     * Время, в течение которого запросы не выполняются после размыкания цепи, по умолчанию
+     */
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(60);
+
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    /**
+     * Создаёт параметры повторного выполнения запросов
+     *
+     * @param maxRetries       Максимальное количество повторов запроса. Ноль - без повторов.
+     * @param initialBackoff   Время ожидания перед первым повтором. Перед каждым следующим повтором
+     *                         удваивается, фактическая пауза выбирается случайно в этих пределах.
+     * @param maxBackoff       Максимальное время ожидания перед повтором
+     * @param failureThreshold Количество ошибок подряд, после которого запросы к информационной базе
+     *                         не выполняются в течение openDuration. Ноль - без размыкания цепи.
+     * @param openDuration     Время, в течение которого запросы не выполняются после размыкания цепи
+     */
+    public RetryParams(int maxRetries, Duration initialBackoff, Duration maxBackoff, int failureThreshold,
+                       Duration openDuration) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxRetries': " + maxRetries);
+        }
+        if (initialBackoff == null || initialBackoff.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'initialBackoff': " + initialBackoff);
+        }
+        if (maxBackoff == null || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxBackoff': " + maxBackoff);
+        }
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("Значение параметра 'failureThreshold': " + failureThreshold);
+        }
+        if (openDuration == null || openDuration.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'openDuration': " + openDuration);
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Возвращает верхнюю границу паузы перед повтором с заданным номером (начиная с единицы).
+     */
+    Duration getBackoff(int retry) {
+        Duration backoff = initialBackoff;
+        for (int i = 1; i < retry && backoff.compareTo(maxBackoff) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff;
+    }
+
+    @Override
+    public String toString() {
+        return "maxRetries=" + maxRetries + ", initialBackoff=" + initialBackoff + ", maxBackoff=" + maxBackoff
+                + ", failureThreshold=" + failureThreshold + ", openDuration=" + openDuration;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.client;
+
+import java.time.Duration;
+
+/**
+ * Параметры ограничения количества одновременных запросов к информационной базе 1С
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class ThrottlingParams {
+    private final int maxConcurrentRequests;
+    private final boolean adaptive;
+    private final Duration latencyThreshold;
+
+    /**
+     * Создаёт параметры ограничения количества одновременных запросов
+     *
+     * @param maxConcurrentRequests Максимальное количество одновременно выполняемых запросов.
+     *                              Остальные запросы ожидают в очереди в порядке поступления.
+     * @param adaptive              Адаптивно уменьшать количество одновременных запросов при ошибках сервера
+     *                              и медленных ответах и увеличивать при нормальной работе (AIMD)
+     * @param latencyThreshold      Время выполнения запроса, при превышении которого сервер считается
+     *                              перегруженным. Ноль - время выполнения не учитывается.
+     */
+    public ThrottlingParams(int maxConcurrentRequests, boolean adaptive, Duration latencyThreshold) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxConcurrentRequests': " + maxConcurrentRequests);
+        }
+        if (latencyThreshold == null || latencyThreshold.isNegative()) {
+            throw new IllegalArgumentException("Значение параметра 'latencyThreshold': " + latencyThreshold);
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.adaptive = adaptive;
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public Duration getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return "maxConcurrentRequests=" + maxConcurrentRequests + ", adaptive=" + adaptive
+                + ", latencyThreshold=" + latencyThreshold;
+    }
+}
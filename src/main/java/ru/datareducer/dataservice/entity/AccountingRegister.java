@@ -42,6 +42,7 @@ public final class AccountingRegister implements DataServiceRequest {
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -88,6 +89,7 @@ public final class AccountingRegister implements DataServiceRequest {
         this.presentationFields = Field.presentations(getFields());
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.fieldsLookup = new HashMap<>();
@@ -232,7 +234,7 @@ public final class AccountingRegister implements DataServiceRequest {
                 && that.fields.equals(fields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -244,7 +246,7 @@ public final class AccountingRegister implements DataServiceRequest {
             result = 31 * result + fields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
@@ -42,8 +42,10 @@ public final class AccountingRegisterBalance implements AccountingRegisterVirtua
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allDimensions;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant period;
     private final Condition accountCondition;
+    private final ConditionKey accountConditionKey;
     private final List<UUID> extraDimensions;
     private final boolean allowedOnly;
 
@@ -109,8 +111,10 @@ public final class AccountingRegisterBalance implements AccountingRegisterVirtua
         this.requestedDimensions = new LinkedHashSet<>(requestedDimensions);
         this.allDimensions = allDimensions;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.period = period;
         this.accountCondition = accountCondition.clone();
+        this.accountConditionKey = ConditionKey.of(this.accountCondition);
         this.extraDimensions = new ArrayList<>(extraDimensions);
         this.allowedOnly = allowedOnly;
 
@@ -284,9 +288,9 @@ public final class AccountingRegisterBalance implements AccountingRegisterVirtua
         return that.name.equals(name)
                 && that.requestedDimensions.equals(requestedDimensions)
                 && that.presentationFields.equals(presentationFields)
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.period, period))
-                && that.accountCondition.equals(accountCondition)
+                && that.accountConditionKey.equals(accountConditionKey)
                 && that.extraDimensions.equals(extraDimensions)
                 && that.allowedOnly == allowedOnly;
     }
@@ -298,9 +302,9 @@ public final class AccountingRegisterBalance implements AccountingRegisterVirtua
             result = 31 * result + name.hashCode();
             result = 31 * result + requestedDimensions.hashCode();
             result = 31 * result + presentationFields.hashCode();
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (period != null ? period.hashCode() : 0);
-            result = 31 * result + accountCondition.hashCode();
+            result = 31 * result + accountConditionKey.hashCode();
             result = 31 * result + extraDimensions.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
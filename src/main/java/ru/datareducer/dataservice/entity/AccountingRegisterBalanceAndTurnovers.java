@@ -44,6 +44,7 @@ public final class AccountingRegisterBalanceAndTurnovers implements AccountingRe
     private final boolean allFields;
     private final LinkedHashSet<Field> presentationFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant startPeriod;
     private final Instant endPeriod;
     private final boolean allowedOnly;
@@ -104,6 +105,7 @@ public final class AccountingRegisterBalanceAndTurnovers implements AccountingRe
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.startPeriod = startPeriod;
         this.endPeriod = endPeriod;
         this.allowedOnly = allowedOnly;
@@ -267,7 +269,7 @@ public final class AccountingRegisterBalanceAndTurnovers implements AccountingRe
         return that.name.equals(name)
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.startPeriod, startPeriod))
                 && (Objects.equals(that.endPeriod, endPeriod))
                 && that.allowedOnly == allowedOnly;
@@ -280,7 +282,7 @@ public final class AccountingRegisterBalanceAndTurnovers implements AccountingRe
             result = 31 * result + name.hashCode();
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (startPeriod != null ? startPeriod.hashCode() : 0);
             result = 31 * result + (endPeriod != null ? endPeriod.hashCode() : 0);
             result = 31 * result + (allowedOnly ? 1 : 0);
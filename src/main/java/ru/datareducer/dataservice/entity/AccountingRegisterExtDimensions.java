@@ -43,6 +43,7 @@ public final class AccountingRegisterExtDimensions implements AccountingRegister
     private final boolean allFields;
     private final LinkedHashSet<Field> presentationFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -85,6 +86,7 @@ public final class AccountingRegisterExtDimensions implements AccountingRegister
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.fieldsLookup = new HashMap<>();
@@ -197,7 +199,7 @@ public final class AccountingRegisterExtDimensions implements AccountingRegister
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -209,7 +211,7 @@ public final class AccountingRegisterExtDimensions implements AccountingRegister
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
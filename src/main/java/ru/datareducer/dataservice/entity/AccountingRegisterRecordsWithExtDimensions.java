@@ -41,6 +41,7 @@ public final class AccountingRegisterRecordsWithExtDimensions implements Account
     private final boolean allFields;
     private final LinkedHashSet<Field> presentationFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant startPeriod;
     private final Instant endPeriod;
     private final int top;
@@ -101,6 +102,7 @@ public final class AccountingRegisterRecordsWithExtDimensions implements Account
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.startPeriod = startPeriod;
         this.endPeriod = endPeriod;
         this.top = top;
@@ -238,7 +240,7 @@ public final class AccountingRegisterRecordsWithExtDimensions implements Account
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.startPeriod, startPeriod))
                 && (Objects.equals(that.endPeriod, endPeriod))
                 && that.orderBy.equals(orderBy)
@@ -254,7 +256,7 @@ public final class AccountingRegisterRecordsWithExtDimensions implements Account
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (startPeriod != null ? startPeriod.hashCode() : 0);
             result = 31 * result + (endPeriod != null ? endPeriod.hashCode() : 0);
             result = 31 * result + orderBy.hashCode();
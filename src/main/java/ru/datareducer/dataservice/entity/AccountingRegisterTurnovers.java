@@ -31,7 +31,7 @@ import java.util.*;
  *
  * @author Kirill Mikhaylov
  */
-public final class AccountingRegisterTurnovers implements AccountingRegisterVirtualTable {
+public final class AccountingRegisterTurnovers implements AccountingRegisterVirtualTable, TurnoversVirtualTable {
     /**
      * Префикс ресурса для обращения к REST-сервису 1С
      */
@@ -44,10 +44,13 @@ public final class AccountingRegisterTurnovers implements AccountingRegisterVirt
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allDimensions;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant startPeriod;
     private final Instant endPeriod;
     private final Condition accountCondition;
+    private final ConditionKey accountConditionKey;
     private final Condition balancedAccountCondition;
+    private final ConditionKey balancedAccountConditionKey;
     private final List<UUID> extraDimensions;
     private final List<UUID> balancedExtraDimensions;
     private final boolean allowedOnly;
@@ -131,10 +134,13 @@ public final class AccountingRegisterTurnovers implements AccountingRegisterVirt
         this.requestedDimensions = new LinkedHashSet<>(requestedDimensions);
         this.allDimensions = allDimensions;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.startPeriod = startPeriod;
         this.endPeriod = endPeriod;
         this.accountCondition = accountCondition.clone();
+        this.accountConditionKey = ConditionKey.of(this.accountCondition);
         this.balancedAccountCondition = balancedAccountCondition.clone();
+        this.balancedAccountConditionKey = ConditionKey.of(this.balancedAccountCondition);
         this.extraDimensions = new ArrayList<>(extraDimensions);
         this.balancedExtraDimensions = new ArrayList<>(balancedExtraDimensions);
         this.allowedOnly = allowedOnly;
@@ -337,6 +343,15 @@ public final class AccountingRegisterTurnovers implements AccountingRegisterVirt
         this.cacheLifetime = cacheLifetime;
     }
 
+    @Override
+    public AccountingRegisterTurnovers withPeriod(Instant startPeriod, Instant endPeriod) {
+        AccountingRegisterTurnovers result = new AccountingRegisterTurnovers(name, new LinkedHashSet<>(properties), new LinkedHashSet<>(resources),
+                new LinkedHashSet<>(requestedDimensions), allDimensions, condition, startPeriod, endPeriod, accountCondition,
+                balancedAccountCondition, extraDimensions, balancedExtraDimensions, allowedOnly);
+        result.setCacheLifetime(cacheLifetime);
+        return result;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) {
@@ -349,11 +364,11 @@ public final class AccountingRegisterTurnovers implements AccountingRegisterVirt
         return that.name.equals(name)
                 && that.requestedDimensions.equals(requestedDimensions)
                 && that.presentationFields.equals(presentationFields)
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.startPeriod, startPeriod))
                 && (Objects.equals(that.endPeriod, endPeriod))
-                && that.accountCondition.equals(accountCondition)
-                && that.balancedAccountCondition.equals(balancedAccountCondition)
+                && that.accountConditionKey.equals(accountConditionKey)
+                && that.balancedAccountConditionKey.equals(balancedAccountConditionKey)
                 && that.extraDimensions.equals(extraDimensions)
                 && that.balancedExtraDimensions.equals(balancedExtraDimensions)
                 && that.allowedOnly == allowedOnly;
@@ -366,11 +381,11 @@ public final class AccountingRegisterTurnovers implements AccountingRegisterVirt
             result = 31 * result + name.hashCode();
             result = 31 * result + requestedDimensions.hashCode();
             result = 31 * result + presentationFields.hashCode();
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (startPeriod != null ? startPeriod.hashCode() : 0);
             result = 31 * result + (endPeriod != null ? endPeriod.hashCode() : 0);
-            result = 31 * result + accountCondition.hashCode();
-            result = 31 * result + balancedAccountCondition.hashCode();
+            result = 31 * result + accountConditionKey.hashCode();
+            result = 31 * result + balancedAccountConditionKey.hashCode();
             result = 31 * result + extraDimensions.hashCode();
             result = 31 * result + balancedExtraDimensions.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
@@ -42,6 +42,7 @@ public final class AccumulationRegisterBalance implements AccumulationRegisterVi
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allDimensions;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant period;
     private final boolean allowedOnly;
 
@@ -96,6 +97,7 @@ public final class AccumulationRegisterBalance implements AccumulationRegisterVi
         this.requestedDimensions = new LinkedHashSet<>(requestedDimensions);
         this.allDimensions = allDimensions;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.period = period;
         this.allowedOnly = allowedOnly;
 
@@ -230,7 +232,7 @@ public final class AccumulationRegisterBalance implements AccumulationRegisterVi
                 // поэтому для сравнения этих запросов значим только набор измерений.
                 && that.requestedDimensions.equals(requestedDimensions)
                 && that.presentationFields.equals(presentationFields)
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.period, period))
                 && that.allowedOnly == allowedOnly;
     }
@@ -242,7 +244,7 @@ public final class AccumulationRegisterBalance implements AccumulationRegisterVi
             result = 31 * result + name.hashCode();
             result = 31 * result + requestedDimensions.hashCode();
             result = 31 * result + presentationFields.hashCode();
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (period != null ? period.hashCode() : 0);
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
@@ -31,7 +31,7 @@ import java.util.*;
  *
  * @author Kirill Mikhaylov
  */
-public final class AccumulationRegisterBalanceAndTurnovers implements AccumulationRegisterVirtualTable {
+public final class AccumulationRegisterBalanceAndTurnovers implements AccumulationRegisterVirtualTable, TurnoversVirtualTable {
     /**
      * Префикс ресурса для обращения к REST-сервису 1С
      */
@@ -44,6 +44,7 @@ public final class AccumulationRegisterBalanceAndTurnovers implements Accumulati
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allDimensions;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant startPeriod;
     private final Instant endPeriod;
     private final boolean allowedOnly;
@@ -106,6 +107,7 @@ public final class AccumulationRegisterBalanceAndTurnovers implements Accumulati
         this.requestedDimensions = new LinkedHashSet<>(requestedDimensions);
         this.allDimensions = allDimensions;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.startPeriod = startPeriod;
         this.endPeriod = endPeriod;
         this.allowedOnly = allowedOnly;
@@ -232,6 +234,14 @@ public final class AccumulationRegisterBalanceAndTurnovers implements Accumulati
         this.cacheLifetime = cacheLifetime;
     }
 
+    @Override
+    public AccumulationRegisterBalanceAndTurnovers withPeriod(Instant startPeriod, Instant endPeriod) {
+        AccumulationRegisterBalanceAndTurnovers result = new AccumulationRegisterBalanceAndTurnovers(name, new LinkedHashSet<>(dimensions), new LinkedHashSet<>(resources),
+                new LinkedHashSet<>(requestedDimensions), allDimensions, condition, startPeriod, endPeriod, allowedOnly);
+        result.setCacheLifetime(cacheLifetime);
+        return result;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) {
@@ -246,7 +256,7 @@ public final class AccumulationRegisterBalanceAndTurnovers implements Accumulati
                 // поэтому для сравнения этих запросов значим только набор измерений.
                 && that.requestedDimensions.equals(requestedDimensions)
                 && that.presentationFields.equals(presentationFields)
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.startPeriod, startPeriod))
                 && (Objects.equals(that.endPeriod, endPeriod))
                 && that.allowedOnly == allowedOnly;
@@ -259,7 +269,7 @@ public final class AccumulationRegisterBalanceAndTurnovers implements Accumulati
             result = 31 * result + name.hashCode();
             result = 31 * result + requestedDimensions.hashCode();
             result = 31 * result + presentationFields.hashCode();
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (startPeriod != null ? startPeriod.hashCode() : 0);
             result = 31 * result + (endPeriod != null ? endPeriod.hashCode() : 0);
             result = 31 * result + (allowedOnly ? 1 : 0);
@@ -40,6 +40,7 @@ public final class BusinessProcess implements DataServiceRequest {
     private final Set<TabularSection> tabularSections;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -75,6 +76,7 @@ public final class BusinessProcess implements DataServiceRequest {
         this.tabularSections = new HashSet<>();
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.fieldsLookup = new HashMap<>();
@@ -186,7 +188,7 @@ public final class BusinessProcess implements DataServiceRequest {
                 && that.fields.equals(fields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -198,7 +200,7 @@ public final class BusinessProcess implements DataServiceRequest {
             result = 31 * result + fields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
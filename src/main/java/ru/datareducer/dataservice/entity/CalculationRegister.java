@@ -39,6 +39,7 @@ public final class CalculationRegister implements DataServiceRequest {
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -81,6 +82,7 @@ public final class CalculationRegister implements DataServiceRequest {
         this.presentationFields = Field.presentations(getFields());
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.recalculations = new HashSet<>();
@@ -204,7 +206,7 @@ public final class CalculationRegister implements DataServiceRequest {
                 && that.fields.equals(fields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -216,7 +218,7 @@ public final class CalculationRegister implements DataServiceRequest {
             result = 31 * result + fields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
@@ -44,6 +44,7 @@ public final class CalculationRegisterActualActionPeriod implements CalculationR
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -86,6 +87,7 @@ public final class CalculationRegisterActualActionPeriod implements CalculationR
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.fieldsLookup = new LinkedHashMap<>();
@@ -199,7 +201,7 @@ public final class CalculationRegisterActualActionPeriod implements CalculationR
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -211,7 +213,7 @@ public final class CalculationRegisterActualActionPeriod implements CalculationR
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
@@ -41,6 +41,7 @@ public final class CalculationRegisterBaseRegister implements CalculationRegiste
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final List<String> mainRegisterDimensions;
     private final List<String> baseRegisterDimensions;
     private final List<String> viewPoints;
@@ -107,6 +108,7 @@ public final class CalculationRegisterBaseRegister implements CalculationRegiste
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.mainRegisterDimensions = new ArrayList<>(mainRegisterDimensions);
         this.baseRegisterDimensions = new ArrayList<>(baseRegisterDimensions);
         this.viewPoints = new ArrayList<>(viewPoints);
@@ -247,7 +249,7 @@ public final class CalculationRegisterBaseRegister implements CalculationRegiste
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.mainRegisterDimensions.equals(mainRegisterDimensions)
                 && that.baseRegisterDimensions.equals(baseRegisterDimensions)
                 && that.viewPoints.equals(viewPoints)
@@ -263,7 +265,7 @@ public final class CalculationRegisterBaseRegister implements CalculationRegiste
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + mainRegisterDimensions.hashCode();
             result = 31 * result + baseRegisterDimensions.hashCode();
             result = 31 * result + viewPoints.hashCode();
@@ -0,0 +1,628 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPLogical;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Таблица данных результата запроса, хранимая по столбцам.
+ * <p>
+ * Значения столбца хранятся в массиве примитивного типа: числа - в массивах long, int и double,
+ * булевы значения - в массиве byte, ссылки (UUID) - в двух массивах long, даты - в секундах и наносекундах
+ * от начала эпохи, строки - индексами в словаре различных значений. Отсутствующие значения отмечаются
+ * битовыми масками. Столбец, значения которого имеют разные типы, хранится как массив объектов.
+ * <p>
+ * Пустые значения числовых и булевых столбцов записываются в массивы как NA языка R,
+ * поэтому столбцы типов double, int и boolean передаются RServe без копирования.
+ * <p>
+ * Для совместимости со строковым представлением таблица предоставляет строки как неизменяемые отображения,
+ * читающие значения из столбцов. Различаются пустое значение поля и отсутствие поля в строке.
+ *
+ * @author Kirill Mikhaylov
+ * @see DataServiceResponse
+ */
+final class ColumnTable {
+    private final int rowCount;
+    private final Field[] fields;
+    private final Column[] columns;
+    private final Map<Field, Integer> index;
+
+    private ColumnTable(int rowCount, Field[] fields, Column[] columns) {
+        this.rowCount = rowCount;
+        this.fields = fields;
+        this.columns = columns;
+        this.index = new HashMap<>(fields.length * 4 / 3 + 1);
+        for (int i = 0; i < fields.length; i++) {
+            index.put(fields[i], i);
+        }
+    }
+
+    /**
+     * Формирует таблицу по строкам. Столбцы следуют в порядке первого появления полей в строках.
+     *
+     * @param rows Строки таблицы данных
+     * @return Таблица данных
+     */
+    static ColumnTable of(List<Map<Field, Object>> rows) {
+        if (rows == null) {
+            throw new IllegalArgumentException("Значение параметра 'rows': null");
+        }
+        if (!(rows instanceof RandomAccess)) {
+            rows = new ArrayList<>(rows);
+        }
+        LinkedHashSet<Field> fieldSet = new LinkedHashSet<>();
+        for (Map<Field, Object> row : rows) {
+            fieldSet.addAll(row.keySet());
+        }
+        Field[] fields = fieldSet.toArray(new Field[0]);
+        Column[] columns = new Column[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = Column.of(rows, fields[i]);
+        }
+        return new ColumnTable(rows.size(), fields, columns);
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    /**
+     * Возвращает столбец таблицы.
+     *
+     * @param field Поле
+     * @return Столбец или <code>null</code>, если поля нет ни в одной строке
+     */
+    Column getColumn(Field field) {
+        Integer i = index.get(field);
+        return i == null ? null : columns[i];
+    }
+
+    /**
+     * Возвращает строки таблицы - неизменяемые представления, читающие значения из столбцов.
+     *
+     * @return Неизменяемый список строк
+     */
+    List<Map<Field, Object>> rows() {
+        return new RowList();
+    }
+
+    /**
+     * Возвращает оценку памяти, занимаемой таблицей, в байтах.
+     *
+     * @return Оценка занимаемой памяти в байтах
+     */
+    long estimateSize() {
+        long result = 48 + 16 + 4L * fields.length * 2;
+        for (Column column : columns) {
+            result += column.estimateSize();
+        }
+        return result;
+    }
+
+    private final class RowList extends AbstractList<Map<Field, Object>> implements RandomAccess {
+        @Override
+        public Map<Field, Object> get(int row) {
+            if (row < 0 || row >= rowCount) {
+                throw new IndexOutOfBoundsException("Строка " + row + " из " + rowCount);
+            }
+            return new Row(row);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+
+    private final class Row extends AbstractMap<Field, Object> {
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer i = index.get(key);
+            return i == null ? null : columns[i].get(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Integer i = index.get(key);
+            return i != null && !columns[i].isAbsent(row);
+        }
+
+        @Override
+        public int size() {
+            int result = 0;
+            for (Column column : columns) {
+                if (!column.isAbsent(row)) {
+                    result++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Set<Entry<Field, Object>> entrySet() {
+            return new AbstractSet<Entry<Field, Object>>() {
+                @Override
+                public Iterator<Entry<Field, Object>> iterator() {
+                    return new Iterator<Entry<Field, Object>>() {
+                        private int next = advance(0);
+
+                        private int advance(int i) {
+                            while (i < columns.length && columns[i].isAbsent(row)) {
+                                i++;
+                            }
+                            return i;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < columns.length;
+                        }
+
+                        @Override
+                        public Entry<Field, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next;
+                            next = advance(i + 1);
+                            return new SimpleImmutableEntry<>(fields[i], columns[i].get(row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Row.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Столбец таблицы данных.
+     */
+    static abstract class Column {
+        final int size;
+        // Строки с пустым значением. null - пустых значений нет.
+        final BitSet nulls;
+        // Строки, в которых поле отсутствует. null - поле есть во всех строках.
+        final BitSet absent;
+
+        Column(int size, BitSet nulls, BitSet absent) {
+            this.size = size;
+            this.nulls = nulls;
+            this.absent = absent;
+        }
+
+        // Выбирает представление столбца по типам значений.
+        static Column of(List<Map<Field, Object>> rows, Field field) {
+            int size = rows.size();
+            BitSet nulls = null;
+            BitSet absent = null;
+            Class<?> type = null;
+            boolean mixed = false;
+            for (int i = 0; i < size; i++) {
+                Map<Field, Object> row = rows.get(i);
+                Object value = row.get(field);
+                if (value == null) {
+                    if (nulls == null) {
+                        nulls = new BitSet(size);
+                    }
+                    nulls.set(i);
+                    if (!row.containsKey(field)) {
+                        if (absent == null) {
+                            absent = new BitSet(size);
+                        }
+                        absent.set(i);
+                    }
+                } else if (type == null) {
+                    type = value.getClass();
+                } else if (type != value.getClass()) {
+                    mixed = true;
+                }
+            }
+            if (mixed || type == null) {
+                return new ObjectColumn(rows, field, nulls, absent);
+            } else if (type == Long.class) {
+                return new LongColumn(rows, field, nulls, absent);
+            } else if (type == Integer.class || type == Short.class) {
+                return new IntColumn(rows, field, nulls, absent, type == Short.class);
+            } else if (type == Double.class) {
+                return new DoubleColumn(rows, field, nulls, absent);
+            } else if (type == Boolean.class) {
+                return new BooleanColumn(rows, field, nulls, absent);
+            } else if (type == UUID.class) {
+                return new GuidColumn(rows, field, nulls, absent);
+            } else if (type == Instant.class) {
+                return new InstantColumn(rows, field, nulls, absent);
+            } else if (type == String.class) {
+                return new StringColumn(rows, field, nulls, absent);
+            }
+            return new ObjectColumn(rows, field, nulls, absent);
+        }
+
+        boolean isNull(int row) {
+            return nulls != null && nulls.get(row);
+        }
+
+        boolean isAbsent(int row) {
+            return absent != null && absent.get(row);
+        }
+
+        Object get(int row) {
+            return isNull(row) ? null : getValue(row);
+        }
+
+        // Возвращает непустое значение.
+        abstract Object getValue(int row);
+
+        abstract long estimateSize();
+
+        long estimateMasksSize() {
+            long result = 0;
+            if (nulls != null) {
+                result += 40 + (size + 63) / 64 * 8;
+            }
+            if (absent != null) {
+                result += 40 + (size + 63) / 64 * 8;
+            }
+            return result;
+        }
+
+        /**
+         * Значения для передачи RServe как вектор double. Пустые значения - NA.
+         * Возвращаемый массив изменять нельзя: он может быть массивом значений столбца.
+         */
+        double[] toDoubleArray() {
+            double[] result = new double[size];
+            for (int i = 0; i < size; i++) {
+                Object value = get(i);
+                result[i] = value == null ? REXPDouble.NA : ((Number) value).doubleValue();
+            }
+            return result;
+        }
+
+        /**
+         * Значения для передачи RServe как вектор integer. Пустые значения - NA.
+         * Возвращаемый массив изменять нельзя: он может быть массивом значений столбца.
+         */
+        int[] toIntArray() {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                Object value = get(i);
+                result[i] = value == null ? REXPInteger.NA : ((Number) value).intValue();
+            }
+            return result;
+        }
+
+        /**
+         * Значения для передачи RServe как вектор logical. Пустые значения - NA.
+         * Возвращаемый массив изменять нельзя: он может быть массивом значений столбца.
+         */
+        byte[] toLogicalArray() {
+            byte[] result = new byte[size];
+            for (int i = 0; i < size; i++) {
+                Object value = get(i);
+                result[i] = value == null ? REXPLogical.NA : (Boolean) value ? REXPLogical.TRUE : REXPLogical.FALSE;
+            }
+            return result;
+        }
+
+        /**
+         * Значения для передачи RServe как вектор character. Пустые значения - null.
+         */
+        String[] toStringArray() {
+            String[] result = new String[size];
+            for (int i = 0; i < size; i++) {
+                Object value = get(i);
+                result[i] = value == null ? null : value.toString();
+            }
+            return result;
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            values = new long[size];
+            for (int i = 0; i < size; i++) {
+                Object value = rows.get(i).get(field);
+                if (value != null) {
+                    values[i] = (Long) value;
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        double[] toDoubleArray() {
+            double[] result = new double[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = isNull(i) ? REXPDouble.NA : values[i];
+            }
+            return result;
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + 16 + 8L * size + estimateMasksSize();
+        }
+    }
+
+    // Значения типов Integer и Short. Пустые значения записаны как NA.
+    private static final class IntColumn extends Column {
+        private final int[] values;
+        private final boolean shorts;
+
+        IntColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent, boolean shorts) {
+            super(rows.size(), nulls, absent);
+            this.shorts = shorts;
+            values = new int[size];
+            for (int i = 0; i < size; i++) {
+                Object value = rows.get(i).get(field);
+                values[i] = value == null ? REXPInteger.NA : ((Number) value).intValue();
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return shorts ? (Object) (short) values[row] : (Object) values[row];
+        }
+
+        @Override
+        int[] toIntArray() {
+            return values;
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + 16 + 4L * size + estimateMasksSize();
+        }
+    }
+
+    // Пустые значения записаны как NA.
+    private static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            values = new double[size];
+            for (int i = 0; i < size; i++) {
+                Object value = rows.get(i).get(field);
+                values[i] = value == null ? REXPDouble.NA : (Double) value;
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        double[] toDoubleArray() {
+            return values;
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + 16 + 8L * size + estimateMasksSize();
+        }
+    }
+
+    // Значения записаны константами REXPLogical: TRUE, FALSE и NA.
+    private static final class BooleanColumn extends Column {
+        private final byte[] values;
+
+        BooleanColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            values = new byte[size];
+            for (int i = 0; i < size; i++) {
+                Object value = rows.get(i).get(field);
+                values[i] = value == null ? REXPLogical.NA : (Boolean) value ? REXPLogical.TRUE : REXPLogical.FALSE;
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row] == REXPLogical.TRUE;
+        }
+
+        @Override
+        byte[] toLogicalArray() {
+            return values;
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + ((16 + size + 7) & ~7) + estimateMasksSize();
+        }
+    }
+
+    private static final class GuidColumn extends Column {
+        private final long[] mostSigBits;
+        private final long[] leastSigBits;
+
+        GuidColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            mostSigBits = new long[size];
+            leastSigBits = new long[size];
+            for (int i = 0; i < size; i++) {
+                UUID value = (UUID) rows.get(i).get(field);
+                if (value != null) {
+                    mostSigBits[i] = value.getMostSignificantBits();
+                    leastSigBits[i] = value.getLeastSignificantBits();
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return new UUID(mostSigBits[row], leastSigBits[row]);
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + 2 * (16 + 8L * size) + estimateMasksSize();
+        }
+    }
+
+    // Секунды и наносекунды от начала эпохи. Массив наносекунд создаётся, только если они есть.
+    private static final class InstantColumn extends Column {
+        private final long[] seconds;
+        private final int[] nanos;
+
+        InstantColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            seconds = new long[size];
+            int[] n = null;
+            for (int i = 0; i < size; i++) {
+                Instant value = (Instant) rows.get(i).get(field);
+                if (value != null) {
+                    seconds[i] = value.getEpochSecond();
+                    if (value.getNano() != 0) {
+                        if (n == null) {
+                            n = new int[size];
+                        }
+                        n[i] = value.getNano();
+                    }
+                }
+            }
+            nanos = n;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Instant.ofEpochSecond(seconds[row], nanos == null ? 0 : nanos[row]);
+        }
+
+        @Override
+        long estimateSize() {
+            return 32 + 16 + 8L * size + (nanos == null ? 0 : 16 + 4L * size) + estimateMasksSize();
+        }
+    }
+
+    // Индексы в словаре различных значений. Пустое значение - индекс -1.
+    private static final class StringColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+
+        StringColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            codes = new int[size];
+            Map<String, Integer> lookup = new HashMap<>();
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                String value = (String) rows.get(i).get(field);
+                if (value == null) {
+                    codes[i] = -1;
+                    continue;
+                }
+                Integer code = lookup.get(value);
+                if (code == null) {
+                    code = values.size();
+                    lookup.put(value, code);
+                    values.add(value);
+                }
+                codes[i] = code;
+            }
+            dictionary = values.toArray(new String[0]);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return dictionary[codes[row]];
+        }
+
+        @Override
+        String[] toStringArray() {
+            String[] result = new String[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = codes[i] < 0 ? null : dictionary[codes[i]];
+            }
+            return result;
+        }
+
+        @Override
+        long estimateSize() {
+            long result = 32 + 16 + 4L * size + 16 + 4L * dictionary.length + estimateMasksSize();
+            for (String value : dictionary) {
+                result += estimateValueSize(value);
+            }
+            return result;
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(List<Map<Field, Object>> rows, Field field, BitSet nulls, BitSet absent) {
+            super(rows.size(), nulls, absent);
+            values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = rows.get(i).get(field);
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        long estimateSize() {
+            long result = 32 + 16 + 4L * size + estimateMasksSize();
+            for (Object value : values) {
+                result += estimateValueSize(value);
+            }
+            return result;
+        }
+    }
+
+    // Оценка рассчитана на 64-битную JVM со сжатыми ссылками.
+    private static long estimateValueSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        } else if (value instanceof String) {
+            // Объект строки и массив символов
+            return 24 + ((16 + 2L * ((String) value).length() + 7) & ~7);
+        } else if (value instanceof UUID || value instanceof Instant) {
+            return 32;
+        } else {
+            return 16;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Вычисление отбора {@link Condition} над строками таблицы данных без обращения к REST-сервису 1С
+ * и проверка того, что один отбор заведомо строже другого.
+ * <p>
+ * Логические операторы применяются с приоритетом OData: NOT, затем AND, затем OR.
+ * Локально вычисляются только сравнения чисел и дат, а также равенство и неравенство
+ * ссылок и булевых значений. Сравнение строк в 1С зависит от правил сортировки СУБД
+ * и не учитывает регистр, поэтому строковые выражения и значения реквизитов составного типа
+ * не вычисляются. Отсутствующее значение реквизита удовлетворяет только оператору "Не равно".
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class ConditionEvaluator {
+    // Корень дерева выражения. null - пустой отбор, которому удовлетворяют все строки.
+    private final Node root;
+
+    private ConditionEvaluator(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Разбирает отбор.
+     *
+     * @param condition Отбор
+     * @return Вычислитель отбора или <code>null</code>, если отбор не удалось разобрать
+     */
+    public static ConditionEvaluator of(Condition condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Значение параметра 'condition': null");
+        }
+        if (condition.isEmpty()) {
+            return new ConditionEvaluator(null);
+        }
+        Node root = parse(condition);
+        return root == null ? null : new ConditionEvaluator(root);
+    }
+
+    /**
+     * Проверяет, что все выражения отбора вычисляются локально.
+     *
+     * @return <code>true</code>, если отбор можно вычислить методом {@link #test(Map)}
+     */
+    public boolean isEvaluable() {
+        return root == null || root.isEvaluable();
+    }
+
+    /**
+     * Вычисляет отбор для строки таблицы данных.
+     *
+     * @param row Строка таблицы данных
+     * @return <code>true</code>, если строка удовлетворяет отбору
+     * @throws IllegalStateException если отбор не вычисляется локально
+     */
+    public boolean test(Map<Field, Object> row) {
+        if (!isEvaluable()) {
+            throw new IllegalStateException("Отбор не вычисляется локально: " + this);
+        }
+        return root == null || root.test(row);
+    }
+
+    /**
+     * Проверяет, что каждая строка, удовлетворяющая этому отбору, удовлетворяет и указанному.
+     * Проверка не полна: <code>false</code> означает, что следование не удалось доказать.
+     *
+     * @param weaker Более слабый отбор
+     * @return <code>true</code>, если следование доказано
+     */
+    public boolean implies(ConditionEvaluator weaker) {
+        if (weaker == null) {
+            throw new IllegalArgumentException("Значение параметра 'weaker': null");
+        }
+        if (weaker.root == null) {
+            return true;
+        }
+        return root != null && implies(root, weaker.root);
+    }
+
+    /**
+     * Возвращает часть этого отбора, которую нужно вычислить над строками, уже удовлетворяющими указанному отбору.
+     * Из этого отбора исключаются условия верхнего уровня (соединённые через AND), совпадающие с условиями
+     * указанного отбора, поэтому, например, строковые условия общей части отборов вычислять не нужно.
+     *
+     * @param weaker Отбор, которому удовлетворяют строки
+     * @return Оставшаяся часть отбора
+     */
+    public ConditionEvaluator residual(ConditionEvaluator weaker) {
+        if (weaker == null) {
+            throw new IllegalArgumentException("Значение параметра 'weaker': null");
+        }
+        if (root == null || weaker.root == null) {
+            return this;
+        }
+        Set<String> satisfied = new HashSet<>();
+        for (Node node : weaker.root.conjuncts()) {
+            satisfied.add(node.form);
+        }
+        List<Node> rest = new ArrayList<>();
+        for (Node node : root.conjuncts()) {
+            if (!satisfied.contains(node.form)) {
+                rest.add(node);
+            }
+        }
+        if (rest.isEmpty()) {
+            return new ConditionEvaluator(null);
+        }
+        return new ConditionEvaluator(conjunction(rest));
+    }
+
+    /**
+     * Возвращает поля, задействованные в отборе.
+     *
+     * @return Набор полей
+     */
+    public Set<Field> getFields() {
+        Set<Field> result = new HashSet<>();
+        if (root != null) {
+            root.addFields(result);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает каноническое представление отбора: вложенные операции AND и OR того же вида раскрыты,
+     * их операнды упорядочены, повторы исключены. Отборы, различающиеся только этим, имеют одинаковое представление.
+     *
+     * @return Каноническое представление отбора
+     */
+    public String getCanonicalForm() {
+        return root == null ? "" : root.form;
+    }
+
+    @Override
+    public String toString() {
+        return getCanonicalForm();
+    }
+
+    // Разбирает последовательность элементов отбора: выражение := И-выражение {OR И-выражение},
+    // И-выражение := операнд {AND операнд}, операнд := {NOT} (простое выражение | вложенный отбор).
+    private static Node parse(Condition condition) {
+        List<FilterElement> elements = condition.getElements();
+        List<Node> disjuncts = new ArrayList<>();
+        List<Node> conjuncts = new ArrayList<>();
+        boolean negate = false;
+        boolean operandExpected = true;
+        for (FilterElement el : elements) {
+            if (operandExpected) {
+                if (el == LogicalOperator.NOT) {
+                    negate = !negate;
+                    continue;
+                }
+                Node operand;
+                if (el instanceof RelationalExpression) {
+                    operand = new Atom((RelationalExpression) el);
+                } else if (el instanceof Condition && !((Condition) el).isEmpty()) {
+                    operand = parse((Condition) el);
+                    if (operand == null) {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+                conjuncts.add(negate ? new Not(operand) : operand);
+                negate = false;
+                operandExpected = false;
+            } else if (el == LogicalOperator.AND) {
+                operandExpected = true;
+            } else if (el == LogicalOperator.OR) {
+                disjuncts.add(conjunction(conjuncts));
+                conjuncts = new ArrayList<>();
+                operandExpected = true;
+            } else {
+                return null;
+            }
+        }
+        if (operandExpected) {
+            return null;
+        }
+        disjuncts.add(conjunction(conjuncts));
+        return disjunction(disjuncts);
+    }
+
+    // Операнды AND и OR приводятся к каноническому виду: вложенные операции того же вида раскрываются,
+    // операнды упорядочиваются по представлению, повторы исключаются.
+    private static Node conjunction(List<Node> operands) {
+        List<Node> children = normalize(operands, And.class);
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    private static Node disjunction(List<Node> operands) {
+        List<Node> children = normalize(operands, Or.class);
+        return children.size() == 1 ? children.get(0) : new Or(children);
+    }
+
+    private static List<Node> normalize(List<Node> operands, Class<? extends Junction> type) {
+        TreeMap<String, Node> result = new TreeMap<>();
+        for (Node operand : operands) {
+            if (type.isInstance(operand)) {
+                for (Node child : ((Junction) operand).children) {
+                    result.putIfAbsent(child.form, child);
+                }
+            } else {
+                result.putIfAbsent(operand.form, operand);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    // Сначала применяются точные правила (A => B1 и B2; A1 или A2 => B), затем достаточные.
+    private static boolean implies(Node a, Node b) {
+        if (a.form.equals(b.form)) {
+            return true;
+        }
+        if (b instanceof And) {
+            for (Node child : ((And) b).children) {
+                if (!implies(a, child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof Or) {
+            for (Node child : ((Or) a).children) {
+                if (!implies(child, b)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof And) {
+            for (Node child : ((And) a).children) {
+                if (implies(child, b)) {
+                    return true;
+                }
+            }
+        }
+        if (b instanceof Or) {
+            for (Node child : ((Or) b).children) {
+                if (implies(a, child)) {
+                    return true;
+                }
+            }
+        }
+        if (a instanceof Atom && b instanceof Atom) {
+            return ((Atom) a).implies((Atom) b);
+        }
+        return false;
+    }
+
+    private static abstract class Node {
+        // Каноническое представление узла. Узлы с одинаковым представлением равносильны.
+        final String form;
+
+        Node(String form) {
+            this.form = form;
+        }
+
+        abstract boolean isEvaluable();
+
+        abstract boolean test(Map<Field, Object> row);
+
+        abstract void addFields(Set<Field> fields);
+
+        List<Node> conjuncts() {
+            return Collections.singletonList(this);
+        }
+    }
+
+    private static abstract class Junction extends Node {
+        final List<Node> children;
+
+        Junction(List<Node> children, String operator) {
+            super(join(children, operator));
+            this.children = children;
+        }
+
+        @Override
+        void addFields(Set<Field> fields) {
+            children.forEach(c -> c.addFields(fields));
+        }
+
+        @Override
+        boolean isEvaluable() {
+            return children.stream().allMatch(Node::isEvaluable);
+        }
+    }
+
+    private static final class And extends Junction {
+        And(List<Node> children) {
+            super(children, " and ");
+        }
+
+        @Override
+        boolean test(Map<Field, Object> row) {
+            return children.stream().allMatch(c -> c.test(row));
+        }
+
+        @Override
+        List<Node> conjuncts() {
+            return children;
+        }
+    }
+
+    private static final class Or extends Junction {
+        Or(List<Node> children) {
+            super(children, " or ");
+        }
+
+        @Override
+        boolean test(Map<Field, Object> row) {
+            return children.stream().anyMatch(c -> c.test(row));
+        }
+    }
+
+    // Отрицание сравнивается с другими узлами только по представлению: "not (a gt 1)" и "a le 1"
+    // различаются для отсутствующих значений.
+    private static final class Not extends Node {
+        final Node child;
+
+        Not(Node child) {
+            super("not (" + child.form + ")");
+            this.child = child;
+        }
+
+        @Override
+        boolean isEvaluable() {
+            return child.isEvaluable();
+        }
+
+        @Override
+        boolean test(Map<Field, Object> row) {
+            return !child.test(row);
+        }
+
+        @Override
+        void addFields(Set<Field> fields) {
+            child.addFields(fields);
+        }
+    }
+
+    private static final class Atom extends Node {
+        final Field field;
+        final RelationalOperator operator;
+        final Object value;
+        // Допустимо сравнение на больше/меньше. Иначе - только равенство и неравенство.
+        final boolean ordered;
+        final boolean evaluable;
+
+        Atom(RelationalExpression expression) {
+            super(expression.getHttpForm());
+            this.field = expression.getField();
+            this.operator = expression.getOperator();
+            this.value = expression.getValue();
+            this.ordered = isOrdered(field, value);
+            this.evaluable = isEquatable(field, value)
+                    && (ordered || operator == RelationalOperator.EQUAL || operator == RelationalOperator.NOT_EQUAL);
+        }
+
+        private static boolean isOrdered(Field field, Object value) {
+            if (field.isComposite()) {
+                return false;
+            }
+            switch (field.getFieldType()) {
+                case SHORT:
+                case INTEGER:
+                case LONG:
+                case DOUBLE:
+                case DATETIME:
+                    return value instanceof Number || value instanceof Instant;
+                default:
+                    return false;
+            }
+        }
+
+        private static boolean isEquatable(Field field, Object value) {
+            if (field.isComposite()) {
+                return false;
+            }
+            switch (field.getFieldType()) {
+                case GUID:
+                    return value instanceof UUID;
+                case BOOLEAN:
+                    return value instanceof Boolean;
+                default:
+                    return isOrdered(field, value);
+            }
+        }
+
+        @Override
+        boolean isEvaluable() {
+            return evaluable;
+        }
+
+        @Override
+        boolean test(Map<Field, Object> row) {
+            Object v = row.get(field);
+            if (v == null || v.getClass() != value.getClass()) {
+                return operator == RelationalOperator.NOT_EQUAL;
+            }
+            switch (operator) {
+                case EQUAL:
+                    return v.equals(value);
+                case NOT_EQUAL:
+                    return !v.equals(value);
+                default:
+                    return matches(operator, compare(v, value));
+            }
+        }
+
+        @Override
+        void addFields(Set<Field> fields) {
+            fields.add(field);
+        }
+
+        // Проверяет, что каждое значение, удовлетворяющее этому выражению, удовлетворяет и указанному.
+        boolean implies(Atom that) {
+            if (!evaluable || !that.evaluable || !field.equals(that.field) || value.getClass() != that.value.getClass()) {
+                return false;
+            }
+            if (operator == RelationalOperator.EQUAL) {
+                // Значение известно: достаточно вычислить второе выражение
+                return that.test(Collections.singletonMap(field, value));
+            }
+            if (operator == RelationalOperator.NOT_EQUAL) {
+                return that.operator == RelationalOperator.NOT_EQUAL && value.equals(that.value);
+            }
+            // Этот оператор - сравнение на больше/меньше, значения упорядочены
+            int c = compare(value, that.value);
+            boolean lower = operator == RelationalOperator.GREATER || operator == RelationalOperator.GREATER_OR_EQUAL;
+            boolean strict = operator == RelationalOperator.GREATER || operator == RelationalOperator.LESS;
+            switch (that.operator) {
+                case NOT_EQUAL:
+                    // Интервал не содержит исключаемого значения
+                    return lower ? c > 0 || c == 0 && strict : c < 0 || c == 0 && strict;
+                case GREATER:
+                    return lower && (c > 0 || c == 0 && strict);
+                case GREATER_OR_EQUAL:
+                    return lower && c >= 0;
+                case LESS:
+                    return !lower && (c < 0 || c == 0 && strict);
+                case LESS_OR_EQUAL:
+                    return !lower && c <= 0;
+                default:
+                    return false;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compare(Object a, Object b) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+
+        private static boolean matches(RelationalOperator operator, int c) {
+            switch (operator) {
+                case GREATER:
+                    return c > 0;
+                case GREATER_OR_EQUAL:
+                    return c >= 0;
+                case LESS:
+                    return c < 0;
+                case LESS_OR_EQUAL:
+                    return c <= 0;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static String join(List<Node> nodes, String operator) {
+        StringJoiner joiner = new StringJoiner(operator);
+        for (Node node : nodes) {
+            joiner.add(node instanceof Atom || node instanceof Not ? node.form : "(" + node.form + ")");
+        }
+        return joiner.toString();
+    }
+}
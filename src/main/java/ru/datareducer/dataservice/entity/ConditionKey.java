@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+/**
+ * Неизменяемый ключ отбора, по которому сравниваются запросы к REST-сервису 1С, в том числе ключи кэша.
+ * <p>
+ * Ключ строится по каноническому представлению отбора {@link ConditionEvaluator#getCanonicalForm()},
+ * поэтому отборы, различающиеся только порядком операндов AND и OR, имеют равные ключи.
+ * Представление и хэш-код вычисляются один раз при создании ключа.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class ConditionKey {
+    private final String form;
+    private final int hashCode;
+
+    private ConditionKey(String form) {
+        this.form = form;
+        this.hashCode = form.hashCode();
+    }
+
+    /**
+     * Создаёт ключ отбора. Последующие изменения отбора на ключ не влияют.
+     *
+     * @param condition Отбор
+     * @return Ключ отбора
+     */
+    public static ConditionKey of(Condition condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Значение параметра 'condition': null");
+        }
+        ConditionEvaluator evaluator = ConditionEvaluator.of(condition);
+        // Отбор, который не удалось разобрать, сравнивается по HTTP-представлению.
+        // Префикс исключает совпадение с каноническим представлением другого отбора.
+        return new ConditionKey(evaluator != null ? evaluator.getCanonicalForm() : "#" + condition.getHttpForm());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof ConditionKey)) {
+            return false;
+        }
+        ConditionKey that = (ConditionKey) o;
+        return that.hashCode == hashCode && that.form.equals(form);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return form;
+    }
+}
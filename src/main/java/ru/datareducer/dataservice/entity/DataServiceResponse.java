@@ -22,6 +22,7 @@ package ru.datareducer.dataservice.entity;
 import org.rosuda.REngine.*;
 import ru.datareducer.model.ReducerRuntimeException;
 
+import java.time.Instant;
 import java.util.*;
 
 /**
@@ -31,124 +32,91 @@ import java.util.*;
  */
 public final class DataServiceResponse {
     private final DataServiceRequest request;
-    private final List<Map<Field, Object>> dataTable;
+    private final ColumnTable dataTable;
+    // Момент получения данных от REST-сервиса 1С
+    private final Instant time;
 
-    private REXP dataFrame;
     private LinkedHashSet<Field> dataTableFields;
+    // Оценка занимаемой памяти в байтах. -1 - ещё не вычислялась.
+    private volatile long estimatedSize = -1;
 
     public DataServiceResponse(DataServiceRequest request, List<Map<Field, Object>> dataTable) {
+        this(request, dataTable, Instant.now());
+    }
+
+    /**
+     * Создаёт результат запроса, данные которого получены в заданный момент, например из хранилища кэша.
+     * Строки таблицы данных преобразуются в столбцы и далее не используются.
+     *
+     * @param request   Параметры запроса
+     * @param dataTable Таблица данных
+     * @param time      Момент получения данных от REST-сервиса 1С
+     */
+    public DataServiceResponse(DataServiceRequest request, List<Map<Field, Object>> dataTable, Instant time) {
         if (request == null) {
             throw new IllegalArgumentException("Значение параметра 'request': null");
         }
         if (dataTable == null) {
             throw new IllegalArgumentException("Значение параметра 'dataTable': null");
         }
+        if (time == null) {
+            throw new IllegalArgumentException("Значение параметра 'time': null");
+        }
         this.request = request;
-        this.dataTable = new ArrayList<>(dataTable);
+        this.dataTable = ColumnTable.of(dataTable);
+        this.time = time;
     }
 
+    /**
+     * Возвращает строки таблицы данных. Строки - неизменяемые представления, читающие значения
+     * из столбцов таблицы, поэтому создаются при обращении и не занимают памяти постоянно.
+     *
+     * @return Неизменяемый список строк таблицы данных
+     */
     public List<Map<Field, Object>> asDataTable() {
-        return new ArrayList<>(dataTable);
+        return dataTable.rows();
     }
 
     /**
-     * Возвращает таблицу данных для передачи RServe
+     * Возвращает таблицу данных для передачи RServe.
+     * <p>
+     * Столбцы типов double, integer и logical передаются без копирования значений.
+     * Таблица не сохраняется в результате: повторное формирование дешевле хранения копии данных.
      *
      * @return Таблица данных
      */
     public REXP asDataFrame() {
-        if (dataFrame != null) {
-            return dataFrame;
-        }
         // Список имён столбцов
         List<String> colNames = new ArrayList<>();
-        // Столбцы таблицы
-        Map<Field, Object> cols = new LinkedHashMap<>();
-        Set<Field> fields = getDataTableFields();
-        for (Field field : fields) {
-            colNames.add(field.getName());
-            int l = dataTable.size();
-            switch (field.getFieldType()) {
-                case LONG:
-                    cols.put(field, new double[l]);
-                    break;
-                case SHORT:
-                    cols.put(field, new int[l]);
-                    break;
-                case DOUBLE:
-                    cols.put(field, new double[l]);
-                    break;
-                case BOOLEAN:
-                    cols.put(field, new boolean[l]);
-                    break;
-                default:
-                    cols.put(field, new String[l]);
-            }
-        }
-        // Строки таблицы
-        for (int rowNum = 0; rowNum < dataTable.size(); rowNum++) {
-            Map<Field, Object> row = dataTable.get(rowNum);
-            for (Map.Entry<Field, Object> entry : row.entrySet()) {
-                Field field = entry.getKey();
-                // Набор полей фактического запроса к ресурсу может отличаться от исходного набора.
-                if (!fields.contains(field)) {
-                    continue;
-                }
-                Object value = entry.getValue();
-                switch (field.getFieldType()) {
-                    case GUID:
-                        ((String[]) cols.get(field))[rowNum] = value == null ? null : value.toString();
-                        break;
-                    case LONG:
-                        ((double[]) cols.get(field))[rowNum] = (long) value;
-                        break;
-                    case SHORT:
-                        ((int[]) cols.get(field))[rowNum] = (short) value;
-                        break;
-                    case DOUBLE:
-                        ((double[]) cols.get(field))[rowNum] = (double) value;
-                        break;
-                    case BOOLEAN:
-                        ((boolean[]) cols.get(field))[rowNum] = (boolean) value;
-                        break;
-                    case DATETIME:
-                        ((String[]) cols.get(field))[rowNum] = value == null ? null : String.valueOf(value);
-                        break;
-                    default:
-                        ((String[]) cols.get(field))[rowNum] = value == null ? null : (String) value;
-                }
-            }
-        }
         // Столбцы типа REXP
         List<REXP> rCols = new ArrayList<>();
-        for (Map.Entry<Field, Object> entry : cols.entrySet()) {
-            Field field = entry.getKey();
-            Object value = entry.getValue();
+        int l = dataTable.size();
+        for (Field field : getDataTableFields()) {
+            colNames.add(field.getName());
+            // Набор полей фактического запроса к ресурсу может отличаться от исходного набора.
+            ColumnTable.Column column = dataTable.getColumn(field);
             switch (field.getFieldType()) {
                 case LONG:
-                    rCols.add(new REXPDouble((double[]) value));
+                case DOUBLE:
+                    rCols.add(new REXPDouble(column == null ? new double[l] : column.toDoubleArray()));
                     break;
                 case SHORT:
-                    rCols.add(new REXPInteger((int[]) value));
-                    break;
-                case DOUBLE:
-                    rCols.add(new REXPDouble((double[]) value));
+                case INTEGER:
+                    rCols.add(new REXPInteger(column == null ? new int[l] : column.toIntArray()));
                     break;
                 case BOOLEAN:
-                    rCols.add(new REXPLogical((boolean[]) value));
+                    rCols.add(column == null ? new REXPLogical(new boolean[l]) : new REXPLogical(column.toLogicalArray()));
                     break;
                 default:
-                    rCols.add(new REXPString((String[]) value));
+                    rCols.add(new REXPString(column == null ? new String[l] : column.toStringArray()));
             }
         }
         RList data = new RList(rCols, colNames);
         try {
-            dataFrame = REXP.createDataFrame(data);
+            return REXP.createDataFrame(data);
         } catch (REXPMismatchException e) {
             throw new ReducerRuntimeException(e);
         }
-
-        return dataFrame;
     }
 
     /**
@@ -194,4 +162,28 @@ public final class DataServiceResponse {
         return dataTable.size();
     }
 
+    /**
+     * Возвращает момент получения данных от REST-сервиса 1С.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Возвращает оценку памяти, занимаемой результатом запроса, в байтах.
+     * <p>
+     * Учитываются массивы значений столбцов, битовые маски пустых значений и словари строк.
+     * Оценка рассчитана на 64-битную JVM со сжатыми ссылками.
+     *
+     * @return Оценка занимаемой памяти в байтах
+     */
+    public long estimateSize() {
+        long result = estimatedSize;
+        if (result < 0) {
+            result = 64 + dataTable.estimateSize();
+            estimatedSize = result;
+        }
+        return result;
+    }
+
 }
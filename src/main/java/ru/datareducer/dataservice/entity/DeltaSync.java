@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.util.*;
+
+import static ru.datareducer.dataservice.entity.VersionedObject.DATA_VERSION_FIELD_NAME;
+import static ru.datareducer.dataservice.entity.VersionedObject.REF_FIELD_NAME;
+
+/**
+ * Синхронизация изменений объектов ссылочного типа по версиям данных.
+ * <p>
+ * Вместо повторного получения всех объектов запрашиваются только ссылки и версии данных
+ * ({@link #versionsRequest(VersionedObject)}). Объекты, версия которых изменилась, и новые объекты
+ * запрашиваются по ссылкам ({@link #changesRequests(VersionedObject, Collection)}), а удалённые
+ * исключаются из сохранённой копии данных ({@link Replica#merge(Map, List)}).
+ * Копия хранится в кэше в виде результата запроса с версиями данных ({@link Replica#store(VersionedObject)}).
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class DeltaSync {
+    // Максимальное количество ссылок в отборе одного запроса. Ограничивает длину адреса запроса.
+    static final int MAX_REFS_PER_REQUEST = 40;
+
+    private static final Field REF_FIELD = new Field(REF_FIELD_NAME, FieldType.GUID);
+    private static final Field DATA_VERSION_FIELD = new Field(DATA_VERSION_FIELD_NAME, FieldType.STRING);
+    // Служебное поле версии данных в сохранённой копии. Отличается от поля DataVersion,
+    // которое может быть среди полей исходного запроса.
+    private static final Field REPLICA_VERSION_FIELD = new Field("#" + DATA_VERSION_FIELD_NAME, FieldType.STRING);
+
+    private DeltaSync() {
+    }
+
+    /**
+     * Формирует запрос ссылок и версий данных объектов с тем же отбором, что и исходный запрос.
+     *
+     * @param request Исходный запрос.
+     * @return Запрос ссылок и версий данных.
+     */
+    public static VersionedObject versionsRequest(VersionedObject request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        LinkedHashSet<Field> fields = new LinkedHashSet<>();
+        fields.add(REF_FIELD);
+        fields.add(DATA_VERSION_FIELD);
+        return request.withSelection(fields, false, request.getCondition());
+    }
+
+    /**
+     * Формирует запрос всех объектов исходного запроса, в котором обязательно запрашивается ссылка на объект.
+     *
+     * @param request Исходный запрос.
+     * @return Запрос объектов.
+     */
+    public static VersionedObject fullRequest(VersionedObject request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        // Если поля перечислены явно, добавляем к ним ссылку. Иначе ссылка получается вместе со всеми полями.
+        if (!request.isAllFields() || request.getFields().contains(REF_FIELD)) {
+            return request;
+        }
+        return request.withSelection(withRefField(request), false, request.getCondition());
+    }
+
+    /**
+     * Формирует запросы объектов по ссылкам. Ссылки разбиваются на порции,
+     * чтобы адрес запроса не превышал допустимую длину.
+     *
+     * @param request Исходный запрос.
+     * @param refs    Ссылки на объекты.
+     * @return Запросы объектов по порциям ссылок.
+     */
+    public static List<VersionedObject> changesRequests(VersionedObject request, Collection<UUID> refs) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (refs == null) {
+            throw new IllegalArgumentException("Значение параметра 'refs': null");
+        }
+        // Объекты уже отобраны запросом версий, поэтому исходный отбор заменяется отбором по ссылкам.
+        boolean allFields = !request.isAllFields();
+        LinkedHashSet<Field> fields = allFields ? request.getFields() : withRefField(request);
+        List<VersionedObject> result = new ArrayList<>();
+        Condition condition = new Condition();
+        for (UUID ref : refs) {
+            if (condition.size() >= MAX_REFS_PER_REQUEST * 2 - 1) {
+                result.add(request.withSelection(fields, allFields, condition));
+                condition = new Condition();
+            }
+            if (!condition.isEmpty()) {
+                condition.append(LogicalOperator.OR);
+            }
+            condition.append(new RelationalExpression(REF_FIELD, RelationalOperator.EQUAL, ref, null));
+        }
+        if (!condition.isEmpty()) {
+            result.add(request.withSelection(fields, allFields, condition));
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает версии данных объектов из результата запроса версий.
+     *
+     * @param response Результат запроса {@link #versionsRequest(VersionedObject)}.
+     * @return Версии данных по ссылкам в порядке следования объектов.
+     */
+    public static LinkedHashMap<UUID, String> versions(DataServiceResponse response) {
+        if (response == null) {
+            throw new IllegalArgumentException("Значение параметра 'response': null");
+        }
+        LinkedHashMap<UUID, String> result = new LinkedHashMap<>();
+        for (Map<Field, Object> record : response.asDataTable()) {
+            result.put((UUID) record.get(REF_FIELD), (String) record.get(DATA_VERSION_FIELD));
+        }
+        return result;
+    }
+
+    private static LinkedHashSet<Field> withRefField(VersionedObject request) {
+        LinkedHashSet<Field> fields = new LinkedHashSet<>();
+        fields.add(REF_FIELD);
+        fields.addAll(request.getFields());
+        return fields;
+    }
+
+    /**
+     * Сохранённая копия данных ресурса: объекты и их версии данных на момент последней синхронизации.
+     * Копия не изменяется, синхронизация создаёт новую копию.
+     */
+    public static final class Replica {
+        private final LinkedHashMap<UUID, String> versions;
+        private final Map<UUID, Map<Field, Object>> records;
+
+        private Replica(LinkedHashMap<UUID, String> versions, Map<UUID, Map<Field, Object>> records) {
+            this.versions = versions;
+            this.records = records;
+        }
+
+        /**
+         * Создаёт копию данных по результату запроса всех объектов.
+         *
+         * @param versions Версии данных, полученные до запроса объектов.
+         * @param response Результат запроса {@link #fullRequest(VersionedObject)}.
+         * @return Копия данных.
+         */
+        public static Replica of(LinkedHashMap<UUID, String> versions, DataServiceResponse response) {
+            if (versions == null) {
+                throw new IllegalArgumentException("Значение параметра 'versions': null");
+            }
+            if (response == null) {
+                throw new IllegalArgumentException("Значение параметра 'response': null");
+            }
+            return new Replica(new LinkedHashMap<>(), new HashMap<>()).merge(versions, Collections.singletonList(response));
+        }
+
+        /**
+         * Возвращает ссылки на объекты, которые появились или версия данных которых изменилась.
+         *
+         * @param versions Текущие версии данных.
+         * @return Ссылки на новые и изменённые объекты.
+         */
+        public List<UUID> changed(Map<UUID, String> versions) {
+            List<UUID> result = new ArrayList<>();
+            for (Map.Entry<UUID, String> entry : versions.entrySet()) {
+                if (!Objects.equals(this.versions.get(entry.getKey()), entry.getValue())) {
+                    result.add(entry.getKey());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Создаёт новую копию данных: объекты, отсутствующие среди текущих версий, исключаются,
+         * новые и изменённые объекты заменяются полученными.
+         * <p>
+         * Объект, версия которого получена, но сам объект - нет (например, удалён между запросами),
+         * в копию не попадает и будет запрошен при следующей синхронизации.
+         *
+         * @param versions Текущие версии данных в порядке следования объектов.
+         * @param changes  Результаты запросов новых и изменённых объектов.
+         * @return Новая копия данных.
+         */
+        public Replica merge(Map<UUID, String> versions, List<DataServiceResponse> changes) {
+            if (versions == null) {
+                throw new IllegalArgumentException("Значение параметра 'versions': null");
+            }
+            if (changes == null) {
+                throw new IllegalArgumentException("Значение параметра 'changes': null");
+            }
+            Map<UUID, Map<Field, Object>> changed = new HashMap<>();
+            for (DataServiceResponse response : changes) {
+                for (Map<Field, Object> record : response.asDataTable()) {
+                    changed.put((UUID) record.get(REF_FIELD), record);
+                }
+            }
+            LinkedHashMap<UUID, String> resultVersions = new LinkedHashMap<>();
+            Map<UUID, Map<Field, Object>> resultRecords = new HashMap<>();
+            for (Map.Entry<UUID, String> entry : versions.entrySet()) {
+                UUID ref = entry.getKey();
+                Map<Field, Object> record = changed.get(ref);
+                if (record == null && Objects.equals(this.versions.get(ref), entry.getValue())) {
+                    record = records.get(ref);
+                }
+                if (record != null) {
+                    resultVersions.put(ref, entry.getValue());
+                    resultRecords.put(ref, record);
+                }
+            }
+            return new Replica(resultVersions, resultRecords);
+        }
+
+        /**
+         * Восстанавливает копию данных, сохранённую методом {@link #store(VersionedObject)}.
+         *
+         * @param stored Сохранённая копия данных.
+         * @return Копия данных.
+         */
+        public static Replica restore(DataServiceResponse stored) {
+            if (stored == null) {
+                throw new IllegalArgumentException("Значение параметра 'stored': null");
+            }
+            LinkedHashMap<UUID, String> versions = new LinkedHashMap<>();
+            Map<UUID, Map<Field, Object>> records = new HashMap<>();
+            for (Map<Field, Object> record : stored.asDataTable()) {
+                UUID ref = (UUID) record.get(REF_FIELD);
+                versions.put(ref, (String) record.get(REPLICA_VERSION_FIELD));
+                records.put(ref, record);
+            }
+            return new Replica(versions, records);
+        }
+
+        /**
+         * Возвращает копию данных для хранения в кэше: результат исходного запроса,
+         * в записях которого сохранены версии данных объектов.
+         *
+         * @param request Исходный запрос.
+         * @return Сохраняемая копия данных.
+         */
+        public DataServiceResponse store(VersionedObject request) {
+            List<Map<Field, Object>> dataTable = new ArrayList<>(versions.size());
+            for (Map.Entry<UUID, String> entry : versions.entrySet()) {
+                Map<Field, Object> record = new LinkedHashMap<>(records.get(entry.getKey()));
+                record.put(REPLICA_VERSION_FIELD, entry.getValue());
+                dataTable.add(record);
+            }
+            return new DataServiceResponse(request, dataTable);
+        }
+
+        /**
+         * Возвращает данные копии как результат исходного запроса.
+         *
+         * @param request Исходный запрос.
+         * @return Результат запроса.
+         */
+        public DataServiceResponse toResponse(VersionedObject request) {
+            List<Map<Field, Object>> dataTable = new ArrayList<>(versions.size());
+            for (UUID ref : versions.keySet()) {
+                Map<Field, Object> record = records.get(ref);
+                if (record.containsKey(REPLICA_VERSION_FIELD)) {
+                    record = new LinkedHashMap<>(record);
+                    record.remove(REPLICA_VERSION_FIELD);
+                }
+                dataTable.add(record);
+            }
+            return new DataServiceResponse(request, dataTable);
+        }
+
+        /**
+         * Возвращает количество объектов в копии.
+         */
+        public int size() {
+            return versions.size();
+        }
+    }
+}
@@ -28,7 +28,7 @@ import java.util.*;
  *
  * @author Kirill Mikhaylov
  */
-public final class Document implements DataServiceRequest {
+public final class Document implements VersionedObject {
     /**
      * Префикс ресурса для обращения к REST-сервису 1С
      */
@@ -40,6 +40,7 @@ public final class Document implements DataServiceRequest {
     private final Set<TabularSection> tabularSections;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final boolean allowedOnly;
 
     private final Map<String, Field> fieldsLookup;
@@ -75,6 +76,7 @@ public final class Document implements DataServiceRequest {
         this.tabularSections = new HashSet<>();
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.allowedOnly = allowedOnly;
 
         this.fieldsLookup = new HashMap<>();
@@ -173,6 +175,13 @@ public final class Document implements DataServiceRequest {
         this.cacheLifetime = cacheLifetime;
     }
 
+    @Override
+    public Document withSelection(LinkedHashSet<Field> fields, boolean allFields, Condition condition) {
+        Document result = new Document(name, fields, allFields, condition, allowedOnly);
+        result.setCacheLifetime(cacheLifetime);
+        return result;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) {
@@ -186,7 +195,7 @@ public final class Document implements DataServiceRequest {
                 && that.fields.equals(fields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && that.allowedOnly == allowedOnly;
     }
 
@@ -198,7 +207,7 @@ public final class Document implements DataServiceRequest {
             result = 31 * result + fields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
         }
@@ -44,6 +44,7 @@ public final class InformationRegisterSliceLast implements InformationRegisterVi
     private final LinkedHashSet<Field> presentationFields;
     private final boolean allFields;
     private final Condition condition;
+    private final ConditionKey conditionKey;
     private final Instant period;
     private final boolean allowedOnly;
 
@@ -88,6 +89,7 @@ public final class InformationRegisterSliceLast implements InformationRegisterVi
         this.requestedFields = new LinkedHashSet<>(requestedFields);
         this.allFields = allFields;
         this.condition = condition.clone();
+        this.conditionKey = ConditionKey.of(this.condition);
         this.period = period;
         this.allowedOnly = allowedOnly;
 
@@ -217,7 +219,7 @@ public final class InformationRegisterSliceLast implements InformationRegisterVi
                 && that.requestedFields.equals(requestedFields)
                 && that.presentationFields.equals(presentationFields)
                 && that.allFields == allFields
-                && that.condition.equals(condition)
+                && that.conditionKey.equals(conditionKey)
                 && (Objects.equals(that.period, period))
                 && that.allowedOnly == allowedOnly;
     }
@@ -230,7 +232,7 @@ public final class InformationRegisterSliceLast implements InformationRegisterVi
             result = 31 * result + requestedFields.hashCode();
             result = 31 * result + presentationFields.hashCode();
             result = 31 * result + (allFields ? 1 : 0);
-            result = 31 * result + condition.hashCode();
+            result = 31 * result + conditionKey.hashCode();
             result = 31 * result + (period != null ? period.hashCode() : 0);
             result = 31 * result + (allowedOnly ? 1 : 0);
             hashCode = result;
@@ -19,12 +19,13 @@
 
 package ru.datareducer.dataservice.entity;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Дерево матаданных 1С
+ * <p>
+ * Дерево может быть создано с загрузчиком ({@link #MetadataTree(Loader)}). В этом случае объекты
+ * конфигурации каждого вида загружаются при первом обращении к ним.
  *
  * @author Kirill Mikhaylov
  */
@@ -44,7 +45,21 @@ public final class MetadataTree {
     private final Map<String, BusinessProcess> businessProcesses;
     private final Map<String, Task> tasks;
 
+    // Загрузчик объектов конфигурации или null, если все объекты добавлены при построении дерева
+    private final Loader loader;
+    // Префиксы имён ресурсов уже загруженных видов объектов
+    private final Set<String> loaded;
+
     public MetadataTree() {
+        this(null);
+    }
+
+    /**
+     * Создаёт дерево метаданных, объекты которого загружаются по видам при первом обращении.
+     *
+     * @param loader Загрузчик объектов конфигурации
+     */
+    public MetadataTree(Loader loader) {
         this.catalogs = new HashMap<>();
         this.chartOfCharacteristicTypes = new HashMap<>();
         this.chartOfAccounts = new HashMap<>();
@@ -59,6 +74,8 @@ public final class MetadataTree {
         this.calculationRegisters = new HashMap<>();
         this.businessProcesses = new HashMap<>();
         this.tasks = new HashMap<>();
+        this.loader = loader;
+        this.loaded = new HashSet<>();
     }
 
     /**
@@ -112,115 +129,191 @@ public final class MetadataTree {
         }
     }
 
+    /**
+     * Возвращает все объекты конфигурации дерева.
+     * Если дерево создано с загрузчиком, загружаются объекты всех видов.
+     */
+    public Collection<DataServiceEntity> getEntities() {
+        List<DataServiceEntity> result = new ArrayList<>();
+        result.addAll(getConstants());
+        result.addAll(getCatalogs());
+        result.addAll(getDocuments());
+        result.addAll(getDocumentJournals());
+        result.addAll(getChartOfCharacteristicTypes());
+        result.addAll(getChartOfAccounts());
+        result.addAll(getChartOfCalculationTypes());
+        result.addAll(getInformationRegisters());
+        result.addAll(getAccumulationRegisters());
+        result.addAll(getAccountingRegisters());
+        result.addAll(getCalculationRegisters());
+        result.addAll(getExchangePlans());
+        result.addAll(getBusinessProcesses());
+        result.addAll(getTasks());
+        return result;
+    }
+
     public Collection<Catalog> getCatalogs() {
+        load(Catalog.RESOURCE_PREFIX);
         return catalogs.values();
     }
 
     public Collection<ChartOfCharacteristicTypes> getChartOfCharacteristicTypes() {
+        load(ChartOfCharacteristicTypes.RESOURCE_PREFIX);
         return chartOfCharacteristicTypes.values();
     }
 
     public Collection<ChartOfAccounts> getChartOfAccounts() {
+        load(ChartOfAccounts.RESOURCE_PREFIX);
         return chartOfAccounts.values();
     }
 
     public Collection<AccumulationRegister> getAccumulationRegisters() {
+        load(AccumulationRegister.RESOURCE_PREFIX);
         return accumulationRegisters.values();
     }
 
     public Collection<AccountingRegister> getAccountingRegisters() {
+        load(AccountingRegister.RESOURCE_PREFIX);
         return accountingRegisters.values();
     }
 
     public Collection<Constant> getConstants() {
+        load(Constant.RESOURCE_PREFIX);
         return constants.values();
     }
 
     public Collection<ExchangePlan> getExchangePlans() {
+        load(ExchangePlan.RESOURCE_PREFIX);
         return exchangePlans.values();
     }
 
     public Collection<Document> getDocuments() {
+        load(Document.RESOURCE_PREFIX);
         return documents.values();
     }
 
     public Collection<DocumentJournal> getDocumentJournals() {
+        load(DocumentJournal.RESOURCE_PREFIX);
         return documentJournals.values();
     }
 
     public Collection<ChartOfCalculationTypes> getChartOfCalculationTypes() {
+        load(ChartOfCalculationTypes.RESOURCE_PREFIX);
         return chartOfCalculationTypes.values();
     }
 
     public Collection<InformationRegister> getInformationRegisters() {
+        load(InformationRegister.RESOURCE_PREFIX);
         return informationRegisters.values();
     }
 
     public Collection<CalculationRegister> getCalculationRegisters() {
+        load(CalculationRegister.RESOURCE_PREFIX);
         return calculationRegisters.values();
     }
 
     public Collection<BusinessProcess> getBusinessProcesses() {
+        load(BusinessProcess.RESOURCE_PREFIX);
         return businessProcesses.values();
     }
 
     public Collection<Task> getTasks() {
+        load(Task.RESOURCE_PREFIX);
         return tasks.values();
     }
 
     public Catalog getCatalogByName(String name) {
+        load(Catalog.RESOURCE_PREFIX);
         return catalogs.get(name);
     }
 
     public ChartOfCharacteristicTypes getChartOfCharacteristicTypesByName(String name) {
+        load(ChartOfCharacteristicTypes.RESOURCE_PREFIX);
         return chartOfCharacteristicTypes.get(name);
     }
 
     public ChartOfAccounts getChartOfAccountsByName(String name) {
+        load(ChartOfAccounts.RESOURCE_PREFIX);
         return chartOfAccounts.get(name);
     }
 
     public AccumulationRegister getAccumulationRegisterByName(String name) {
+        load(AccumulationRegister.RESOURCE_PREFIX);
         return accumulationRegisters.get(name);
     }
 
     public AccountingRegister getAccountingRegisterByName(String name) {
+        load(AccountingRegister.RESOURCE_PREFIX);
         return accountingRegisters.get(name);
     }
 
     public Constant getConstantByName(String name) {
+        load(Constant.RESOURCE_PREFIX);
         return constants.get(name);
     }
 
     public ExchangePlan getExchangePlanByName(String name) {
+        load(ExchangePlan.RESOURCE_PREFIX);
         return exchangePlans.get(name);
     }
 
     public Document getDocumentByName(String name) {
+        load(Document.RESOURCE_PREFIX);
         return documents.get(name);
     }
 
     public DocumentJournal getDocumentJournalByName(String name) {
+        load(DocumentJournal.RESOURCE_PREFIX);
         return documentJournals.get(name);
     }
 
     public ChartOfCalculationTypes getChartOfCalculationTypesByName(String name) {
+        load(ChartOfCalculationTypes.RESOURCE_PREFIX);
         return chartOfCalculationTypes.get(name);
     }
 
     public InformationRegister getInformationRegisterByName(String name) {
+        load(InformationRegister.RESOURCE_PREFIX);
         return informationRegisters.get(name);
     }
 
     public CalculationRegister getCalculationRegisterByName(String name) {
+        load(CalculationRegister.RESOURCE_PREFIX);
         return calculationRegisters.get(name);
     }
 
     public BusinessProcess getBusinessProcessByName(String name) {
+        load(BusinessProcess.RESOURCE_PREFIX);
         return businessProcesses.get(name);
     }
 
     public Task getTaskByName(String name) {
+        load(Task.RESOURCE_PREFIX);
         return tasks.get(name);
     }
+
+    // Загружает объекты конфигурации вида, если дерево создано с загрузчиком и этот вид ещё не загружен.
+    private synchronized void load(String resourcePrefix) {
+        if (loader == null || loaded.contains(resourcePrefix)) {
+            return;
+        }
+        for (DataServiceEntity entity : loader.load(resourcePrefix)) {
+            addEntity(entity);
+        }
+        loaded.add(resourcePrefix);
+    }
+
+    /**
+     * Загрузчик объектов конфигурации одного вида
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Загружает объекты конфигурации одного вида.
+         *
+         * @param resourcePrefix Префикс имени ресурса вида объектов, например {@link Catalog#RESOURCE_PREFIX}
+         * @return Объекты конфигурации этого вида
+         */
+        Collection<DataServiceEntity> load(String resourcePrefix);
+    }
 }
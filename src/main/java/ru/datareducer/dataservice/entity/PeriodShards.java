@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+import static ru.datareducer.dataservice.client.DataServiceClient.DATE_TIME_FORMATTER;
+
+/**
+ * Разбиение запроса к виртуальной таблице оборотов на запросы за части периода
+ * и сборка общего результата из результатов этих запросов.
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class PeriodShards {
+    private static final ZoneId ZONE = DATE_TIME_FORMATTER.getZone();
+
+    private PeriodShards() {
+    }
+
+    /**
+     * Разбивает запрос к виртуальной таблице на запросы за последовательные части периода.
+     * Конец каждой части на секунду меньше начала следующей, т.к. границы периода 1С включает в расчет.
+     * <p>
+     * Если начало или конец периода не заданы, разбиение невозможно и возвращается исходный запрос.
+     *
+     * @param request        Запрос к виртуальной таблице.
+     * @param shardingPeriod Длина части периода.
+     * @return Запросы за части периода в хронологическом порядке.
+     */
+    public static List<TurnoversVirtualTable> split(TurnoversVirtualTable request, ShardingPeriod shardingPeriod) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (shardingPeriod == null) {
+            throw new IllegalArgumentException("Значение параметра 'shardingPeriod': null");
+        }
+        Instant start = request.getStartPeriod();
+        Instant end = request.getEndPeriod();
+        if (start == null || end == null) {
+            return Collections.singletonList(request);
+        }
+
+        List<TurnoversVirtualTable> result = new ArrayList<>();
+        LocalDateTime shardStart = LocalDateTime.ofInstant(start, ZONE);
+        LocalDateTime last = LocalDateTime.ofInstant(end, ZONE);
+        while (!shardStart.isAfter(last)) {
+            LocalDateTime next = shardingPeriod.next(shardStart);
+            LocalDateTime shardEnd = next.minusSeconds(1);
+            if (shardEnd.isAfter(last)) {
+                shardEnd = last;
+            }
+            result.add(request.withPeriod(shardStart.atZone(ZONE).toInstant(), shardEnd.atZone(ZONE).toInstant()));
+            shardStart = next;
+        }
+        if (result.size() == 1) {
+            return Collections.singletonList(request);
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, что результат запроса за период можно собрать из результатов за календарные части периода.
+     * Это верно для оборотов: они суммируются.
+     *
+     * @param entity Запрос к ресурсу или описание ресурса.
+     * @return <code>true</code>, если запрос можно разбить на календарные части периода.
+     */
+    public static boolean isBucketable(DataServiceEntity entity) {
+        return entity instanceof AccumulationRegisterTurnovers || entity instanceof AccountingRegisterTurnovers;
+    }
+
+    /**
+     * Разбивает запрос к виртуальной таблице на запросы за календарные части периода, одинаковые для любых
+     * периодов, включающих эти части. Поэтому результаты частей, закэшированные при выполнении одного запроса,
+     * используются при выполнении другого запроса за пересекающийся период.
+     * <p>
+     * Период разбивается на целые части длины bucketPeriod, а неполные части в начале и в конце периода -
+     * на целые недели и дни. Неполные дни в начале и в конце периода запрашиваются как есть.
+     * Если начало или конец периода не заданы, разбиение невозможно и возвращается исходный запрос.
+     *
+     * @param request      Запрос к виртуальной таблице.
+     * @param bucketPeriod Наибольшая длина части периода.
+     * @return Запросы за части периода в хронологическом порядке.
+     */
+    public static List<TurnoversVirtualTable> buckets(TurnoversVirtualTable request, ShardingPeriod bucketPeriod) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (bucketPeriod == null) {
+            throw new IllegalArgumentException("Значение параметра 'bucketPeriod': null");
+        }
+        Instant start = request.getStartPeriod();
+        Instant end = request.getEndPeriod();
+        if (start == null || end == null) {
+            return Collections.singletonList(request);
+        }
+
+        // Длины частей от наибольшей к наименьшей
+        List<ShardingPeriod> units = new ArrayList<>();
+        for (ShardingPeriod unit : ShardingPeriod.values()) {
+            if (unit.compareTo(bucketPeriod) <= 0) {
+                units.add(0, unit);
+            }
+        }
+
+        List<TurnoversVirtualTable> result = new ArrayList<>();
+        addBuckets(request, LocalDateTime.ofInstant(start, ZONE), LocalDateTime.ofInstant(end, ZONE), units, 0, result);
+        if (result.size() == 1) {
+            return Collections.singletonList(request);
+        }
+        return result;
+    }
+
+    // Добавляет запросы за целые части периода длины units[level] внутри [from, last],
+    // а неполные части до и после них разбивает на части следующей по убыванию длины.
+    private static void addBuckets(TurnoversVirtualTable request, LocalDateTime from, LocalDateTime last,
+                                   List<ShardingPeriod> units, int level, List<TurnoversVirtualTable> result) {
+        if (from.isAfter(last)) {
+            return;
+        }
+        if (level == units.size()) {
+            // Неполный день
+            result.add(request.withPeriod(from.atZone(ZONE).toInstant(), last.atZone(ZONE).toInstant()));
+            return;
+        }
+        ShardingPeriod unit = units.get(level);
+        // Начало первой части, выровненное по календарю
+        LocalDateTime first = unit.next(from.minusSeconds(1)).equals(from) ? from : unit.next(from);
+        LocalDateTime bucketStart = first;
+        List<TurnoversVirtualTable> full = new ArrayList<>();
+        while (!unit.next(bucketStart).minusSeconds(1).isAfter(last)) {
+            LocalDateTime next = unit.next(bucketStart);
+            full.add(request.withPeriod(bucketStart.atZone(ZONE).toInstant(), next.minusSeconds(1).atZone(ZONE).toInstant()));
+            bucketStart = next;
+        }
+        if (full.isEmpty()) {
+            addBuckets(request, from, last, units, level + 1, result);
+            return;
+        }
+        addBuckets(request, from, first.minusSeconds(1), units, level + 1, result);
+        result.addAll(full);
+        addBuckets(request, bucketStart, last, units, level + 1, result);
+    }
+
+    /**
+     * Собирает результат исходного запроса из результатов запросов за части периода.
+     * <p>
+     * Записи группируются по значениям всех полей, кроме ресурсов. Обороты суммируются,
+     * начальный остаток берётся из первой по времени части, в которой встречается запись,
+     * а конечный остаток - из последней.
+     *
+     * @param request Исходный запрос к виртуальной таблице.
+     * @param shards  Результаты запросов за части периода в хронологическом порядке.
+     * @return Результат исходного запроса.
+     */
+    public static DataServiceResponse merge(TurnoversVirtualTable request, List<DataServiceResponse> shards) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (shards == null) {
+            throw new IllegalArgumentException("Значение параметра 'shards': null");
+        }
+        Set<Field> resources = request.getResources();
+
+        Map<Map<Field, Object>, Map<Field, Object>> merged = new LinkedHashMap<>();
+        for (DataServiceResponse shard : shards) {
+            for (Map<Field, Object> record : shard.asDataTable()) {
+                Map<Field, Object> key = new HashMap<>();
+                for (Map.Entry<Field, Object> entry : record.entrySet()) {
+                    if (!resources.contains(entry.getKey())) {
+                        key.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                Map<Field, Object> total = merged.get(key);
+                if (total == null) {
+                    merged.put(key, new LinkedHashMap<>(record));
+                    continue;
+                }
+                for (Map.Entry<Field, Object> entry : record.entrySet()) {
+                    Field field = entry.getKey();
+                    if (!resources.contains(field)) {
+                        continue;
+                    }
+                    if (field.getName().endsWith("OpeningBalance")) {
+                        total.putIfAbsent(field, entry.getValue());
+                    } else if (field.getName().endsWith("ClosingBalance")) {
+                        total.put(field, entry.getValue());
+                    } else {
+                        total.put(field, sum(field, total.get(field), entry.getValue()));
+                    }
+                }
+            }
+        }
+        return new DataServiceResponse(request, new ArrayList<>(merged.values()));
+    }
+
+    private static Object sum(Field field, Object a, Object b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        Number x = (Number) a;
+        Number y = (Number) b;
+        switch (field.getFieldType()) {
+            case SHORT:
+                return (short) (x.shortValue() + y.shortValue());
+            case INTEGER:
+                return x.intValue() + y.intValue();
+            case LONG:
+                return x.longValue() + y.longValue();
+            default:
+                return x.doubleValue() + y.doubleValue();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import javax.xml.bind.annotation.XmlEnum;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Длина части периода при разбиении запроса к виртуальной таблице оборотов.
+ * Границы частей выравниваются по календарю (в UTC, как и параметры периода запросов к REST-сервису 1С).
+ * Значения упорядочены по возрастанию длины.
+ *
+ * @author Kirill Mikhaylov
+ * @see PeriodShards
+ */
+@XmlEnum
+public enum ShardingPeriod {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * Возвращает начало части периода, следующей за частью, содержащей указанный момент.
+     *
+     * @param dateTime Момент времени.
+     * @return Начало следующей части периода.
+     */
+    LocalDateTime next(LocalDateTime dateTime) {
+        LocalDateTime day = dateTime.truncatedTo(ChronoUnit.DAYS);
+        switch (this) {
+            case DAY:
+                return day.plusDays(1);
+            case WEEK:
+                return day.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.with(TemporalAdjusters.firstDayOfNextMonth());
+            default:
+                throw new AssertionError(this); // Недостижимо
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.util.*;
+
+/**
+ * Получение результата запроса из результата более широкого запроса к тому же ресурсу.
+ * <p>
+ * Результат запроса A можно получить из результата запроса B, если запросы обращаются к одному ресурсу,
+ * поля и представления A входят в поля и представления B, а отбор A заведомо строже отбора B.
+ * Тогда записи результата B отбираются по оставшейся части отбора A и из них выбираются поля A.
+ * <p>
+ * Для виртуальных таблиц регистров отбор ограничивает исходные записи, по которым рассчитываются итоги,
+ * а не записи результата, поэтому такие запросы не рассматриваются.
+ *
+ * @author Kirill Mikhaylov
+ * @see ConditionEvaluator
+ */
+public final class Subsumption {
+
+    private Subsumption() {
+    }
+
+    /**
+     * Проверяет, что результат запроса может быть получен из результата другого запроса.
+     *
+     * @param request Параметры запроса
+     * @return <code>true</code>, если отбор запроса применяется к записям результата
+     */
+    public static boolean isApplicable(DataServiceRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        return !(request instanceof AccumulationRegisterVirtualTable
+                || request instanceof AccountingRegisterVirtualTable
+                || request instanceof InformationRegisterVirtualTable
+                || request instanceof CalculationRegisterVirtualTable);
+    }
+
+    /**
+     * Получает результат запроса из результата более широкого запроса.
+     *
+     * @param request  Параметры запроса
+     * @param source   Параметры более широкого запроса
+     * @param response Результат более широкого запроса
+     * @return Результат запроса со временем получения исходного результата или <code>null</code>,
+     * если результат запроса не удалось получить из исходного
+     */
+    public static DataServiceResponse derive(DataServiceRequest request, DataServiceRequest source,
+                                             DataServiceResponse response) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("Значение параметра 'source': null");
+        }
+        if (response == null) {
+            throw new IllegalArgumentException("Значение параметра 'response': null");
+        }
+        if (!isApplicable(request) || !isApplicable(source)
+                || request.getClass() != source.getClass()
+                || !request.getResourceName().equals(source.getResourceName())
+                || request.isAllowedOnly() != source.isAllowedOnly()) {
+            return null;
+        }
+        LinkedHashSet<Field> fields = request.getRequestedFields();
+        LinkedHashSet<Field> presentationFields = request.getPresentationFields();
+        Set<Field> sourceFields = source.getRequestedFields();
+        sourceFields.addAll(source.getPresentationFields());
+        if (!sourceFields.containsAll(fields) || !source.getPresentationFields().containsAll(presentationFields)) {
+            return null;
+        }
+
+        ConditionEvaluator condition = ConditionEvaluator.of(request.getCondition());
+        ConditionEvaluator sourceCondition = ConditionEvaluator.of(source.getCondition());
+        if (condition == null || sourceCondition == null || !condition.implies(sourceCondition)) {
+            return null;
+        }
+        ConditionEvaluator residual = condition.residual(sourceCondition);
+        if (!residual.isEvaluable() || !sourceFields.containsAll(residual.getFields())) {
+            return null;
+        }
+
+        List<Field> columns = new ArrayList<>(fields);
+        columns.addAll(presentationFields);
+        List<Map<Field, Object>> dataTable = new ArrayList<>();
+        for (Map<Field, Object> row : response.asDataTable()) {
+            if (!residual.test(row)) {
+                continue;
+            }
+            Map<Field, Object> projection = new LinkedHashMap<>(columns.size() * 4 / 3 + 1);
+            for (Field column : columns) {
+                if (row.containsKey(column)) {
+                    projection.put(column, row.get(column));
+                }
+            }
+            dataTable.add(projection);
+        }
+        return new DataServiceResponse(request, dataTable, response.getTime());
+    }
+}
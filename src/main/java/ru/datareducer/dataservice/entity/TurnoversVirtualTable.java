@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+
+/**
+ * Виртуальная таблица, итоги которой рассчитываются за период (Обороты, Остатки и обороты).
+ * Запрос к такой таблице может быть разбит на запросы за последовательные части периода.
+ *
+ * @author Kirill Mikhaylov
+ * @see PeriodShards
+ */
+public interface TurnoversVirtualTable extends DataServiceRequest {
+    /**
+     * Возвращает набор всех ресурсов виртуальной таблицы.
+     *
+     * @return Набор всех ресурсов виртуальной таблицы.
+     */
+    LinkedHashSet<Field> getResources();
+
+    /**
+     * Возвращает начало периода расчета итогов.
+     *
+     * @return Начало периода расчета итогов.
+     */
+    Instant getStartPeriod();
+
+    /**
+     * Возвращает конец периода расчета итогов.
+     *
+     * @return Конец периода расчета итогов.
+     */
+    Instant getEndPeriod();
+
+    /**
+     * Возвращает копию запроса к виртуальной таблице с другим периодом расчета итогов.
+     *
+     * @param startPeriod Начало периода расчета итогов.
+     * @param endPeriod   Конец периода расчета итогов.
+     * @return Запрос к виртуальной таблице за указанный период.
+     */
+    TurnoversVirtualTable withPeriod(Instant startPeriod, Instant endPeriod);
+}
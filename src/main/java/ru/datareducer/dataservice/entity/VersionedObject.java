@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.entity;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Объект ссылочного типа (справочник, документ), изменение которого отмечается
+ * новым значением версии данных (поле DataVersion).
+ * Данные такого объекта могут обновляться синхронизацией изменений.
+ *
+ * @author Kirill Mikhaylov
+ * @see DeltaSync
+ */
+public interface VersionedObject extends DataServiceRequest {
+    /**
+     * Имя поля ссылки на объект
+     */
+    String REF_FIELD_NAME = "Ref_Key";
+    /**
+     * Имя поля версии данных объекта
+     */
+    String DATA_VERSION_FIELD_NAME = "DataVersion";
+
+    /**
+     * Возвращает копию запроса с другим набором полей и отбором.
+     *
+     * @param fields    Набор полей, которые необходимо получить.
+     * @param allFields Получить значения всех полей.
+     * @param condition Отбор, применяемый при запросе к ресурсу.
+     * @return Запрос к ресурсу с указанными полями и отбором.
+     */
+    VersionedObject withSelection(LinkedHashSet<Field> fields, boolean allFields, Condition condition);
+}
@@ -19,16 +19,9 @@
 
 package ru.datareducer.dataservice.jaxb;
 
-import org.w3c.dom.Node;
 import ru.datareducer.dataservice.entity.*;
-import ru.datareducer.dataservice.jaxb.atom.Content;
-import ru.datareducer.dataservice.jaxb.atom.Entry;
-import ru.datareducer.dataservice.jaxb.atom.Feed;
 import ru.datareducer.dataservice.jaxb.csdl.*;
-import ru.datareducer.dataservice.jaxb.register.Element;
-import ru.datareducer.dataservice.jaxb.register.Result;
 
-import javax.xml.bind.JAXBElement;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +41,21 @@ public class JaxbUtil {
     private JaxbUtil() {
     }
 
+    /**
+     * Создаёт дерево метаданных, объекты которого загружаются из снимка метаданных по видам
+     * при первом обращении к ним. Пока к объектам вида не было обращения, их описание
+     * не читается из снимка и не занимает память.
+     *
+     * @param snapshot Снимок метаданных
+     * @return Дерево конфигурации 1С
+     */
+    public static MetadataTree parseEdmxLazily(MetadataSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Значение параметра 'snapshot': null");
+        }
+        return new MetadataTree(resourcePrefix -> parseEdmx(snapshot.getEdmx(resourcePrefix)).getEntities());
+    }
+
     /**
      * Разбирает описание метаданных 1С.
      *
@@ -60,6 +68,10 @@ public class JaxbUtil {
         Map<String, LinkedHashSet<Field>> tabularSections = new HashMap<>();
         // Все связи.
         Set<AssociationWrapper> associations = new HashSet<>();
+        // Объекты конфигурации <Имя ресурса, Объект>
+        Map<String, DataServiceEntity> entities = new HashMap<>();
+        // Владельцы табличных частей <Имя ресурса табличной части, Владелец>
+        Map<String, DataServiceEntity> tabularSectionOwners = new HashMap<>();
 
         for (Object obj : edmx.getDataServices().getSchema().getEntityTypeOrComplexTypeOrAssociation()) {
             if (obj instanceof EntityTypeType) { // Сущность (объект конфигурации)
@@ -195,6 +207,10 @@ public class JaxbUtil {
                     if (entity != null) {
                         markCompositeFields(entity);
                         metadataTree.addEntity(entity);
+                        entities.put(resourceName, entity);
+                        for (String name : tabularSectionNames) {
+                            tabularSectionOwners.put(resourceName.concat("_").concat(name), entity);
+                        }
                     }
                 }
             } else if (obj instanceof ComplexTypeType) { // Виртуальные таблицы
@@ -440,71 +456,17 @@ public class JaxbUtil {
                 }
                 continue;
             }
-            Collection<DataServiceEntity> entities;
-            if (name.startsWith(Constant.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getConstants());
-            } else if (name.startsWith(Catalog.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getCatalogs());
-            } else if (name.startsWith(Document.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getDocuments());
-            } else if (name.startsWith(DocumentJournal.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getDocumentJournals());
-            } else if (name.startsWith(ChartOfCharacteristicTypes.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getChartOfCharacteristicTypes());
-            } else if (name.startsWith(ChartOfAccounts.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getChartOfAccounts());
-            } else if (name.startsWith(ChartOfCalculationTypes.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getChartOfCalculationTypes());
-            } else if (name.startsWith(InformationRegister.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getInformationRegisters());
-            } else if (name.startsWith(AccumulationRegister.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getAccumulationRegisters());
-            } else if (name.startsWith(AccountingRegister.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getAccountingRegisters());
-            } else if (name.startsWith(CalculationRegister.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getCalculationRegisters());
-            } else if (name.startsWith(ExchangePlan.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getExchangePlans());
-            } else if (name.startsWith(BusinessProcess.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getBusinessProcesses());
-            } else if (name.startsWith(Task.RESOURCE_PREFIX)) {
-                entities = new ArrayList<>(metadataTree.getTasks());
-            } else {
-                throw new IllegalArgumentException(name);
+            DataServiceEntity entity = entities.get(ownerName);
+            if (entity != null) {
+                setFieldReference(entity, name, reference);
             }
-            setFieldReference(entities, name, ownerName, reference);
         }
 
         // Заполняем реквизиты табличных частей
         for (Map.Entry<String, LinkedHashSet<Field>> entry : tabularSections.entrySet()) {
-            if (entry.getKey().startsWith(Catalog.RESOURCE_PREFIX)) {
-                for (Catalog entity : metadataTree.getCatalogs()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(ChartOfCharacteristicTypes.RESOURCE_PREFIX)) {
-                for (ChartOfCharacteristicTypes entity : metadataTree.getChartOfCharacteristicTypes()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(ExchangePlan.RESOURCE_PREFIX)) {
-                for (ExchangePlan entity : metadataTree.getExchangePlans()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(Document.RESOURCE_PREFIX)) {
-                for (Document entity : metadataTree.getDocuments()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(ChartOfCalculationTypes.RESOURCE_PREFIX)) {
-                for (ChartOfCalculationTypes entity : metadataTree.getChartOfCalculationTypes()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(BusinessProcess.RESOURCE_PREFIX)) {
-                for (BusinessProcess entity : metadataTree.getBusinessProcesses()) {
-                    fillTabularSectionFields(entry, entity);
-                }
-            } else if (entry.getKey().startsWith(Task.RESOURCE_PREFIX)) {
-                for (Task entity : metadataTree.getTasks()) {
-                    fillTabularSectionFields(entry, entity);
-                }
+            DataServiceEntity owner = tabularSectionOwners.get(entry.getKey());
+            if (owner != null) {
+                fillTabularSectionFields(entry, owner);
             }
         }
 
@@ -552,107 +514,73 @@ public class JaxbUtil {
         return true;
     }
 
-    private static void setFieldReference(Collection<DataServiceEntity> entities, String name, String ownerName, String reference) {
-        for (DataServiceEntity entity : entities) {
-            // ownerName может заканчиваться на _RecordType (в отличие от entity.getResourceName()).
-            if (ownerName.startsWith(entity.getResourceName())) {
-                // Измерения виртуальных таблиц регистров бухгалтерии
-                String dim = null;
-                String dimBal = null;
-                if (entity instanceof AccountingRegisterVirtualTable) {
-                    if (entity instanceof AccountingRegisterRecordsWithExtDimensions
-                            || entity instanceof AccountingRegisterDrCrTurnovers) {
-                        dim = name;
-                    } else {
-                        dim = name.replace("Dr", "").replace("Cr", "");
-                    }
-                    dimBal = dim.concat("Balanced");
-                }
-                for (Field field : entity.getFields()) {
-                    if (!field.getName().endsWith("_Key") || field.getName().equals("Ref_Key")) {
-                        continue;
-                    }
-                    String fldName = field.getOriginalName();
-                    if (entity instanceof AccountingRegisterVirtualTable) {
-                        if (dim.endsWith(fldName) || dimBal.endsWith(fldName) || dim.endsWith("Account") && fldName.equals("BalancedAccount")) {
-                            field.setReference(reference);
-                        }
-                    } else if (name.endsWith(fldName)) {
-                        field.setReference(reference);
-                        break;
-                    }
-                }
-                // Если поле принадлежит регистру, повторяем процедуру для его виртуальных таблиц.
-                if (entity instanceof AccumulationRegister) {
-                    Collection<DataServiceEntity> virtualTables = new ArrayList<>();
-                    AccumulationRegisterBalance balance = ((AccumulationRegister) entity).getBalance();
-                    if (balance != null) {
-                        virtualTables.add(balance);
-                    }
-                    AccumulationRegisterTurnovers turnovers = ((AccumulationRegister) entity).getTurnovers();
-                    if (turnovers != null) {
-                        virtualTables.add(turnovers);
-                    }
-                    AccumulationRegisterBalanceAndTurnovers balanceAndTurnovers = ((AccumulationRegister) entity).getBalanceAndTurnovers();
-                    if (balanceAndTurnovers != null) {
-                        virtualTables.add(balanceAndTurnovers);
-                    }
-                    if (!virtualTables.isEmpty()) {
-                        setFieldReference(virtualTables, name, ownerName, reference);
-                    }
-                } else if (entity instanceof AccountingRegister) {
-                    Collection<DataServiceEntity> virtualTables = new ArrayList<>();
-                    AccountingRegisterBalance balance = ((AccountingRegister) entity).getBalance();
-                    if (balance != null) {
-                        virtualTables.add(balance);
-                    }
-                    AccountingRegisterTurnovers turnovers = ((AccountingRegister) entity).getTurnovers();
-                    if (turnovers != null) {
-                        virtualTables.add(turnovers);
-                    }
-                    AccountingRegisterBalanceAndTurnovers balanceAndTurnovers = ((AccountingRegister) entity).getBalanceAndTurnovers();
-                    if (balanceAndTurnovers != null) {
-                        virtualTables.add(balanceAndTurnovers);
-                    }
-                    AccountingRegisterExtDimensions extDimensions = ((AccountingRegister) entity).getExtDimensions();
-                    if (extDimensions != null) {
-                        virtualTables.add(extDimensions);
-                    }
-                    AccountingRegisterRecordsWithExtDimensions recordsWithExtDimensions = ((AccountingRegister) entity).getRecordsWithExtDimensions();
-                    if (recordsWithExtDimensions != null) {
-                        virtualTables.add(recordsWithExtDimensions);
-                    }
-                    AccountingRegisterDrCrTurnovers drCrTurnovers = ((AccountingRegister) entity).getDrCrTurnovers();
-                    if (drCrTurnovers != null) {
-                        virtualTables.add(drCrTurnovers);
-                    }
-                    if (!virtualTables.isEmpty()) {
-                        setFieldReference(virtualTables, name, ownerName, reference);
-                    }
-                } else if (entity instanceof CalculationRegister) {
-                    Collection<DataServiceEntity> virtualTables = new ArrayList<>();
-                    CalculationRegisterScheduleData scheduleData = ((CalculationRegister) entity).getScheduleData();
-                    if (scheduleData != null) {
-                        virtualTables.add(scheduleData);
-                    }
-                    CalculationRegisterActualActionPeriod actualActionPeriod = ((CalculationRegister) entity).getActualActionPeriod();
-                    if (actualActionPeriod != null) {
-                        virtualTables.add(actualActionPeriod);
-                    }
-                    virtualTables.addAll(((CalculationRegister) entity).getBaseRegisters());
-                    if (!virtualTables.isEmpty()) {
-                        setFieldReference(virtualTables, name, ownerName, reference);
-                    }
-                } else if (entity instanceof InformationRegister && ((InformationRegister) entity).isPeriodic()) {
-                    Collection<DataServiceEntity> virtualTables = new ArrayList<>();
-                    InformationRegisterSliceLast sliceLast = ((InformationRegister) entity).getSliceLast();
-                    virtualTables.add(sliceLast);
-                    InformationRegisterSliceFirst sliceFirst = ((InformationRegister) entity).getSliceFirst();
-                    virtualTables.add(sliceFirst);
-                    setFieldReference(virtualTables, name, ownerName, reference);
+    // Устанавливает ссылку для поля объекта конфигурации и соответствующих полей его виртуальных таблиц.
+    private static void setFieldReference(DataServiceEntity entity, String name, String reference) {
+        // Измерения виртуальных таблиц регистров бухгалтерии
+        String dim = null;
+        String dimBal = null;
+        if (entity instanceof AccountingRegisterVirtualTable) {
+            if (entity instanceof AccountingRegisterRecordsWithExtDimensions
+                    || entity instanceof AccountingRegisterDrCrTurnovers) {
+                dim = name;
+            } else {
+                dim = name.replace("Dr", "").replace("Cr", "");
+            }
+            dimBal = dim.concat("Balanced");
+        }
+        for (Field field : entity.getFields()) {
+            if (!field.getName().endsWith("_Key") || field.getName().equals("Ref_Key")) {
+                continue;
+            }
+            String fldName = field.getOriginalName();
+            if (entity instanceof AccountingRegisterVirtualTable) {
+                if (dim.endsWith(fldName) || dimBal.endsWith(fldName) || dim.endsWith("Account") && fldName.equals("BalancedAccount")) {
+                    field.setReference(reference);
                 }
+            } else if (name.endsWith("_".concat(fldName))) {
+                field.setReference(reference);
+                break;
             }
         }
+        // Если поле принадлежит регистру, повторяем процедуру для его виртуальных таблиц.
+        for (DataServiceEntity virtualTable : getVirtualTables(entity)) {
+            setFieldReference(virtualTable, name, reference);
+        }
+    }
+
+    // Возвращает виртуальные таблицы регистра.
+    private static Collection<DataServiceEntity> getVirtualTables(DataServiceEntity entity) {
+        Collection<DataServiceEntity> virtualTables = new ArrayList<>();
+        if (entity instanceof AccumulationRegister) {
+            AccumulationRegister register = (AccumulationRegister) entity;
+            addIfPresent(virtualTables, register.getBalance());
+            addIfPresent(virtualTables, register.getTurnovers());
+            addIfPresent(virtualTables, register.getBalanceAndTurnovers());
+        } else if (entity instanceof AccountingRegister) {
+            AccountingRegister register = (AccountingRegister) entity;
+            addIfPresent(virtualTables, register.getBalance());
+            addIfPresent(virtualTables, register.getTurnovers());
+            addIfPresent(virtualTables, register.getBalanceAndTurnovers());
+            addIfPresent(virtualTables, register.getExtDimensions());
+            addIfPresent(virtualTables, register.getRecordsWithExtDimensions());
+            addIfPresent(virtualTables, register.getDrCrTurnovers());
+        } else if (entity instanceof CalculationRegister) {
+            CalculationRegister register = (CalculationRegister) entity;
+            addIfPresent(virtualTables, register.getScheduleData());
+            addIfPresent(virtualTables, register.getActualActionPeriod());
+            virtualTables.addAll(register.getBaseRegisters());
+        } else if (entity instanceof InformationRegister && ((InformationRegister) entity).isPeriodic()) {
+            InformationRegister register = (InformationRegister) entity;
+            virtualTables.add(register.getSliceLast());
+            virtualTables.add(register.getSliceFirst());
+        }
+        return virtualTables;
+    }
+
+    private static void addIfPresent(Collection<DataServiceEntity> virtualTables, DataServiceEntity virtualTable) {
+        if (virtualTable != null) {
+            virtualTables.add(virtualTable);
+        }
     }
 
     private static class AssociationWrapper {
@@ -689,74 +617,4 @@ public class JaxbUtil {
             return reference;
         }
     }
-
-    /**
-     * Разбирает демаршализованную ленту Atom.
-     *
-     * @param feed   Лента Atom
-     * @param entity Описание ресурса, данные которого представлены в ленте Atom
-     * @return коллекция полей и их значений.
-     */
-    public static List<Map<Field, Object>> parseFeed(Feed feed, DataServiceEntity entity) {
-        List<Map<Field, Object>> result = new ArrayList<>();
-        for (Entry entry : feed.getEntry()) {
-            for (JAXBElement el : entry.getCategoryOrContentOrId()) {
-                if (el.getDeclaredType().equals(Content.class)) {
-                    Map<Field, Object> map = new LinkedHashMap<>();
-                    List<Object> props = ((Content) el.getValue()).getProperties().getAny();
-                    for (Object obj : props) {
-                        Node node = (Node) obj;
-                        String fieldName = node.getLocalName();
-                        if (fieldName.equals("ValueType")) {
-                            // Пропускаем (Свойство "Тип значения характеристик" плана видов характеристик, имеет составной тип OData)
-                            continue;
-                        }
-                        if (node.getAttributes().getNamedItem("m:type") != null) {
-                            // Это табличная часть
-                            continue;
-                        }
-                        Field field = entity.getFieldByName(fieldName);
-                        if (field == null) {
-                            throw new IllegalStateException("Неизвестное поле: " + fieldName);
-                        }
-                        String value = node.getTextContent();
-                        Object fieldValue = !value.isEmpty() ? field.getFieldType().parseValue(value) : null;
-                        map.put(field, fieldValue);
-                    }
-                    result.add(map);
-                }
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Разбирает демаршализованные записи виртуальной таблицы регистра 1С.
-     *
-     * @param data   Записи виртуальной таблицы регистра 1С
-     * @param entity Описание виртуальной таблицы
-     * @return коллекция полей и их значений.
-     */
-    public static List<Map<Field, Object>> parseResult(Result data, DataServiceEntity entity) {
-        List<Map<Field, Object>> result = new ArrayList<>();
-        for (Element el : data.getElement()) {
-            Map<Field, Object> map = new LinkedHashMap<>();
-            for (Object obj : el.getAny()) {
-                Node node = (Node) obj;
-                String fieldName = node.getLocalName();
-                Field field = entity.getFieldByName(fieldName);
-                if (field == null) {
-                    throw new IllegalStateException("Неизвестное поле: " + fieldName);
-                }
-                Node nullAttr = node.getAttributes().getNamedItem("m:null");
-                if (nullAttr != null && nullAttr.getNodeValue().equals("true")) {
-                    map.put(field, null);
-                } else {
-                    map.put(field, field.getFieldType().parseValue(node.getTextContent()));
-                }
-            }
-            result.add(map);
-        }
-        return result;
-    }
 }
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.jaxb;
+
+import ru.datareducer.dataservice.entity.*;
+import ru.datareducer.dataservice.jaxb.csdl.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Снимок описания метаданных информационной базы 1С, сохраняемый на диск.
+ * <p>
+ * Снимок содержит только те части описания метаданных (EDMX), которые используются при построении
+ * дерева метаданных: сущности, виртуальные таблицы и связи. Кроме того, в снимке хранятся признаки
+ * версии описания метаданных (ETag, Last-Modified и контрольная сумма), по которым определяется,
+ * изменилась ли конфигурация.
+ * <p>
+ * Описание метаданных хранится в файле группами по видам объектов конфигурации (справочники, документы и т.д.).
+ * Каждая группа сжимается отдельно, а её положение в файле записывается в заголовок. Это позволяет
+ * открыть снимок без чтения описания метаданных ({@link #open(Path)}) и затем читать описание
+ * только тех видов объектов, к которым было обращение ({@link #getEdmx(String)}).
+ *
+ * @author Kirill Mikhaylov
+ */
+public final class MetadataSnapshot {
+    // Сигнатура файла снимка ("DRMS")
+    private static final int MAGIC = 0x44524D53;
+    // Версия формата файла снимка
+    private static final int VERSION = 2;
+
+    private static final byte ENTITY_TYPE = 1;
+    private static final byte COMPLEX_TYPE = 2;
+    private static final byte ASSOCIATION = 3;
+
+    // Префиксы имён ресурсов видов объектов конфигурации, по которым группируется описание метаданных
+    private static final String[] KINDS = {Constant.RESOURCE_PREFIX, Catalog.RESOURCE_PREFIX, Document.RESOURCE_PREFIX,
+            DocumentJournal.RESOURCE_PREFIX, ChartOfCharacteristicTypes.RESOURCE_PREFIX, ChartOfAccounts.RESOURCE_PREFIX,
+            ChartOfCalculationTypes.RESOURCE_PREFIX, InformationRegister.RESOURCE_PREFIX,
+            AccumulationRegister.RESOURCE_PREFIX, AccountingRegister.RESOURCE_PREFIX,
+            CalculationRegister.RESOURCE_PREFIX, ExchangePlan.RESOURCE_PREFIX, BusinessProcess.RESOURCE_PREFIX,
+            Task.RESOURCE_PREFIX};
+
+    // Описание метаданных. Для снимка, открытого методом open(), не загружается.
+    private final EdmxType edmx;
+    // Файл открытого снимка
+    private final Path path;
+    private final String digest;
+    private final String eTag;
+    private final String lastModified;
+
+    /**
+     * Создаёт снимок описания метаданных
+     *
+     * @param edmx         Описание метаданных
+     * @param digest       Контрольная сумма описания метаданных в том виде, в каком оно получено от сервера
+     * @param eTag         Значение заголовка ETag ответа сервера или null
+     * @param lastModified Значение заголовка Last-Modified ответа сервера или null
+     */
+    public MetadataSnapshot(EdmxType edmx, String digest, String eTag, String lastModified) {
+        this(edmx, null, digest, eTag, lastModified);
+        if (edmx == null) {
+            throw new IllegalArgumentException("Значение параметра 'edmx': null");
+        }
+    }
+
+    private MetadataSnapshot(EdmxType edmx, Path path, String digest, String eTag, String lastModified) {
+        if (digest == null) {
+            throw new IllegalArgumentException("Значение параметра 'digest': null");
+        }
+        this.edmx = edmx;
+        this.path = path;
+        this.digest = digest;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Возвращает описание метаданных. Для снимка, открытого методом {@link #open(Path)},
+     * описание каждый раз читается из файла целиком.
+     *
+     * @throws UncheckedIOException Если не удалось прочитать файл снимка
+     */
+    public EdmxType getEdmx() {
+        if (edmx != null) {
+            return edmx;
+        }
+        try {
+            return read(path).edmx;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Возвращает описание метаданных объектов конфигурации одного вида: сущностей, их табличных частей,
+     * виртуальных таблиц и связей. Для снимка, открытого методом {@link #open(Path)}, из файла
+     * читается только группа этого вида.
+     *
+     * @param kind Префикс имени ресурса вида объектов конфигурации, например {@link Catalog#RESOURCE_PREFIX}
+     * @throws UncheckedIOException Если не удалось прочитать файл снимка или он был заменён снимком других метаданных
+     */
+    public EdmxType getEdmx(String kind) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Значение параметра 'kind': null");
+        }
+        if (edmx != null) {
+            return toEdmx(group(edmx).getOrDefault(kind, new ArrayList<>()));
+        }
+        try {
+            return toEdmx(readGroup(kind));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Возвращает true, если описание метаданных находится в памяти, и false,
+     * если снимок открыт методом {@link #open(Path)}.
+     */
+    public boolean isLoaded() {
+        return edmx != null;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Возвращает снимок тех же метаданных с новыми признаками версии.
+     */
+    public MetadataSnapshot withValidators(String eTag, String lastModified) {
+        return new MetadataSnapshot(edmx, path, digest, eTag, lastModified);
+    }
+
+    /**
+     * Вычисляет контрольную сумму (SHA-256) данных.
+     *
+     * @param content Данные
+     * @return Контрольная сумма в шестнадцатеричном представлении
+     */
+    public static String digest(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    /**
+     * Вычисляет контрольную сумму (SHA-256) строки в кодировке UTF-8.
+     */
+    public static String digest(String content) {
+        return digest(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Создаёт объект вычисления контрольной суммы (SHA-256), например для {@link java.security.DigestInputStream}.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Возвращает вычисленную контрольную сумму в шестнадцатеричном представлении.
+     */
+    static String digest(MessageDigest messageDigest) {
+        return toHex(messageDigest.digest());
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Записывает снимок в файл. Файл заменяется целиком, поэтому при сбое записи
+     * ранее сохранённый снимок не повреждается.
+     *
+     * @param path Путь к файлу снимка
+     * @throws IOException
+     */
+    public void write(Path path) throws IOException {
+        Map<String, List<Object>> groups = group(getEdmx());
+        Map<String, byte[]> blobs = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Object>> group : groups.entrySet()) {
+            blobs.put(group.getKey(), writeGroup(group.getValue()));
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeUTF(digest);
+            writeNullable(out, eTag);
+            writeNullable(out, lastModified);
+            out.writeInt(blobs.size());
+            for (Map.Entry<String, byte[]> blob : blobs.entrySet()) {
+                out.writeUTF(blob.getKey());
+                out.writeInt(blob.getValue().length);
+            }
+        }
+
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(header.size());
+                header.writeTo(out);
+                for (byte[] blob : blobs.values()) {
+                    out.write(blob);
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Читает снимок из файла.
+     *
+     * @param path Путь к файлу снимка
+     * @return Снимок описания метаданных
+     * @throws IOException Если файл не найден, повреждён или записан в другом формате
+     */
+    public static MetadataSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            List<Object> objects = new ArrayList<>();
+            long offset = header.dataOffset;
+            for (int length : header.groups.values()) {
+                objects.addAll(readGroup(channel, offset, length, path));
+                offset += length;
+            }
+            return new MetadataSnapshot(toEdmx(objects), null, header.digest, header.eTag, header.lastModified);
+        }
+    }
+
+    /**
+     * Открывает снимок без чтения описания метаданных. Описание читается из файла
+     * по мере обращения к нему методами {@link #getEdmx()} и {@link #getEdmx(String)}.
+     *
+     * @param path Путь к файлу снимка
+     * @return Снимок описания метаданных
+     * @throws IOException Если файл не найден, повреждён или записан в другом формате
+     */
+    public static MetadataSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            return new MetadataSnapshot(null, path, header.digest, header.eTag, header.lastModified);
+        }
+    }
+
+    // Читает из файла открытого снимка группу описаний одного вида объектов конфигурации.
+    private List<Object> readGroup(String kind) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            // Файл мог быть заменён снимком изменившейся конфигурации
+            if (!header.digest.equals(digest)) {
+                throw new IOException("Снимок метаданных изменился: " + path);
+            }
+            long offset = header.dataOffset;
+            for (Map.Entry<String, Integer> group : header.groups.entrySet()) {
+                if (group.getKey().equals(kind)) {
+                    return readGroup(channel, offset, group.getValue(), path);
+                }
+                offset += group.getValue();
+            }
+            return new ArrayList<>();
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer prefix = readFully(channel, 0, 12, path);
+        if (prefix.getInt() != MAGIC) {
+            throw new IOException("Файл не является снимком метаданных: " + path);
+        }
+        int version = prefix.getInt();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия снимка метаданных: " + version);
+        }
+        int length = prefix.getInt();
+        ByteBuffer buf = readFully(channel, 12, length, path);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.array()))) {
+            Header header = new Header();
+            header.digest = in.readUTF();
+            header.eTag = readNullable(in);
+            header.lastModified = readNullable(in);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                header.groups.put(in.readUTF(), in.readInt());
+            }
+            header.dataOffset = 12 + length;
+            return header;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length, Path path) throws IOException {
+        if (length < 0 || position + length > channel.size()) {
+            throw new IOException("Снимок метаданных повреждён: " + path);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Снимок метаданных повреждён: " + path);
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    // Разбивает описание метаданных на группы по видам объектов конфигурации с сохранением порядка.
+    // Связь относится к виду объекта-владельца. Описания, не относящиеся ни к одному виду, не сохраняются.
+    private static Map<String, List<Object>> group(EdmxType edmx) {
+        Map<String, List<Object>> groups = new LinkedHashMap<>();
+        for (Object obj : edmx.getDataServices().getSchema().getEntityTypeOrComplexTypeOrAssociation()) {
+            String name;
+            if (obj instanceof EntityTypeType) {
+                name = ((EntityTypeType) obj).getName();
+            } else if (obj instanceof ComplexTypeType) {
+                name = ((ComplexTypeType) obj).getName();
+            } else if (obj instanceof AssociationType) {
+                name = "";
+                for (EndType end : ((AssociationType) obj).getEnd()) {
+                    if ("Begin".equals(end.getRole())) {
+                        name = end.getType().substring(end.getType().indexOf('.') + 1);
+                    }
+                }
+            } else {
+                continue;
+            }
+            for (String kind : KINDS) {
+                if (name.startsWith(kind)) {
+                    groups.computeIfAbsent(kind, k -> new ArrayList<>()).add(obj);
+                    break;
+                }
+            }
+        }
+        return groups;
+    }
+
+    private static byte[] writeGroup(List<Object> objects) throws IOException {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(blob))) {
+            out.writeInt(objects.size());
+            for (Object obj : objects) {
+                if (obj instanceof EntityTypeType) {
+                    EntityTypeType entityType = (EntityTypeType) obj;
+                    out.writeByte(ENTITY_TYPE);
+                    out.writeUTF(entityType.getName());
+                    List<PropertyRefType> refs = entityType.getKey().getPropertyRef();
+                    out.writeInt(refs.size());
+                    for (PropertyRefType ref : refs) {
+                        out.writeUTF(ref.getName());
+                    }
+                    writeProperties(out, entityType.getProperty());
+                } else if (obj instanceof ComplexTypeType) {
+                    ComplexTypeType complexType = (ComplexTypeType) obj;
+                    out.writeByte(COMPLEX_TYPE);
+                    out.writeUTF(complexType.getName());
+                    writeProperties(out, complexType.getProperty());
+                } else {
+                    AssociationType association = (AssociationType) obj;
+                    out.writeByte(ASSOCIATION);
+                    out.writeUTF(association.getName());
+                    out.writeInt(association.getEnd().size());
+                    for (EndType end : association.getEnd()) {
+                        out.writeUTF(end.getRole());
+                        out.writeUTF(end.getType());
+                    }
+                }
+            }
+        }
+        return blob.toByteArray();
+    }
+
+    private static List<Object> readGroup(FileChannel channel, long offset, int length, Path path) throws IOException {
+        ByteBuffer buf = readFully(channel, offset, length, path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(buf.array()))))) {
+            int count = in.readInt();
+            List<Object> objects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte kind = in.readByte();
+                switch (kind) {
+                    case ENTITY_TYPE: {
+                        EntityTypeType entityType = new EntityTypeType();
+                        entityType.setName(in.readUTF());
+                        KeyType key = new KeyType();
+                        int refs = in.readInt();
+                        for (int j = 0; j < refs; j++) {
+                            PropertyRefType ref = new PropertyRefType();
+                            ref.setName(in.readUTF());
+                            key.getPropertyRef().add(ref);
+                        }
+                        entityType.setKey(key);
+                        readProperties(in, entityType.getProperty());
+                        objects.add(entityType);
+                        break;
+                    }
+                    case COMPLEX_TYPE: {
+                        ComplexTypeType complexType = new ComplexTypeType();
+                        complexType.setName(in.readUTF());
+                        readProperties(in, complexType.getProperty());
+                        objects.add(complexType);
+                        break;
+                    }
+                    case ASSOCIATION: {
+                        AssociationType association = new AssociationType();
+                        association.setName(in.readUTF());
+                        int ends = in.readInt();
+                        for (int j = 0; j < ends; j++) {
+                            EndType end = new EndType();
+                            end.setRole(in.readUTF());
+                            end.setType(in.readUTF());
+                            association.getEnd().add(end);
+                        }
+                        objects.add(association);
+                        break;
+                    }
+                    default:
+                        throw new IOException("Снимок метаданных повреждён: " + path);
+                }
+            }
+            return objects;
+        }
+    }
+
+    private static EdmxType toEdmx(List<Object> objects) {
+        SchemaType schema = new SchemaType();
+        schema.getEntityTypeOrComplexTypeOrAssociation().addAll(objects);
+        DataServicesType dataServices = new DataServicesType();
+        dataServices.setSchema(schema);
+        EdmxType edmx = new EdmxType();
+        edmx.setDataServices(dataServices);
+        return edmx;
+    }
+
+    private static void writeProperties(DataOutputStream out, List<PropertyType> properties) throws IOException {
+        out.writeInt(properties.size());
+        for (PropertyType prop : properties) {
+            out.writeUTF(prop.getName());
+            out.writeUTF(prop.getType());
+        }
+    }
+
+    private static void readProperties(DataInputStream in, List<PropertyType> properties) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            PropertyType prop = new PropertyType();
+            prop.setName(in.readUTF());
+            prop.setType(in.readUTF());
+            properties.add(prop);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Заголовок файла снимка
+    private static final class Header {
+        String digest;
+        String eTag;
+        String lastModified;
+        // Размеры сжатых групп по видам объектов в порядке их следования в файле
+        final Map<String, Integer> groups = new LinkedHashMap<>();
+        // Смещение первой группы от начала файла
+        long dataOffset;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.jaxb;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Ошибка разбора ответа REST-сервиса 1С: ответ не соответствует ожидаемому формату.
+ * <p>
+ * В отличие от других ошибок обработки запроса, не связана с соединением и не устраняется
+ * повторением запроса.
+ *
+ * @author Kirill Mikhaylov
+ */
+public class ResponseFormatException extends ProcessingException {
+
+    public ResponseFormatException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+
+}
@@ -19,19 +19,26 @@
 
 package ru.datareducer.dataservice.jaxb;
 
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.apache.connector.ApacheHttpClientBuilderConfigurator;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
-import ru.datareducer.dataservice.jaxb.atom.Feed;
+import ru.datareducer.dataservice.client.ConnectionParams;
 import ru.datareducer.dataservice.jaxb.csdl.EdmxType;
-import ru.datareducer.dataservice.jaxb.register.Result;
 
-import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyReader;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -40,6 +47,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 /**
  * Создает новый экземпляр клиента REST-сервиса 1С. Регистрирует компонент
@@ -49,94 +58,107 @@ import java.lang.reflect.Type;
  * @author Kirill Mikhaylov
  */
 public class RestClientBuilder {
+    // Пул демаршаллеров. Контекст JAXB создаётся однократно и используется всеми экземплярами клиента.
+    private static final UnmarshallerPool metadataUnmarshallers = new UnmarshallerPool(EdmxType.class);
 
     private RestClientBuilder() {
     }
 
     /**
-     * Создает новый экземпляр клиента REST-сервиса 1С.
+     * Создает новый экземпляр клиента REST-сервиса 1С, работающий через пул постоянных соединений
+     * Apache HttpClient. Пул закрывается вместе с клиентом.
      *
+     * @param connectionParams  Параметры подключения к REST-сервису 1С
+     * @param connectionManager Пул соединений, созданный методом {@link #createConnectionManager(ConnectionParams)}
      * @return клиент REST-сервиса 1С
      */
-    public static Client build() {
-        return ClientBuilder.newBuilder().register(HttpAuthenticationFeature.basicBuilder().build())
-                .register(MetadataReader.class)
-                .register(AtomFeedReader.class)
-                .register(VirtualRegisterReader.class).build();
-    }
-
-    /*
-     * MessageBodyReader для описания метаданных
-     */
-    private static class MetadataReader implements MessageBodyReader<EdmxType> {
-
-        @Override
-        public boolean isReadable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType) {
-            return aClass == EdmxType.class;
+    public static Client build(ConnectionParams connectionParams, HttpClientConnectionManager connectionManager) {
+        if (connectionParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'connectionParams': null");
         }
-
-        @Override
-        public EdmxType readFrom(Class<EdmxType> aClass, Type type, Annotation[] annotations,
-                                 MediaType mediaType, MultivaluedMap<String, String> multivaluedMap,
-                                 InputStream inputStream) throws IOException, WebApplicationException {
-            try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(EdmxType.class);
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                JAXBElement<EdmxType> schema = unmarshaller.unmarshal(new StreamSource(inputStream), EdmxType.class);
-                return schema.getValue();
-            } catch (JAXBException ex) {
-                throw new ProcessingException("Ошибка десериализации описания интерфейса OData", ex);
-            }
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("Значение параметра 'connectionManager': null");
+        }
+        final long keepAlive = connectionParams.getKeepAlive().toMillis();
+
+        ClientConfig config = new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                // Пулом соединений владеет DataServiceClient. Иначе его закрывает любой из экземпляров
+                // коннектора, создаваемых Jersey для конфигурации клиента, в том числе при сборке мусора.
+                .property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true)
+                .property(ApacheClientProperties.KEEPALIVE_STRATEGY, (ConnectionKeepAliveStrategy) (response, context) -> {
+                    // Время, объявленное сервером в заголовке Keep-Alive, не может превышать заданное в настройках.
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+                })
+                .property(ClientProperties.CONNECT_TIMEOUT, (int) connectionParams.getConnectTimeout().toMillis())
+                .property(ClientProperties.READ_TIMEOUT, (int) connectionParams.getReadTimeout().toMillis())
+                // Асинхронные запросы выполняются блокирующим коннектором, поэтому потоков больше,
+                // чем соединений в пуле, не требуется.
+                .property(ClientProperties.ASYNC_THREADPOOL_SIZE, connectionParams.getMaxConnections());
+
+        // HttpClient сам добавляет заголовок "Accept-Encoding: gzip,deflate" и распаковывает ответ
+        // потоково, по мере его чтения парсером. Если сжатие не требуется, это поведение отключается.
+        if (!connectionParams.isCompression()) {
+            config.register((ApacheHttpClientBuilderConfigurator) HttpClientBuilder::disableContentCompression);
         }
+
+        return ClientBuilder.newBuilder().withConfig(config)
+                .register(HttpAuthenticationFeature.basicBuilder().build())
+                .register(MetadataReader.class).build();
     }
 
-    /*
-     * MessageBodyReader для формата Atom
+    /**
+     * Создает пул соединений с сервером 1С. Все соединения пула относятся к одному серверу,
+     * поэтому ограничение на сервер совпадает с общим ограничением.
+     *
+     * @param connectionParams Параметры подключения к REST-сервису 1С
+     * @return Пул соединений
      */
-    private static class AtomFeedReader implements MessageBodyReader<Feed> {
-
-        @Override
-        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-            return type == Feed.class;
-        }
-
-        @Override
-        public Feed readFrom(Class<Feed> type, Type genericType, Annotation[] annotations, MediaType mediaType,
-                             MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
-            try {
-                JAXBContext jaxbContext = JAXBContext.newInstance("ru.datareducer.dataservice.jaxb.atom");
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                JAXBElement<Feed> feed = unmarshaller.unmarshal(new StreamSource(entityStream), Feed.class);
-                return feed.getValue();
-            } catch (JAXBException ex) {
-                throw new ProcessingException("Ошибка десериализации ленты Atom", ex);
-            }
+    public static PoolingHttpClientConnectionManager createConnectionManager(ConnectionParams connectionParams) {
+        if (connectionParams == null) {
+            throw new IllegalArgumentException("Значение параметра 'connectionParams': null");
         }
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(connectionParams.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(connectionParams.getMaxConnections());
+        return connectionManager;
     }
 
     /*
-     * MessageBodyReader для виртуальных таблиц регистров 1С
+     * MessageBodyReader для описания метаданных. Контрольная сумма описания вычисляется
+     * по мере его демаршализации, поэтому ответ сервера читается однократно и не буферизуется.
      */
-    private static class VirtualRegisterReader implements MessageBodyReader<Result> {
+    private static class MetadataReader implements MessageBodyReader<MetadataSnapshot> {
 
         @Override
-        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-            return type == Result.class;
+        public boolean isReadable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType) {
+            return aClass == MetadataSnapshot.class;
         }
 
         @Override
-        public Result readFrom(Class<Result> type, Type genericType, Annotation[] annotations, MediaType mediaType,
-                               MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        public MetadataSnapshot readFrom(Class<MetadataSnapshot> aClass, Type type, Annotation[] annotations,
+                                         MediaType mediaType, MultivaluedMap<String, String> multivaluedMap,
+                                         InputStream inputStream) throws IOException, WebApplicationException {
+            MessageDigest messageDigest = MetadataSnapshot.newDigest();
+            DigestInputStream digestStream = new DigestInputStream(inputStream, messageDigest);
+            Unmarshaller unmarshaller = null;
             try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(Result.class);
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                JAXBElement<Result> result = unmarshaller.unmarshal(new StreamSource(entityStream), Result.class);
-                return result.getValue();
+                unmarshaller = metadataUnmarshallers.acquire();
+                JAXBElement<EdmxType> schema = unmarshaller.unmarshal(new StreamSource(digestStream), EdmxType.class);
+                // Контрольная сумма вычисляется по всему ответу, включая данные после корневого элемента
+                byte[] buf = new byte[8192];
+                while (digestStream.read(buf) != -1) {
+                    // Дочитываем поток
+                }
+                return new MetadataSnapshot(schema.getValue(), MetadataSnapshot.digest(messageDigest), null, null);
             } catch (JAXBException ex) {
-                throw new ProcessingException("Ошибка десериализации записей виртуальной таблицы регистра 1С", ex);
+                throw new ResponseFormatException("Ошибка десериализации описания интерфейса OData", ex);
+            } finally {
+                metadataUnmarshallers.release(unmarshaller);
             }
         }
-
     }
 
 }
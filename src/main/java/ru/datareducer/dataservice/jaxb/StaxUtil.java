@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.jaxb;
+
+import ru.datareducer.dataservice.entity.DataServiceEntity;
+import ru.datareducer.dataservice.entity.Field;
+
+import javax.ws.rs.ProcessingException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Функции потокового разбора ответов REST-сервиса 1С.
+ * <p>
+ * В отличие от {@link JaxbUtil}, ответ не демаршализуется в промежуточную объектную модель:
+ * значения полей разбираются непосредственно из потока HTTP-ответа и помещаются в строки результата.
+ *
+ * @author Kirill Mikhaylov
+ */
+public class StaxUtil {
+    // Пространство имён Atom
+    private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+    // Пространство имён метаданных OData
+    private static final String METADATA_NS = "http://schemas.microsoft.com/ado/2007/08/dataservices/metadata";
+
+    private static final XMLInputFactory xmlInputFactory;
+
+    static {
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private StaxUtil() {
+    }
+
+    /**
+     * Разбирает ленту Atom из потока HTTP-ответа.
+     * Поток не закрывается.
+     *
+     * @param entityStream Поток HTTP-ответа
+     * @param entity       Описание ресурса, данные которого представлены в ленте Atom
+     * @return коллекция полей и их значений.
+     */
+    public static List<Map<Field, Object>> parseFeed(InputStream entityStream, DataServiceEntity entity) {
+        List<Map<Field, Object>> result = new ArrayList<>();
+        ColumnTable columns = new ColumnTable(entity);
+        XMLStreamReader reader = null;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(entityStream);
+            boolean inContent = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String localName = reader.getLocalName();
+                    if (localName.equals("content") && ATOM_NS.equals(reader.getNamespaceURI())) {
+                        inContent = true;
+                    } else if (inContent && localName.equals("properties") && METADATA_NS.equals(reader.getNamespaceURI())) {
+                        result.add(readProperties(reader, columns));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (reader.getLocalName().equals("content") && ATOM_NS.equals(reader.getNamespaceURI())) {
+                        inContent = false;
+                    }
+                }
+            }
+        } catch (XMLStreamException ex) {
+            throw parseError("Ошибка десериализации ленты Atom", ex);
+        } finally {
+            close(reader);
+        }
+        return result;
+    }
+
+    /**
+     * Разбирает записи виртуальной таблицы регистра 1С из потока HTTP-ответа.
+     * Поток не закрывается.
+     *
+     * @param entityStream Поток HTTP-ответа
+     * @param entity       Описание виртуальной таблицы
+     * @return коллекция полей и их значений.
+     */
+    public static List<Map<Field, Object>> parseResult(InputStream entityStream, DataServiceEntity entity) {
+        List<Map<Field, Object>> result = new ArrayList<>();
+        ColumnTable columns = new ColumnTable(entity);
+        XMLStreamReader reader = null;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(entityStream);
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    // Записи таблицы - элементы element, вложенные в корневой элемент
+                    if (depth == 2 && reader.getLocalName().equals("element")) {
+                        result.add(readElement(reader, columns));
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException ex) {
+            throw parseError("Ошибка десериализации записей виртуальной таблицы регистра 1С", ex);
+        } finally {
+            close(reader);
+        }
+        return result;
+    }
+
+    // Ошибка чтения потока (обрыв соединения, таймаут) отличается от ошибки формата ответа:
+    // первая может быть устранена повторением запроса, вторая - нет.
+    private static ProcessingException parseError(String msg, XMLStreamException ex) {
+        if (ex.getNestedException() instanceof IOException) {
+            return new ProcessingException(msg, ex.getNestedException());
+        }
+        return new ResponseFormatException(msg, ex);
+    }
+
+    // Разбирает запись виртуальной таблицы регистра. Курсор должен указывать на начало элемента записи.
+    private static Map<Field, Object> readElement(XMLStreamReader reader, ColumnTable columns) throws XMLStreamException {
+        Map<Field, Object> row = new LinkedHashMap<>(columns.rowCapacity());
+        int column = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            Field field = columns.resolve(column++, reader.getLocalName());
+            if ("true".equals(reader.getAttributeValue(METADATA_NS, "null"))) {
+                // Значение не разбирается
+                skipElement(reader);
+                row.put(field, null);
+            } else {
+                row.put(field, field.getFieldType().parseValue(readText(reader)));
+            }
+        }
+        columns.setRowSize(row.size());
+        return row;
+    }
+
+    // Разбирает элемент m:properties записи ленты Atom. Курсор должен указывать на начало элемента.
+    private static Map<Field, Object> readProperties(XMLStreamReader reader, ColumnTable columns) throws XMLStreamException {
+        Map<Field, Object> row = new LinkedHashMap<>(columns.rowCapacity());
+        int column = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String fieldName = reader.getLocalName();
+            if (fieldName.equals("ValueType")) {
+                // Пропускаем (Свойство "Тип значения характеристик" плана видов характеристик, имеет составной тип OData)
+                skipElement(reader);
+                continue;
+            }
+            if (reader.getAttributeValue(METADATA_NS, "type") != null) {
+                // Это табличная часть
+                skipElement(reader);
+                continue;
+            }
+            Field field = columns.resolve(column++, fieldName);
+            boolean isNull = "true".equals(reader.getAttributeValue(METADATA_NS, "null"));
+            String value = readText(reader);
+            row.put(field, isNull || value.isEmpty() ? null : field.getFieldType().parseValue(value));
+        }
+        columns.setRowSize(row.size());
+        return row;
+    }
+
+    // Возвращает текстовое содержимое текущего элемента вместе с вложенными элементами
+    // и перемещает курсор на конец элемента. Курсор должен указывать на начало элемента.
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = null;
+        String text = "";
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                if (text.isEmpty()) {
+                    text = reader.getText();
+                } else {
+                    if (sb == null) {
+                        sb = new StringBuilder(text);
+                    }
+                    sb.append(reader.getText());
+                }
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    // Пропускает текущий элемент вместе с вложенными элементами. Курсор должен указывать на начало элемента.
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Не влияет на результат разбора.
+            }
+        }
+    }
+
+    /*
+     * Таблица соответствия столбцов ответа полям ресурса.
+     * Поля записей следуют в ответе в одном и том же порядке, поэтому поле ресурса разрешается
+     * по имени один раз для каждого столбца, а не для каждого значения.
+     */
+    private static final class ColumnTable {
+        private final DataServiceEntity entity;
+        private String[] names = new String[16];
+        private Field[] fields = new Field[16];
+        private int rowSize;
+
+        ColumnTable(DataServiceEntity entity) {
+            this.entity = entity;
+        }
+
+        Field resolve(int column, String name) {
+            if (column >= names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+                fields = Arrays.copyOf(fields, fields.length * 2);
+            }
+            if (name.equals(names[column])) {
+                return fields[column];
+            }
+            Field field = entity.getFieldByName(name);
+            if (field == null) {
+                throw new IllegalStateException("Неизвестное поле: " + name);
+            }
+            names[column] = name;
+            fields[column] = field;
+            return field;
+        }
+
+        void setRowSize(int rowSize) {
+            this.rowSize = rowSize;
+        }
+
+        // Начальная ёмкость карты значений строки, исключающая её расширение
+        int rowCapacity() {
+            return rowSize == 0 ? 16 : (int) (rowSize / 0.75f) + 1;
+        }
+    }
+
+}
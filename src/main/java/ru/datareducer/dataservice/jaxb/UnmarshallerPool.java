@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.dataservice.jaxb;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Ограниченный пул демаршаллеров JAXB.
+ * <p>
+ * Контекст JAXB создаётся однократно при первом обращении и используется совместно всеми потоками.
+ * Экземпляры Unmarshaller не являются потокобезопасными, поэтому каждый из них в каждый момент
+ * времени используется только одним потоком и после использования возвращается в пул.
+ *
+ * @author Kirill Mikhaylov
+ */
+final class UnmarshallerPool {
+    // Максимальное количество демаршаллеров, хранимых в пуле
+    private static final int DEFAULT_CAPACITY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final ContextFactory contextFactory;
+    private final BlockingQueue<Unmarshaller> unmarshallers;
+
+    private volatile JAXBContext jaxbContext;
+
+    /**
+     * Создаёт пул демаршаллеров для заданных классов.
+     *
+     * @param classes Классы, включаемые в контекст JAXB.
+     */
+    UnmarshallerPool(Class<?>... classes) {
+        this(() -> JAXBContext.newInstance(classes));
+    }
+
+    private UnmarshallerPool(ContextFactory contextFactory) {
+        this.contextFactory = contextFactory;
+        this.unmarshallers = new ArrayBlockingQueue<>(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Возвращает контекст JAXB, создавая его при первом обращении.
+     *
+     * @return Контекст JAXB.
+     * @throws JAXBException
+     */
+    JAXBContext getContext() throws JAXBException {
+        JAXBContext result = jaxbContext;
+        if (result == null) {
+            synchronized (this) {
+                result = jaxbContext;
+                if (result == null) {
+                    result = contextFactory.create();
+                    jaxbContext = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Извлекает демаршаллер из пула. Если пул пуст, создаёт новый демаршаллер.
+     * Полученный демаршаллер должен быть возвращён в пул методом {@link #release(Unmarshaller)}.
+     *
+     * @return Демаршаллер.
+     * @throws JAXBException
+     */
+    Unmarshaller acquire() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        if (unmarshaller == null) {
+            unmarshaller = getContext().createUnmarshaller();
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Возвращает демаршаллер в пул. Если пул заполнен, демаршаллер отбрасывается.
+     *
+     * @param unmarshaller Демаршаллер.
+     */
+    void release(Unmarshaller unmarshaller) {
+        if (unmarshaller != null) {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ContextFactory {
+        JAXBContext create() throws JAXBException;
+    }
+
+}
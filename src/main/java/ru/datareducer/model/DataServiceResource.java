@@ -23,6 +23,7 @@ import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import ru.datareducer.dataservice.client.ClientException;
+import ru.datareducer.dataservice.client.PagingParams;
 import ru.datareducer.dataservice.entity.*;
 
 import javax.xml.bind.annotation.*;
@@ -30,6 +31,8 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static ru.datareducer.dataservice.client.DataServiceClient.DATE_TIME_FORMATTER;
 
@@ -42,13 +45,20 @@ import static ru.datareducer.dataservice.client.DataServiceClient.DATE_TIME_FORM
 @XmlType(name = "DataServiceResource", propOrder = {"infoBase", "dataServiceEntity", "presentedFields", "requestedFields",
         "condition", "accountCondition", "balanceAccountCondition", "extraDimensions", "balancedExtraDimensions",
         "orderByList", "top", "mainRegisterDimensionsList", "baseRegisterDimensionsList", "viewPointsList", "slicePeriod",
-        "balancePeriod", "turnoversStartPeriod", "turnoversEndPeriod", "allowedOnly", "cacheLifetime"})
+        "balancePeriod", "turnoversStartPeriod", "turnoversEndPeriod", "allowedOnly", "cacheLifetime", "pageSize",
+        "maxParallelPages", "shardingPeriod", "maxParallelShards", "periodBuckets", "deltaSync"})
 public class DataServiceResource {
     private final IntegerProperty id = new SimpleIntegerProperty();
     private final StringProperty name = new SimpleStringProperty("");
     private final BooleanProperty allowedOnly = new SimpleBooleanProperty();
     // Время кэширования в секундах
     private final LongProperty cacheLifetime = new SimpleLongProperty(0L);
+    // Размер страницы при постраничном получении данных. 0 - данные получаются одним запросом.
+    private final IntegerProperty pageSize = new SimpleIntegerProperty();
+    // Максимальное количество страниц, запрашиваемых одновременно.
+    private final IntegerProperty maxParallelPages = new SimpleIntegerProperty(4);
+    // Обновлять данные справочников и документов синхронизацией изменений по версиям данных.
+    private final BooleanProperty deltaSync = new SimpleBooleanProperty();
 
     private InfoBase infoBase;
     private DataServiceEntity dataServiceEntity;
@@ -69,6 +79,12 @@ public class DataServiceResource {
     // Параметры виртуальной таблицы оборотов
     private String turnoversStartPeriod;
     private String turnoversEndPeriod;
+    // Длина части периода при разбиении запроса к виртуальной таблице оборотов. null - без разбиения.
+    private ShardingPeriod shardingPeriod;
+    // Максимальное количество одновременно выполняемых запросов за части периода.
+    private final IntegerProperty maxParallelShards = new SimpleIntegerProperty(4);
+    // Кэшировать обороты по календарным частям периода, общим для запросов за пересекающиеся периоды.
+    private final BooleanProperty periodBuckets = new SimpleBooleanProperty();
 
     // Параметры виртуальной таблицы оборотов регистра бухгалтерии
     private Condition accountCondition;
@@ -177,13 +193,107 @@ public class DataServiceResource {
         return parameterSet;
     }
 
+    /**
+     * Выполняет запрос к ресурсу REST-сервиса 1С и возвращает полученные данные.
+     *
+     * @return Данные ресурса.
+     * @throws ClientException
+     * @throws UndefinedParameterException Если не задано значение параметра запроса.
+     */
     public DataServiceResponse getResourceData() throws ClientException, UndefinedParameterException {
+        try {
+            return getResourceDataAsync().join();
+        } catch (CompletionException e) {
+            throw ClientException.unwrap(e);
+        }
+    }
+
+    /**
+     * Асинхронно выполняет запрос к ресурсу REST-сервиса 1С.
+     *
+     * @return Данные ресурса. В случае ошибки завершается исключением ClientException.
+     * @throws UndefinedParameterException Если не задано значение параметра запроса.
+     */
+    public CompletableFuture<DataServiceResponse> getResourceDataAsync() throws UndefinedParameterException {
+        return getResourceDataAsync(null);
+    }
+
+    /**
+     * Асинхронно выполняет запрос к ресурсу REST-сервиса 1С, получая только те поля,
+     * на которые ссылается скрипт. Виртуальные таблицы запрашиваются со всеми выбранными полями.
+     *
+     * @param references Имена, на которые ссылается скрипт, или null, если запрашиваются все выбранные поля.
+     * @return Данные ресурса. В случае ошибки завершается исключением ClientException.
+     * @throws UndefinedParameterException Если не задано значение параметра запроса.
+     */
+    CompletableFuture<DataServiceResponse> getResourceDataAsync(ScriptReferences references) throws UndefinedParameterException {
+        return getResourceDataAsync(references, Duration.ZERO);
+    }
+
+    /**
+     * Асинхронно выполняет запрос к ресурсу REST-сервиса 1С для прогрева кэша.
+     *
+     * @param references   Имена, на которые ссылается скрипт, или null, если запрашиваются все выбранные поля.
+     * @param refreshAhead Остаток времени кэширования, при котором данные в кэше обновляются.
+     *                     Ноль - данные из кэша возвращаются без обновления.
+     * @return Данные ресурса. В случае ошибки завершается исключением ClientException.
+     * @throws UndefinedParameterException Если не задано значение параметра запроса.
+     */
+    CompletableFuture<DataServiceResponse> getResourceDataAsync(ScriptReferences references, Duration refreshAhead)
+            throws UndefinedParameterException {
+        DataServiceRequest request = buildRequest(references);
+
+        if (isPeriodBuckets() && PeriodShards.isBucketable(request)) {
+            return infoBase.getBucketedAsync((TurnoversVirtualTable) request,
+                    shardingPeriod != null ? shardingPeriod : ShardingPeriod.MONTH, Math.max(1, getMaxParallelShards()),
+                    refreshAhead);
+        }
+        if (shardingPeriod != null && request instanceof TurnoversVirtualTable) {
+            return infoBase.getAsync((TurnoversVirtualTable) request, shardingPeriod, Math.max(1, getMaxParallelShards()),
+                    refreshAhead);
+        }
+        if (isDeltaSync() && request instanceof VersionedObject) {
+            return infoBase.syncAsync((VersionedObject) request, getPagingParams(), refreshAhead);
+        }
+
+        return infoBase.getAsync(request, getPagingParams(), refreshAhead);
+    }
+
+    /**
+     * Формирует запрос к ресурсу REST-сервиса 1С с текущими значениями параметров.
+     *
+     * @return Запрос к ресурсу.
+     * @throws UndefinedParameterException Если не задано значение параметра запроса.
+     */
+    public DataServiceRequest buildRequest() throws UndefinedParameterException {
+        return buildRequest(null);
+    }
+
+    private DataServiceRequest buildRequest(ScriptReferences references) throws UndefinedParameterException {
         DataServiceRequest request;
 
         LinkedHashSet<Field> fields = new LinkedHashSet<>(requestedFields);
         String name = dataServiceEntity.getName();
         boolean allFields = presentedFields.isEmpty();
 
+        // Оставляем только поля, на которые ссылается скрипт. Если скрипт не упоминает ни одного поля,
+        // набор данных используется целиком (например, nrow(df)), и запрос не меняется.
+        // Поля виртуальной таблицы задают группировку её записей, поэтому состав полей
+        // виртуальных таблиц не сокращается.
+        if (references != null && !dataServiceEntity.isVirtual()) {
+            LinkedHashSet<Field> used = new LinkedHashSet<>();
+            for (Field field : fields) {
+                if (references.isReferenced(field.getName())
+                        || (field.isPresentation() && references.isReferenced(field.getPresentationName()))) {
+                    used.add(field);
+                }
+            }
+            if (!used.isEmpty() && used.size() < fields.size()) {
+                fields = used;
+                allFields = false;
+            }
+        }
+
         Instant slicePeriod = getInstantParameterValue(this.slicePeriod);
         Instant balancePeriod = getInstantParameterValue(this.balancePeriod);
         Instant turnoversStartPeriod = getInstantParameterValue(this.turnoversStartPeriod);
@@ -306,7 +416,20 @@ public class DataServiceResource {
 
         request.setCacheLifetime(Duration.ofSeconds(getCacheLifetime()));
 
-        return infoBase.get(request);
+        return request;
+    }
+
+    /**
+     * Возвращает параметры постраничного получения данных или <code>null</code>,
+     * если данные ресурса получаются одним запросом.
+     *
+     * @return Параметры постраничного получения данных.
+     */
+    public PagingParams getPagingParams() {
+        if (getPageSize() <= 0) {
+            return null;
+        }
+        return new PagingParams(getPageSize(), Math.max(1, getMaxParallelPages()));
     }
 
     private Instant getInstantParameterValue(String value) throws UndefinedParameterException {
@@ -464,6 +587,80 @@ public class DataServiceResource {
         cacheLifetimeProperty().set(cacheLifetime);
     }
 
+    public IntegerProperty pageSizeProperty() {
+        return pageSize;
+    }
+
+    @XmlElement(name = "PageSize")
+    public int getPageSize() {
+        return pageSize.get();
+    }
+
+    public void setPageSize(int pageSize) {
+        pageSizeProperty().set(pageSize);
+    }
+
+    public IntegerProperty maxParallelPagesProperty() {
+        return maxParallelPages;
+    }
+
+    @XmlElement(name = "MaxParallelPages")
+    public int getMaxParallelPages() {
+        return maxParallelPages.get();
+    }
+
+    public void setMaxParallelPages(int maxParallelPages) {
+        maxParallelPagesProperty().set(maxParallelPages);
+    }
+
+    @XmlElement(name = "ShardingPeriod")
+    public ShardingPeriod getShardingPeriod() {
+        return shardingPeriod;
+    }
+
+    public void setShardingPeriod(ShardingPeriod shardingPeriod) {
+        this.shardingPeriod = shardingPeriod;
+    }
+
+    public IntegerProperty maxParallelShardsProperty() {
+        return maxParallelShards;
+    }
+
+    @XmlElement(name = "MaxParallelShards")
+    public int getMaxParallelShards() {
+        return maxParallelShards.get();
+    }
+
+    public void setMaxParallelShards(int maxParallelShards) {
+        maxParallelShardsProperty().set(maxParallelShards);
+    }
+
+    public BooleanProperty periodBucketsProperty() {
+        return periodBuckets;
+    }
+
+    @XmlElement(name = "PeriodBuckets")
+    public boolean isPeriodBuckets() {
+        return periodBuckets.get();
+    }
+
+    public void setPeriodBuckets(boolean periodBuckets) {
+        periodBucketsProperty().set(periodBuckets);
+    }
+
+    public BooleanProperty deltaSyncProperty() {
+        return deltaSync;
+    }
+
+    @XmlElement(name = "DeltaSync")
+    public boolean isDeltaSync() {
+        return deltaSync.get();
+    }
+
+    public void setDeltaSync(boolean deltaSync) {
+        deltaSyncProperty().set(deltaSync);
+    }
+
     public BooleanProperty allowedOnlyProperty() {
         return allowedOnly;
     }
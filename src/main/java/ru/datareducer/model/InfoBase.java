@@ -19,26 +19,52 @@
 
 package ru.datareducer.model;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ehcache.Cache;
-import org.ehcache.CacheManager;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
-import ru.datareducer.dataservice.cache.CacheExpiryPolicy;
+import ru.datareducer.dataservice.cache.CachedDataTable;
+import ru.datareducer.dataservice.cache.CacheService;
+import ru.datareducer.dataservice.cache.RefreshParams;
+import ru.datareducer.Reducer;
 import ru.datareducer.dataservice.client.ClientException;
 import ru.datareducer.dataservice.client.ConnectionParams;
 import ru.datareducer.dataservice.client.DataServiceClient;
-import ru.datareducer.dataservice.entity.DataServiceEntity;
-import ru.datareducer.dataservice.entity.DataServiceRequest;
-import ru.datareducer.dataservice.entity.DataServiceResponse;
-import ru.datareducer.dataservice.entity.MetadataTree;
+import ru.datareducer.dataservice.client.PagingParams;
+import ru.datareducer.dataservice.client.RetryParams;
+import ru.datareducer.dataservice.client.ThrottlingParams;
+import ru.datareducer.dataservice.entity.*;
+import ru.datareducer.dataservice.jaxb.JaxbUtil;
+import ru.datareducer.dataservice.jaxb.MetadataSnapshot;
 
 import javax.xml.bind.annotation.*;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Объект доступа к данным и метаданным информационой базы 1С.
@@ -48,7 +74,10 @@ import java.util.Map;
  * @author Kirill Mikhaylov
  */
 @XmlRootElement(name = "InfoBase")
-@XmlType(name = "InfoBase", propOrder = {"host", "base", "user", "password"})
+@XmlType(name = "InfoBase", propOrder = {"host", "base", "user", "password", "maxConnections",
+        "connectTimeout", "readTimeout", "keepAlive", "compression", "maxConcurrentRequests", "adaptiveThrottling",
+        "latencyThreshold", "maxRetries", "retryBackoff", "maxRetryBackoff", "failureThreshold", "circuitOpenTime",
+        "lazyMetadata"})
 public final class InfoBase implements DataServiceEntity {
     // Тип поля (строка) обусловлен требованиями JAXB для XML ID.
     private final StringProperty id = new SimpleStringProperty("");
@@ -59,14 +88,55 @@ public final class InfoBase implements DataServiceEntity {
     private final StringProperty user = new SimpleStringProperty("");     // Имя пользователя REST-сервиса 1C.
     private final StringProperty password = new SimpleStringProperty(""); // Пароль пользователя REST-сервиса 1C.
 
+    // Настройки пула соединений с сервером 1С.
+    private final IntegerProperty maxConnections = new SimpleIntegerProperty(ConnectionParams.DEFAULT_MAX_CONNECTIONS);
+    private final IntegerProperty connectTimeout = new SimpleIntegerProperty((int) ConnectionParams.DEFAULT_CONNECT_TIMEOUT.getSeconds()); // Секунд.
+    private final IntegerProperty readTimeout = new SimpleIntegerProperty((int) ConnectionParams.DEFAULT_READ_TIMEOUT.getSeconds());       // Секунд.
+    private final IntegerProperty keepAlive = new SimpleIntegerProperty((int) ConnectionParams.DEFAULT_KEEP_ALIVE.getSeconds());           // Секунд.
+    // Запрашивать сжатие ответов сервера 1С.
+    private final BooleanProperty compression = new SimpleBooleanProperty(ConnectionParams.DEFAULT_COMPRESSION);
+    // Ограничение количества одновременных запросов к информационной базе 1С. Ноль - равно MaxConnections.
+    private final IntegerProperty maxConcurrentRequests = new SimpleIntegerProperty(0);
+    private final BooleanProperty adaptiveThrottling = new SimpleBooleanProperty(false);
+    private final IntegerProperty latencyThreshold = new SimpleIntegerProperty(0); // Секунд. Ноль - не учитывается.
+    // Повтор запросов при временных ошибках и размыкание цепи при недоступности сервера 1С.
+    private final IntegerProperty maxRetries = new SimpleIntegerProperty(RetryParams.DEFAULT_MAX_RETRIES);
+    private final IntegerProperty retryBackoff = new SimpleIntegerProperty((int) RetryParams.DEFAULT_INITIAL_BACKOFF.getSeconds());   // Секунд.
+    private final IntegerProperty maxRetryBackoff = new SimpleIntegerProperty((int) RetryParams.DEFAULT_MAX_BACKOFF.getSeconds());   // Секунд.
+    private final IntegerProperty failureThreshold = new SimpleIntegerProperty(RetryParams.DEFAULT_FAILURE_THRESHOLD);
+    private final IntegerProperty circuitOpenTime = new SimpleIntegerProperty((int) RetryParams.DEFAULT_OPEN_DURATION.getSeconds()); // Секунд.
+    // Загружать объекты дерева метаданных из снимка по видам при первом обращении.
+    private final BooleanProperty lazyMetadata = new SimpleBooleanProperty(false);
+
     private Map<String, String> applicationParams;
 
     private MetadataTree metadataTree;
+    // Получатели уведомлений о замене дерева метаданных после фоновой проверки снимка.
+    private final List<Consumer<MetadataTree>> metadataTreeListeners = new CopyOnWriteArrayList<>();
 
     private DataServiceClient dataServiceClient;
 
-    private CacheManager cacheManager;
-    private Cache<DataServiceRequest, DataServiceResponse> cache;
+    // Служба кэшей приложения. Если не задана, создаётся собственная по параметрам приложения.
+    private CacheService cacheService;
+    private boolean ownCacheService;
+    // Выполняющиеся запросы к REST-сервису 1С.
+    private final ConcurrentMap<DataServiceRequest, CompletableFuture<DataServiceResponse>> inFlight = new ConcurrentHashMap<>();
+    // Поколение настроек подключения. Увеличивается при сбросе: результаты запросов,
+    // начатых до изменения адреса сервера, имени информационной базы или пользователя, не кэшируются.
+    private final AtomicLong generation = new AtomicLong();
+    // Запросы, результаты которых помещены в кэш в куче, по именам ресурсов и способы их выполнения.
+    // Из них выбираются результаты более узких запросов, а при устаревании они обновляются в фоне.
+    // Запросы, результаты которых вытеснены из кэша, удаляются при поиске.
+    private final ConcurrentMap<String, ConcurrentMap<DataServiceRequest, Supplier<CompletableFuture<DataServiceResponse>>>>
+            subsumptionSources = new ConcurrentHashMap<>();
+
+    // Каталог снимков метаданных по умолчанию
+    private static final String DEFAULT_METADATA_DIR = "./metadata";
+    // Файлы снимков, из которых деревья метаданных загружают объекты при первом обращении.
+    // Не удаляются до завершения работы приложения, даже если заменены снимками изменившихся метаданных.
+    private static final Set<Path> metadataSnapshotsInUse = ConcurrentHashMap.newKeySet();
+    // Каталог хранилища кэша по умолчанию
+    private static final String DEFAULT_CACHE_DIR = "./cache";
 
     private static final Logger log = LogManager.getFormatterLogger(InfoBase.class);
 
@@ -100,33 +170,215 @@ public final class InfoBase implements DataServiceEntity {
     }
 
     private void addListeners() {
-        host.addListener((observable, oldValue, newValue) -> this.close());
-        base.addListener((observable, oldValue, newValue) -> this.close());
-        user.addListener((observable, oldValue, newValue) -> this.close());
+        host.addListener((observable, oldValue, newValue) -> this.reset());
+        base.addListener((observable, oldValue, newValue) -> this.reset());
+        user.addListener((observable, oldValue, newValue) -> this.reset());
+        maxConnections.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        connectTimeout.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        readTimeout.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        keepAlive.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        compression.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        maxConcurrentRequests.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        adaptiveThrottling.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        latencyThreshold.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        maxRetries.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        retryBackoff.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        maxRetryBackoff.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        failureThreshold.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        circuitOpenTime.addListener((observable, oldValue, newValue) -> this.closeDataServiceClient());
+        lazyMetadata.addListener((observable, oldValue, newValue) -> this.resetMetadataTree());
     }
 
     /**
      * Выполняет загрузку дерева матаданных 1С, если не было загружено ранее.
+     * <p>
+     * Если на диске сохранён снимок метаданных информационной базы, дерево строится по нему,
+     * а актуальность снимка проверяется в фоновом режиме. Если установлен признак {@link #isLazyMetadata()},
+     * при построении дерева из снимка читается только заголовок, а объекты конфигурации каждого вида
+     * читаются из снимка при первом обращении к ним.
      *
      * @return Дерево метаданных 1С
      */
     public synchronized MetadataTree getMetadataTree() throws ClientException {
         if (metadataTree == null) {
-            metadataTree = loadMetadataTree();
+            MetadataSnapshot snapshot = readMetadataSnapshot();
+            if (snapshot != null) {
+                metadataTree = buildMetadataTree(snapshot);
+                revalidateMetadataSnapshot(snapshot, metadataTree);
+            } else {
+                metadataTree = loadMetadataTree();
+            }
         }
         return metadataTree;
     }
 
     /**
-     * Выполняет загрузку дерева матаданных 1С.
+     * Выполняет загрузку дерева матаданных 1С и сохраняет снимок метаданных на диск.
      *
      * @return Дерево метаданных 1С
      */
     public MetadataTree loadMetadataTree() throws ClientException {
-        metadataTree = getDataServiceClient().metadata();
+        MetadataSnapshot snapshot = getDataServiceClient().metadataSnapshot(null);
+        metadataTree = buildMetadataTree(writeMetadataSnapshot(snapshot));
         return metadataTree;
     }
 
+    private MetadataTree buildMetadataTree(MetadataSnapshot snapshot) {
+        if (isLazyMetadata() && !snapshot.isLoaded()) {
+            return JaxbUtil.parseEdmxLazily(snapshot);
+        }
+        return JaxbUtil.parseEdmx(snapshot.getEdmx());
+    }
+
+    // Проверяет, изменились ли метаданные с момента создания снимка, и при необходимости обновляет снимок и дерево.
+    private void revalidateMetadataSnapshot(MetadataSnapshot snapshot, MetadataTree tree) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                MetadataSnapshot actual = getDataServiceClient().metadataSnapshot(snapshot);
+                if (actual == snapshot) {
+                    return;
+                }
+                actual = writeMetadataSnapshot(actual);
+                if (actual.getDigest().equals(snapshot.getDigest())) {
+                    return;
+                }
+                MetadataTree actualTree = buildMetadataTree(actual);
+                synchronized (this) {
+                    if (metadataTree != tree) {
+                        return;
+                    }
+                    metadataTree = actualTree;
+                    log.info("Метаданные конфигурации 1С изменились. Дерево метаданных '%s' обновлено", getName());
+                }
+                for (Consumer<MetadataTree> listener : metadataTreeListeners) {
+                    listener.accept(actualTree);
+                }
+            } catch (ClientException | RuntimeException e) {
+                log.warn("Не удалось проверить актуальность снимка метаданных '%s': %s", getName(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Добавляет получателя уведомлений о замене дерева метаданных после фоновой проверки снимка.
+     * Уведомления передаются не в потоке JavaFX.
+     *
+     * @param listener Получатель нового дерева метаданных
+     */
+    public void addMetadataTreeListener(Consumer<MetadataTree> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Значение параметра 'listener': null");
+        }
+        metadataTreeListeners.add(listener);
+    }
+
+    public void removeMetadataTreeListener(Consumer<MetadataTree> listener) {
+        metadataTreeListeners.remove(listener);
+    }
+
+    private MetadataSnapshot readMetadataSnapshot() {
+        Path path;
+        try {
+            path = findMetadataSnapshotPath();
+        } catch (IOException e) {
+            log.warn("Не удалось найти снимок метаданных '%s': %s", getName(), e.getMessage());
+            return null;
+        }
+        if (path == null) {
+            return null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            MetadataSnapshot snapshot = isLazyMetadata() ? openMetadataSnapshot(path) : MetadataSnapshot.read(path);
+            log.info("Снимок метаданных '%s' загружен за %s мс", getName(), System.currentTimeMillis() - start);
+            deleteStaleMetadataSnapshots(path);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось прочитать снимок метаданных %s: %s", path, e.getMessage());
+            return null;
+        }
+    }
+
+    // Сохраняет снимок на диск. В режиме отложенной загрузки метаданных возвращает снимок,
+    // открытый из сохранённого файла, чтобы описание метаданных не удерживалось в памяти.
+    private MetadataSnapshot writeMetadataSnapshot(MetadataSnapshot snapshot) {
+        Path path = getMetadataSnapshotPath(snapshot.getDigest());
+        try {
+            snapshot.write(path);
+            deleteStaleMetadataSnapshots(path);
+            return isLazyMetadata() ? openMetadataSnapshot(path) : snapshot;
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить снимок метаданных %s: %s", path, e.getMessage());
+            return snapshot;
+        }
+    }
+
+    private static MetadataSnapshot openMetadataSnapshot(Path path) throws IOException {
+        metadataSnapshotsInUse.add(path.toAbsolutePath().normalize());
+        return MetadataSnapshot.open(path);
+    }
+
+    // Файл снимка определяется адресом сервера, именем информационной базы, пользователем
+    // и контрольной суммой метаданных. Снимок изменившихся метаданных записывается в новый файл,
+    // поэтому деревья, загружающие объекты из прежнего снимка, продолжают работать.
+    private Path getMetadataSnapshotPath(String digest) {
+        return getMetadataDir().resolve(getMetadataSnapshotKey() + "-" + digest.substring(0, 16) + ".snapshot");
+    }
+
+    // Возвращает последний сохранённый снимок метаданных информационной базы или null, если снимков нет.
+    private Path findMetadataSnapshotPath() throws IOException {
+        Path result = null;
+        long resultTime = Long.MIN_VALUE;
+        for (Path path : listMetadataSnapshots()) {
+            long time = Files.getLastModifiedTime(path).toMillis();
+            if (time > resultTime) {
+                result = path;
+                resultTime = time;
+            }
+        }
+        return result;
+    }
+
+    // Удаляет прежние снимки метаданных информационной базы, кроме открытых деревьями метаданных.
+    private void deleteStaleMetadataSnapshots(Path actual) {
+        try {
+            for (Path path : listMetadataSnapshots()) {
+                Path normalized = path.toAbsolutePath().normalize();
+                if (!normalized.equals(actual.toAbsolutePath().normalize()) && !metadataSnapshotsInUse.contains(normalized)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось удалить прежние снимки метаданных '%s': %s", getName(), e.getMessage());
+        }
+    }
+
+    private List<Path> listMetadataSnapshots() throws IOException {
+        List<Path> result = new ArrayList<>();
+        Path dir = getMetadataDir();
+        if (!Files.isDirectory(dir)) {
+            return result;
+        }
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, getMetadataSnapshotKey() + "*.snapshot")) {
+            for (Path path : paths) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private Path getMetadataDir() {
+        String dir = applicationParams != null ? applicationParams.get(Reducer.METADATA_DIR_PARAM) : null;
+        if (dir == null || dir.isEmpty()) {
+            dir = DEFAULT_METADATA_DIR;
+        }
+        return Paths.get(dir);
+    }
+
+    private String getMetadataSnapshotKey() {
+        return MetadataSnapshot.digest(getHost() + "/" + getBase() + "/" + getUser()).substring(0, 32);
+    }
+
     /**
      * Выполняет GET-запрос к REST-сервису 1С и возвращает полученные данные.
      *
@@ -135,38 +387,601 @@ public final class InfoBase implements DataServiceEntity {
      * @throws ClientException
      */
     public DataServiceResponse get(DataServiceRequest request) throws ClientException {
+        return get(request, null);
+    }
+
+    /**
+     * Выполняет GET-запрос к REST-сервису 1С и возвращает полученные данные.
+     * Данные ресурса, отсутствующие в кэше, запрашиваются постранично.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @return Результат выполнения запроса
+     * @throws ClientException
+     */
+    public DataServiceResponse get(DataServiceRequest request, PagingParams pagingParams) throws ClientException {
+        try {
+            return getAsync(request, pagingParams).join();
+        } catch (CompletionException e) {
+            throw ClientException.unwrap(e);
+        }
+    }
+
+    /**
+     * Асинхронно выполняет GET-запрос к REST-сервису 1С.
+     *
+     * @param request Параметры запроса
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     */
+    public CompletableFuture<DataServiceResponse> getAsync(DataServiceRequest request) {
+        return getAsync(request, null);
+    }
+
+    /**
+     * Асинхронно выполняет GET-запрос к REST-сервису 1С. Данные, найденные в кэше,
+     * возвращаются уже завершённым результатом.
+     * <p>
+     * Одновременные одинаковые запросы (по тому же ключу, что и в кэше) объединяются:
+     * к REST-сервису выполняется один запрос, результат которого получают все вызвавшие.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     */
+    public CompletableFuture<DataServiceResponse> getAsync(DataServiceRequest request, PagingParams pagingParams) {
+        return getAsync(request, pagingParams, Duration.ZERO);
+    }
+
+    /**
+     * Асинхронно выполняет GET-запрос к REST-сервису 1С для прогрева кэша.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @param refreshAhead Остаток времени кэширования, при котором результат в кэше обновляется.
+     *                     Ноль - результат из кэша возвращается без обновления.
+     * @return Результат выполнения запроса. Если результат в кэше обновляется, завершается после обновления.
+     */
+    CompletableFuture<DataServiceResponse> getAsync(DataServiceRequest request, PagingParams pagingParams,
+                                                    Duration refreshAhead) {
         if (request == null) {
             throw new IllegalArgumentException("Значение параметра 'request': null");
         }
-        DataServiceResponse response = getCache().get(request);
-        if (response == null) {
-            response = getDataServiceClient().get(request);
-            getCache().put(request, response);
-        } else {
+        return fetchAsync(request, () -> getDataServiceClient().getAsync(request, pagingParams), refreshAhead);
+    }
+
+    // Возвращает данные из кэша или получает их указанным способом, объединяя одновременные одинаковые запросы.
+    // Если до истечения времени кэширования осталось не больше refreshAhead, результат из кэша обновляется
+    // и возвращается обновлённый результат; другие вызывающие до этого получают прежний результат.
+    private CompletableFuture<DataServiceResponse> fetchAsync(DataServiceRequest request,
+                                                              Supplier<CompletableFuture<DataServiceResponse>> fetch,
+                                                              Duration refreshAhead) {
+        Cache<DataServiceRequest, DataServiceResponse> cache = getCache();
+        DataServiceResponse response = getCached(cache, request);
+        if (response != null) {
+            addSubsumptionSource(request, fetch);
+            Duration lifetime = request.getCacheLifetime();
+            if (!refreshAhead.isZero() && RefreshParams.isEnding(lifetime, response.getTime(), refreshAhead)) {
+                return refreshAsync(cache, request, fetch).thenApply(Function.identity());
+            }
             log.info("[%s] Из кэша получено %s записей '%s'", request.hashCode(), response.size(), request.getResourceName());
+            if (getCacheService().getRefreshParams().isRefreshNeeded(lifetime, response.getTime())) {
+                refreshAsync(cache, request, fetch);
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<DataServiceResponse> subsumed = getSubsumed(cache, request, refreshAhead);
+        if (subsumed != null) {
+            return subsumed;
+        }
+
+        CompletableFuture<DataServiceResponse> flight = new CompletableFuture<>();
+        CompletableFuture<DataServiceResponse> existing = inFlight.putIfAbsent(request, flight);
+        if (existing != null) {
+            log.info("[%s] Ожидание выполняющегося запроса '%s'", request.hashCode(), request.getResourceName());
+            // Копия защищает общий результат от завершения или отмены вызывающим.
+            return existing.thenApply(Function.identity());
+        }
+        // Предыдущий запрос мог завершиться между проверкой кэша и регистрацией текущего.
+        response = getCached(cache, request);
+        if (response != null) {
+            inFlight.remove(request, flight);
+            flight.complete(response);
+            return flight;
+        }
+
+        startFetch(cache, request, flight, fetch);
+        return flight.thenApply(Function.identity());
+    }
+
+    // Обновляет результат в кэше в фоне, если такой же запрос ещё не выполняется, и возвращает выполняющийся запрос.
+    // До завершения обновления из кэша возвращается прежний результат.
+    private CompletableFuture<DataServiceResponse> refreshAsync(Cache<DataServiceRequest, DataServiceResponse> cache,
+                                                                DataServiceRequest request,
+                                                                Supplier<CompletableFuture<DataServiceResponse>> fetch) {
+        CompletableFuture<DataServiceResponse> flight = new CompletableFuture<>();
+        CompletableFuture<DataServiceResponse> existing = inFlight.putIfAbsent(request, flight);
+        if (existing != null) {
+            return existing;
+        }
+        log.info("[%s] Фоновое обновление результата в кэше '%s'", request.hashCode(), request.getResourceName());
+        flight.whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.warn("[%s] Не удалось обновить результат в кэше '%s': %s", request.hashCode(),
+                        request.getResourceName(), ex.getMessage());
+            }
+        });
+        startFetch(cache, request, flight, fetch);
+        return flight;
+    }
+
+    // Выполняет зарегистрированный запрос и помещает результат в кэш,
+    // если настройки подключения не изменились за время выполнения запроса.
+    // Если запрос не удалось начать, регистрация снимается и запрос завершается ошибкой.
+    private void startFetch(Cache<DataServiceRequest, DataServiceResponse> cache, DataServiceRequest request,
+                            CompletableFuture<DataServiceResponse> flight,
+                            Supplier<CompletableFuture<DataServiceResponse>> fetch) {
+        long fetchGeneration = generation.get();
+        Cache<String, CachedDataTable> storage;
+        CompletableFuture<DataServiceResponse> future;
+        try {
+            storage = getStorageCache();
+            future = fetch.get();
+        } catch (RuntimeException e) {
+            // Неверные параметры подключения, закрытый клиент или служба кэшей
+            inFlight.remove(request, flight);
+            flight.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((result, ex) -> {
+            // Результат помещается в кэш до снятия регистрации, чтобы новые вызовы не выполняли запрос повторно.
+            if (ex == null) {
+                try {
+                    if (putCached(cache, storage, request, result, fetchGeneration)) {
+                        addSubsumptionSource(request, fetch);
+                    }
+                } catch (IllegalStateException e) {
+                    // Кэш закрыт при изменении настроек информационной базы во время выполнения запроса
+                    log.debug("[%s] Результат не помещён в кэш: %s", request.hashCode(), e.getMessage());
+                }
+            }
+            inFlight.remove(request, flight);
+            if (ex == null) {
+                flight.complete(result);
+            } else {
+                flight.completeExceptionally(ex);
+            }
+        });
+    }
+
+    /**
+     * Выполняет запрос к объектам ссылочного типа с синхронизацией изменений.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения данных или <code>null</code>.
+     * @return Результат выполнения запроса
+     * @throws ClientException
+     * @see #syncAsync(VersionedObject, PagingParams)
+     */
+    public DataServiceResponse sync(VersionedObject request, PagingParams pagingParams) throws ClientException {
+        try {
+            return syncAsync(request, pagingParams).join();
+        } catch (CompletionException e) {
+            throw ClientException.unwrap(e);
+        }
+    }
+
+    /**
+     * Асинхронно выполняет запрос к объектам ссылочного типа с синхронизацией изменений.
+     * <p>
+     * Результат первого запроса сохраняется как копия данных в кэше копий, объём которого
+     * ограничен сервисом кэширования. Когда данные в кэше устаревают,
+     * у REST-сервиса запрашиваются только ссылки и версии данных объектов, а затем - только
+     * новые и изменённые объекты. Удалённые объекты исключаются из копии.
+     * Если изменилось больше половины объектов или копия вытеснена из кэша,
+     * все объекты запрашиваются заново.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения ссылок и объектов или <code>null</code>.
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     * @see DeltaSync
+     */
+    public CompletableFuture<DataServiceResponse> syncAsync(VersionedObject request, PagingParams pagingParams) {
+        return syncAsync(request, pagingParams, Duration.ZERO);
+    }
+
+    /**
+     * Асинхронно выполняет запрос к объектам ссылочного типа с синхронизацией изменений для прогрева кэша.
+     *
+     * @param request      Параметры запроса
+     * @param pagingParams Параметры постраничного получения ссылок и объектов или <code>null</code>.
+     * @param refreshAhead Остаток времени кэширования, при котором результат в кэше обновляется.
+     * @return Результат выполнения запроса. Если результат в кэше обновляется, завершается после обновления.
+     * @see #getAsync(DataServiceRequest, PagingParams, Duration)
+     */
+    CompletableFuture<DataServiceResponse> syncAsync(VersionedObject request, PagingParams pagingParams,
+                                                     Duration refreshAhead) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        return fetchAsync(request, () -> {
+            long syncGeneration = generation.get();
+            DataServiceClient client = getDataServiceClient();
+            return client.getAsync(DeltaSync.versionsRequest(request), pagingParams).thenCompose(response -> {
+                LinkedHashMap<UUID, String> versions = DeltaSync.versions(response);
+                Cache<DataServiceRequest, DataServiceResponse> replicas = getReplicaCache();
+                DataServiceResponse stored = replicas.get(request);
+                DeltaSync.Replica replica = stored != null ? DeltaSync.Replica.restore(stored) : null;
+                List<UUID> changed = replica != null ? replica.changed(versions) : null;
+                CompletableFuture<DeltaSync.Replica> result;
+                if (changed == null || changed.size() > versions.size() / 2) {
+                    result = client.getAsync(DeltaSync.fullRequest(request), pagingParams)
+                            .thenApply(r -> DeltaSync.Replica.of(versions, r));
+                } else {
+                    log.info("[%s] Изменено %s из %s объектов '%s'", request.hashCode(), changed.size(),
+                            versions.size(), request.getResourceName());
+                    List<CompletableFuture<DataServiceResponse>> changes = new ArrayList<>();
+                    for (VersionedObject changesRequest : DeltaSync.changesRequests(request, changed)) {
+                        changes.add(client.getAsync(changesRequest));
+                    }
+                    result = CompletableFuture.allOf(changes.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                        List<DataServiceResponse> responses = new ArrayList<>(changes.size());
+                        for (CompletableFuture<DataServiceResponse> change : changes) {
+                            responses.add(change.join());
+                        }
+                        return replica.merge(versions, responses);
+                    });
+                }
+                return result.thenApply(r -> {
+                    if (syncGeneration != generation.get()) {
+                        log.debug("[%s] Копия данных не помещена в кэш: изменены настройки информационной базы",
+                                request.hashCode());
+                        return r.toResponse(request);
+                    }
+                    try {
+                        replicas.put(request, r.store(request));
+                    } catch (IllegalStateException e) {
+                        // Кэш закрыт при изменении настроек информационной базы во время выполнения запроса
+                        log.debug("[%s] Копия данных не помещена в кэш: %s", request.hashCode(), e.getMessage());
+                    }
+                    return r.toResponse(request);
+                });
+            });
+        }, refreshAhead);
+    }
+
+    /**
+     * Выполняет запрос к виртуальной таблице оборотов по частям периода и собирает общий результат.
+     *
+     * @param request           Параметры запроса
+     * @param shardingPeriod    Длина части периода
+     * @param maxParallelShards Максимальное количество одновременно выполняемых запросов
+     * @return Результат выполнения запроса
+     * @throws ClientException
+     * @see #getAsync(TurnoversVirtualTable, ShardingPeriod, int)
+     */
+    public DataServiceResponse get(TurnoversVirtualTable request, ShardingPeriod shardingPeriod, int maxParallelShards) throws ClientException {
+        try {
+            return getAsync(request, shardingPeriod, maxParallelShards).join();
+        } catch (CompletionException e) {
+            throw ClientException.unwrap(e);
+        }
+    }
+
+    /**
+     * Асинхронно выполняет запрос к виртуальной таблице оборотов по частям периода и собирает общий результат.
+     * Запросы за части периода распределяются по maxParallelShards последовательным цепочкам
+     * и кэшируются независимо друг от друга.
+     *
+     * @param request           Параметры запроса
+     * @param shardingPeriod    Длина части периода
+     * @param maxParallelShards Максимальное количество одновременно выполняемых запросов
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     * @see PeriodShards
+     */
+    public CompletableFuture<DataServiceResponse> getAsync(TurnoversVirtualTable request, ShardingPeriod shardingPeriod,
+                                                           int maxParallelShards) {
+        return getAsync(request, shardingPeriod, maxParallelShards, Duration.ZERO);
+    }
+
+    /**
+     * Асинхронно выполняет запрос к виртуальной таблице оборотов по частям периода для прогрева кэша.
+     *
+     * @param request           Параметры запроса
+     * @param shardingPeriod    Длина части периода
+     * @param maxParallelShards Максимальное количество одновременно выполняемых запросов
+     * @param refreshAhead      Остаток времени кэширования, при котором результаты частей периода в кэше обновляются.
+     * @return Результат выполнения запроса
+     * @see #getAsync(DataServiceRequest, PagingParams, Duration)
+     */
+    CompletableFuture<DataServiceResponse> getAsync(TurnoversVirtualTable request, ShardingPeriod shardingPeriod,
+                                                    int maxParallelShards, Duration refreshAhead) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (shardingPeriod == null) {
+            throw new IllegalArgumentException("Значение параметра 'shardingPeriod': null");
         }
-        return response;
+        if (maxParallelShards <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxParallelShards': " + maxParallelShards);
+        }
+        return getShardsAsync(request, PeriodShards.split(request, shardingPeriod), maxParallelShards, refreshAhead);
+    }
+
+    /**
+     * Асинхронно выполняет запрос к виртуальной таблице оборотов по календарным частям периода
+     * и собирает общий результат.
+     * <p>
+     * В отличие от {@link #getAsync(TurnoversVirtualTable, ShardingPeriod, int)}, неполные части периода
+     * в его начале и конце разбиваются на целые недели и дни, поэтому результаты всех частей
+     * используются повторно при запросах за другие периоды, включающие эти части.
+     *
+     * @param request           Параметры запроса
+     * @param bucketPeriod      Наибольшая длина части периода
+     * @param maxParallelShards Максимальное количество одновременно выполняемых запросов
+     * @return Результат выполнения запроса. В случае ошибки завершается исключением ClientException.
+     * @see PeriodShards#buckets(TurnoversVirtualTable, ShardingPeriod)
+     */
+    public CompletableFuture<DataServiceResponse> getBucketedAsync(TurnoversVirtualTable request, ShardingPeriod bucketPeriod,
+                                                                   int maxParallelShards) {
+        return getBucketedAsync(request, bucketPeriod, maxParallelShards, Duration.ZERO);
     }
 
-    private synchronized Cache<DataServiceRequest, DataServiceResponse> getCache() {
-        if (cache == null) {
-            cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build();
-            cacheManager.init();
-            cache = cacheManager.createCache(getId(), CacheConfigurationBuilder
-                    .newCacheConfigurationBuilder(DataServiceRequest.class, DataServiceResponse.class, ResourcePoolsBuilder.heap(10))
-                    .withExpiry(new CacheExpiryPolicy()));
+    /**
+     * Асинхронно выполняет запрос к виртуальной таблице оборотов по календарным частям периода для прогрева кэша.
+     *
+     * @param request           Параметры запроса
+     * @param bucketPeriod      Наибольшая длина части периода
+     * @param maxParallelShards Максимальное количество одновременно выполняемых запросов
+     * @param refreshAhead      Остаток времени кэширования, при котором результаты частей периода в кэше обновляются.
+     * @return Результат выполнения запроса
+     * @see #getAsync(DataServiceRequest, PagingParams, Duration)
+     */
+    CompletableFuture<DataServiceResponse> getBucketedAsync(TurnoversVirtualTable request, ShardingPeriod bucketPeriod,
+                                                            int maxParallelShards, Duration refreshAhead) {
+        if (request == null) {
+            throw new IllegalArgumentException("Значение параметра 'request': null");
+        }
+        if (bucketPeriod == null) {
+            throw new IllegalArgumentException("Значение параметра 'bucketPeriod': null");
+        }
+        if (maxParallelShards <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxParallelShards': " + maxParallelShards);
+        }
+        return getShardsAsync(request, PeriodShards.buckets(request, bucketPeriod), maxParallelShards, refreshAhead);
+    }
+
+    // Выполняет запросы за части периода цепочками и собирает общий результат.
+    private CompletableFuture<DataServiceResponse> getShardsAsync(TurnoversVirtualTable request,
+                                                                  List<TurnoversVirtualTable> shards,
+                                                                  int maxParallelShards, Duration refreshAhead) {
+        if (shards.size() == 1) {
+            return getAsync(request, null, refreshAhead);
         }
-        return cache;
+        log.info("[%s] Запрос '%s' разбит на %s частей периода", request.hashCode(), request.getResourceName(), shards.size());
+
+        List<CompletableFuture<DataServiceResponse>> responses = new ArrayList<>(Collections.nCopies(shards.size(), null));
+        int chains = Math.min(maxParallelShards, shards.size());
+        for (int chain = 0; chain < chains; chain++) {
+            CompletableFuture<DataServiceResponse> previous = null;
+            for (int i = chain; i < shards.size(); i += chains) {
+                TurnoversVirtualTable shard = shards.get(i);
+                CompletableFuture<DataServiceResponse> current = previous == null
+                        ? getAsync(shard, null, refreshAhead)
+                        : previous.thenCompose(r -> getAsync(shard, null, refreshAhead));
+                responses.set(i, current);
+                previous = current;
+            }
+        }
+
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<DataServiceResponse> result = new ArrayList<>(responses.size());
+            for (CompletableFuture<DataServiceResponse> response : responses) {
+                result.add(response.join());
+            }
+            return PeriodShards.merge(request, result);
+        });
+    }
+
+    private Cache<DataServiceRequest, DataServiceResponse> getCache() {
+        return getCacheService().getCache(getId());
+    }
+
+    private Cache<DataServiceRequest, DataServiceResponse> getReplicaCache() {
+        return getCacheService().getReplicaCache(getId());
+    }
+
+    // Хранилище кэша определяется адресом сервера, именем информационной базы и пользователем,
+    // поэтому сохраняется при изменении этих настроек и доступно при возврате к прежним.
+    private Cache<String, CachedDataTable> getStorageCache() {
+        String key = MetadataSnapshot.digest(getHost() + "/" + getBase() + "/" + getUser());
+        return getCacheService().getStorageCache(key.substring(0, 32));
+    }
+
+    private synchronized CacheService getCacheService() {
+        if (cacheService == null) {
+            cacheService = createCacheService(applicationParams);
+            ownCacheService = true;
+        }
+        return cacheService;
+    }
+
+    // Возвращает результат из кэша в куче или из хранилища кэша. Результат из хранилища помещается в кэш в куче.
+    // Время кэширования ресурса могло уменьшиться после сохранения результата, поэтому оно проверяется повторно.
+    private DataServiceResponse getCached(Cache<DataServiceRequest, DataServiceResponse> cache, DataServiceRequest request) {
+        RefreshParams refreshParams = getCacheService().getRefreshParams();
+        DataServiceResponse response = cache.get(request);
+        if (response != null && !refreshParams.isExpired(request.getCacheLifetime(), response.getTime())) {
+            return response;
+        }
+        return getStored(cache, request, refreshParams);
+    }
+
+    // Возвращает результат из хранилища кэша и помещает его в кэш в куче.
+    private DataServiceResponse getStored(Cache<DataServiceRequest, DataServiceResponse> cache, DataServiceRequest request,
+                                          RefreshParams refreshParams) {
+        Cache<String, CachedDataTable> storage = getStorageCache();
+        if (storage == null) {
+            return null;
+        }
+        try {
+            CachedDataTable table = storage.get(getDataServiceClient().getRequestUri(request));
+            if (table == null || refreshParams.isExpired(request.getCacheLifetime(), table.getTime())) {
+                return null;
+            }
+            DataServiceResponse response = table.toResponse(request);
+            log.info("[%s] Из хранилища кэша получено %s записей '%s'", request.hashCode(), response.size(),
+                    request.getResourceName());
+            cache.put(request, response);
+            return response;
+        } catch (RuntimeException e) {
+            log.warn("[%s] Ошибка чтения хранилища кэша: %s", request.hashCode(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Выбирает результат из результата более широкого запроса к тому же ресурсу в кэше в куче.
+    // Полученный результат не кэшируется, чтобы не хранить одни и те же данные дважды, а при устаревании
+    // в фоне обновляется исходный результат. Если исходный результат обновляется для прогрева кэша,
+    // результат выбирается из обновлённого.
+    private CompletableFuture<DataServiceResponse> getSubsumed(Cache<DataServiceRequest, DataServiceResponse> cache,
+                                                               DataServiceRequest request, Duration refreshAhead) {
+        if (!Subsumption.isApplicable(request)) {
+            return null;
+        }
+        Map<DataServiceRequest, Supplier<CompletableFuture<DataServiceResponse>>> sources =
+                subsumptionSources.get(request.getResourceName());
+        if (sources == null) {
+            return null;
+        }
+        RefreshParams refreshParams = getCacheService().getRefreshParams();
+        for (Map.Entry<DataServiceRequest, Supplier<CompletableFuture<DataServiceResponse>>> entry : sources.entrySet()) {
+            DataServiceRequest source = entry.getKey();
+            DataServiceResponse cached = cache.get(source);
+            if (cached == null) {
+                sources.remove(source, entry.getValue());
+                continue;
+            }
+            if (refreshParams.isExpired(request.getCacheLifetime(), cached.getTime())) {
+                continue;
+            }
+            DataServiceResponse response = Subsumption.derive(request, source, cached);
+            if (response == null) {
+                continue;
+            }
+            Duration lifetime = source.getCacheLifetime();
+            if (!refreshAhead.isZero() && RefreshParams.isEnding(lifetime, cached.getTime(), refreshAhead)) {
+                return refreshAsync(cache, source, entry.getValue()).thenApply(r -> Subsumption.derive(request, source, r));
+            }
+            log.info("[%s] %s записей '%s' выбрано из результата запроса [%s] в кэше", request.hashCode(),
+                    response.size(), request.getResourceName(), source.hashCode());
+            if (refreshParams.isRefreshNeeded(lifetime, cached.getTime())) {
+                refreshAsync(cache, source, entry.getValue());
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+        return null;
+    }
+
+    // Запоминает запрос, результат которого находится в кэше в куче, как исходный для более узких запросов.
+    private void addSubsumptionSource(DataServiceRequest request, Supplier<CompletableFuture<DataServiceResponse>> fetch) {
+        if (Subsumption.isApplicable(request)) {
+            subsumptionSources.computeIfAbsent(request.getResourceName(), k -> new ConcurrentHashMap<>())
+                    .put(request, fetch);
+        }
+    }
+
+    // Помещает результат в кэш в куче и в хранилище кэша, выбранное при начале запроса.
+    // Результат запроса, начатого до изменения настроек подключения, не кэшируется.
+    // Возвращает false, если результат не помещён в кэш.
+    private boolean putCached(Cache<DataServiceRequest, DataServiceResponse> cache, Cache<String, CachedDataTable> storage,
+                              DataServiceRequest request, DataServiceResponse response, long fetchGeneration) {
+        if (fetchGeneration != generation.get()) {
+            log.debug("[%s] Результат не помещён в кэш: изменены настройки информационной базы", request.hashCode());
+            return false;
+        }
+        cache.put(request, response);
+        // Настройки могли измениться во время записи
+        if (fetchGeneration != generation.get()) {
+            cache.remove(request, response);
+            return false;
+        }
+        if (storage != null) {
+            try {
+                storage.put(getDataServiceClient().getRequestUri(request), CachedDataTable.of(request, response));
+            } catch (RuntimeException e) {
+                log.warn("[%s] Ошибка записи в хранилище кэша: %s", request.hashCode(), e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Создаёт службу кэшей результатов запросов по параметрам приложения.
+     *
+     * @param applicationParams Параметры приложения или null
+     * @return Служба кэшей
+     */
+    static CacheService createCacheService(Map<String, String> applicationParams) {
+        long totalSize = getLongApplicationParam(applicationParams, Reducer.CACHE_SIZE_PARAM,
+                CacheService.DEFAULT_TOTAL_SIZE >> 20, 1) << 20;
+        long infoBaseSize = getLongApplicationParam(applicationParams, Reducer.CACHE_INFOBASE_SIZE_PARAM,
+                totalSize >> 20, 1) << 20;
+        long threshold = getLongApplicationParam(applicationParams, Reducer.CACHE_HEAP_THRESHOLD_PARAM,
+                CacheService.DEFAULT_PRESSURE_THRESHOLD, 0);
+        long offHeapSize = getLongApplicationParam(applicationParams, Reducer.CACHE_OFFHEAP_SIZE_PARAM, 0, 0);
+        long diskSize = getLongApplicationParam(applicationParams, Reducer.CACHE_DISK_SIZE_PARAM, 0, 0);
+        String dir = applicationParams != null ? applicationParams.get(Reducer.CACHE_DIR_PARAM) : null;
+        if (dir == null || dir.isEmpty()) {
+            dir = DEFAULT_CACHE_DIR;
+        }
+        long refreshAhead = getLongApplicationParam(applicationParams, Reducer.CACHE_REFRESH_AHEAD_PARAM, 0, 0);
+        long staleGrace = getLongApplicationParam(applicationParams, Reducer.CACHE_STALE_GRACE_PARAM, 0, 0);
+        return new CacheService(totalSize, infoBaseSize, (int) Math.min(threshold, 100), offHeapSize, diskSize,
+                Paths.get(dir), new RefreshParams((int) Math.min(refreshAhead, 100), Duration.ofSeconds(staleGrace)));
+    }
+
+    static long getLongApplicationParam(Map<String, String> applicationParams, String name,
+                                                long defaultValue, long minValue) {
+        String value = applicationParams != null ? applicationParams.get(name) : null;
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long result = Long.parseLong(value.trim());
+            if (result >= minValue) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Используется значение по умолчанию
+        }
+        log.warn("Недопустимое значение параметра %s: %s. Используется значение %s", name, value, defaultValue);
+        return defaultValue;
     }
 
     private synchronized DataServiceClient getDataServiceClient() {
         if (dataServiceClient == null) {
-            ConnectionParams connectionParams = new ConnectionParams(getHost(), getBase(), getUser(), getPassword());
+            int maxConcurrentRequests = getMaxConcurrentRequests() > 0 ? getMaxConcurrentRequests() : getMaxConnections();
+            ConnectionParams connectionParams = new ConnectionParams(getHost(), getBase(), getUser(), getPassword(),
+                    Math.max(1, getMaxConnections()), Duration.ofSeconds(Math.max(0, getConnectTimeout())),
+                    Duration.ofSeconds(Math.max(0, getReadTimeout())), Duration.ofSeconds(Math.max(0, getKeepAlive())),
+                    isCompression(), new ThrottlingParams(Math.max(1, maxConcurrentRequests), isAdaptiveThrottling(),
+                    Duration.ofSeconds(Math.max(0, getLatencyThreshold()))),
+                    new RetryParams(Math.max(0, getMaxRetries()), Duration.ofSeconds(Math.max(0, getRetryBackoff())),
+                            Duration.ofSeconds(Math.max(Math.max(0, getRetryBackoff()), getMaxRetryBackoff())),
+                            Math.max(0, getFailureThreshold()), Duration.ofSeconds(Math.max(0, getCircuitOpenTime()))));
             dataServiceClient = new DataServiceClient(connectionParams);
         }
         return dataServiceClient;
     }
 
+    // Закрывает клиент REST-сервиса, чтобы следующий запрос выполнялся с новыми настройками соединения.
+    private synchronized void closeDataServiceClient() {
+        if (dataServiceClient != null) {
+            dataServiceClient.close();
+            dataServiceClient = null;
+        }
+    }
+
     public StringProperty idProperty() {
         return id;
     }
@@ -246,22 +1061,244 @@ public final class InfoBase implements DataServiceEntity {
         passwordProperty().set(password);
     }
 
+    public IntegerProperty maxConnectionsProperty() {
+        return maxConnections;
+    }
+
+    @XmlElement(name = "MaxConnections")
+    public int getMaxConnections() {
+        return maxConnections.get();
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        maxConnectionsProperty().set(maxConnections);
+    }
+
+    public IntegerProperty connectTimeoutProperty() {
+        return connectTimeout;
+    }
+
+    @XmlElement(name = "ConnectTimeout")
+    public int getConnectTimeout() {
+        return connectTimeout.get();
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        connectTimeoutProperty().set(connectTimeout);
+    }
+
+    public IntegerProperty readTimeoutProperty() {
+        return readTimeout;
+    }
+
+    @XmlElement(name = "ReadTimeout")
+    public int getReadTimeout() {
+        return readTimeout.get();
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        readTimeoutProperty().set(readTimeout);
+    }
+
+    public IntegerProperty keepAliveProperty() {
+        return keepAlive;
+    }
+
+    @XmlElement(name = "KeepAlive")
+    public int getKeepAlive() {
+        return keepAlive.get();
+    }
+
+    public void setKeepAlive(int keepAlive) {
+        keepAliveProperty().set(keepAlive);
+    }
+
+    public BooleanProperty compressionProperty() {
+        return compression;
+    }
+
+    @XmlElement(name = "Compression")
+    public boolean isCompression() {
+        return compression.get();
+    }
+
+    public void setCompression(boolean compression) {
+        compressionProperty().set(compression);
+    }
+
+    public IntegerProperty maxConcurrentRequestsProperty() {
+        return maxConcurrentRequests;
+    }
+
+    @XmlElement(name = "MaxConcurrentRequests")
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests.get();
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        maxConcurrentRequestsProperty().set(maxConcurrentRequests);
+    }
+
+    public BooleanProperty adaptiveThrottlingProperty() {
+        return adaptiveThrottling;
+    }
+
+    @XmlElement(name = "AdaptiveThrottling")
+    public boolean isAdaptiveThrottling() {
+        return adaptiveThrottling.get();
+    }
+
+    public void setAdaptiveThrottling(boolean adaptiveThrottling) {
+        adaptiveThrottlingProperty().set(adaptiveThrottling);
+    }
+
+    public IntegerProperty latencyThresholdProperty() {
+        return latencyThreshold;
+    }
+
+    @XmlElement(name = "LatencyThreshold")
+    public int getLatencyThreshold() {
+        return latencyThreshold.get();
+    }
+
+    public void setLatencyThreshold(int latencyThreshold) {
+        latencyThresholdProperty().set(latencyThreshold);
+    }
+
+    public IntegerProperty maxRetriesProperty() {
+        return maxRetries;
+    }
+
+    @XmlElement(name = "MaxRetries")
+    public int getMaxRetries() {
+        return maxRetries.get();
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        maxRetriesProperty().set(maxRetries);
+    }
+
+    public IntegerProperty retryBackoffProperty() {
+        return retryBackoff;
+    }
+
+    @XmlElement(name = "RetryBackoff")
+    public int getRetryBackoff() {
+        return retryBackoff.get();
+    }
+
+    public void setRetryBackoff(int retryBackoff) {
+        retryBackoffProperty().set(retryBackoff);
+    }
+
+    public IntegerProperty maxRetryBackoffProperty() {
+        return maxRetryBackoff;
+    }
+
+    @XmlElement(name = "MaxRetryBackoff")
+    public int getMaxRetryBackoff() {
+        return maxRetryBackoff.get();
+    }
+
+    public void setMaxRetryBackoff(int maxRetryBackoff) {
+        maxRetryBackoffProperty().set(maxRetryBackoff);
+    }
+
+    public IntegerProperty failureThresholdProperty() {
+        return failureThreshold;
+    }
+
+    @XmlElement(name = "FailureThreshold")
+    public int getFailureThreshold() {
+        return failureThreshold.get();
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        failureThresholdProperty().set(failureThreshold);
+    }
+
+    public IntegerProperty circuitOpenTimeProperty() {
+        return circuitOpenTime;
+    }
+
+    @XmlElement(name = "CircuitOpenTime")
+    public int getCircuitOpenTime() {
+        return circuitOpenTime.get();
+    }
+
+    public void setCircuitOpenTime(int circuitOpenTime) {
+        circuitOpenTimeProperty().set(circuitOpenTime);
+    }
+
+    public BooleanProperty lazyMetadataProperty() {
+        return lazyMetadata;
+    }
+
+    @XmlElement(name = "LazyMetadata")
+    public boolean isLazyMetadata() {
+        return lazyMetadata.get();
+    }
+
+    public void setLazyMetadata(boolean lazyMetadata) {
+        lazyMetadataProperty().set(lazyMetadata);
+    }
+
     public void setApplicationParams(Map<String, String> applicationParams) {
         this.applicationParams = applicationParams;
     }
 
-    public void close() {
-        if (dataServiceClient != null) {
-            dataServiceClient.close();
-            dataServiceClient = null;
+    /**
+     * Устанавливает общую для информационных баз службу кэшей результатов запросов.
+     * Если кэш информационной базы уже создан в другой службе, он удаляется и будет создан заново в новой.
+     *
+     * @param cacheService Служба кэшей
+     */
+    public synchronized void setCacheService(CacheService cacheService) {
+        if (cacheService == null) {
+            throw new IllegalArgumentException("Значение параметра 'cacheService': null");
+        }
+        if (cacheService == this.cacheService) {
+            return;
+        }
+        releaseCacheService();
+        this.cacheService = cacheService;
+    }
+
+    private synchronized void releaseCacheService() {
+        if (cacheService != null) {
+            if (ownCacheService) {
+                cacheService.close();
+                ownCacheService = false;
+            } else {
+                cacheService.removeCache(getId());
+            }
+            cacheService = null;
         }
-        if (cacheManager != null) {
-            cacheManager.close();
-            cacheManager = null;
+    }
+
+    // Дерево метаданных будет построено заново при следующем обращении
+    private synchronized void resetMetadataTree() {
+        metadataTree = null;
+    }
+
+    // Сбрасывает соединение и полученные данные при изменении адреса сервера, имени информационной базы
+    // или пользователя. Кэш очищается, но остаётся в службе кэшей вместе с хранилищами.
+    private synchronized void reset() {
+        generation.incrementAndGet();
+        closeDataServiceClient();
+        if (cacheService != null) {
+            cacheService.clearCache(getId());
         }
+        inFlight.clear();
+        subsumptionSources.clear();
         metadataTree = null;
     }
 
+    public void close() {
+        reset();
+        releaseCacheService();
+    }
+
     @Override
     public String getResourceName() {
         return null;
@@ -21,6 +21,8 @@ package ru.datareducer.model;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import ru.datareducer.Reducer;
+import ru.datareducer.dataservice.cache.CacheService;
 import ru.datareducer.dataservice.entity.*;
 import ru.datareducer.ui.LoadConfigurationException;
 
@@ -43,8 +45,11 @@ import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -63,6 +68,16 @@ public final class ReducerConfiguration {
     private final AtomicInteger seqDataServiceResource = new AtomicInteger(0);
 
     private Map<String, String> applicationParams;
+    // Служба кэшей результатов запросов всех информационных баз
+    private CacheService cacheService;
+    // Прогрев кэша скриптов, доступных через веб, или null, если не выполняется
+    private ScriptWarmer scriptWarmer;
+
+    // Параметры приложения, при изменении которых пересоздаётся служба кэшей
+    private static final List<String> CACHE_PARAMS = Arrays.asList(Reducer.CACHE_SIZE_PARAM,
+            Reducer.CACHE_INFOBASE_SIZE_PARAM, Reducer.CACHE_HEAP_THRESHOLD_PARAM, Reducer.CACHE_OFFHEAP_SIZE_PARAM,
+            Reducer.CACHE_DISK_SIZE_PARAM, Reducer.CACHE_DIR_PARAM, Reducer.CACHE_REFRESH_AHEAD_PARAM,
+            Reducer.CACHE_STALE_GRACE_PARAM);
 
     private static JAXBContext jaxbContext;
     private static MessageBodyWriter<ReducerConfiguration> configBodyWriter;
@@ -127,6 +142,9 @@ public final class ReducerConfiguration {
             throw new IllegalArgumentException("Значение параметра 'infoBase': null");
         }
         infoBase.setApplicationParams(applicationParams);
+        if (cacheService != null) {
+            infoBase.setCacheService(cacheService);
+        }
         infoBases.add(infoBase);
     }
 
@@ -191,17 +209,60 @@ public final class ReducerConfiguration {
         if (applicationParams == null) {
             throw new IllegalArgumentException("Значение параметра 'applicationParams': null");
         }
+        Map<String, String> previousParams = this.applicationParams;
         this.applicationParams = applicationParams;
         for (InfoBase infoBase : getInfoBases()) {
             infoBase.setApplicationParams(applicationParams);
         }
+        // Служба кэшей пересоздаётся только при изменении её параметров
+        if (cacheService == null || !getCacheParams(applicationParams).equals(getCacheParams(previousParams))) {
+            // Прежняя служба закрывается до создания новой, так как каталог хранилища может использоваться только одной
+            if (cacheService != null) {
+                cacheService.close();
+            }
+            cacheService = InfoBase.createCacheService(applicationParams);
+            for (InfoBase infoBase : getInfoBases()) {
+                infoBase.setCacheService(cacheService);
+            }
+        }
         for (Script script : getScripts()) {
             script.setApplicationParams(applicationParams);
         }
+        if (previousParams == null || !Objects.equals(previousParams.get(Reducer.WARMUP_CONCURRENCY_PARAM),
+                applicationParams.get(Reducer.WARMUP_CONCURRENCY_PARAM))) {
+            startScriptWarmer();
+        }
+    }
+
+    private void startScriptWarmer() {
+        if (scriptWarmer != null) {
+            scriptWarmer.close();
+            scriptWarmer = null;
+        }
+        long concurrency = InfoBase.getLongApplicationParam(applicationParams, Reducer.WARMUP_CONCURRENCY_PARAM, 0, 0);
+        if (concurrency > 0) {
+            scriptWarmer = new ScriptWarmer(this::getScripts, (int) Math.min(concurrency, Integer.MAX_VALUE));
+        }
+    }
+
+    private static Map<String, String> getCacheParams(Map<String, String> applicationParams) {
+        Map<String, String> result = new HashMap<>();
+        if (applicationParams != null) {
+            for (String name : CACHE_PARAMS) {
+                result.put(name, applicationParams.get(name));
+            }
+        }
+        return result;
     }
 
     public void close() {
+        if (scriptWarmer != null) {
+            scriptWarmer.close();
+        }
         infoBases.forEach(InfoBase::close);
+        if (cacheService != null) {
+            cacheService.close();
+        }
     }
 
     public static JAXBContext getJaxbContext() throws JAXBException {
@@ -30,6 +30,7 @@ import org.rosuda.REngine.REngineException;
 import org.rosuda.REngine.Rserve.RConnection;
 import org.rosuda.REngine.Rserve.RserveException;
 import ru.datareducer.Reducer;
+import ru.datareducer.dataservice.entity.DataServiceResponse;
 
 import javax.ws.rs.core.UriBuilder;
 import javax.xml.bind.annotation.*;
@@ -41,10 +42,12 @@ import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
@@ -76,6 +79,8 @@ public final class Script {
     private final IntegerProperty plotWidth = new SimpleIntegerProperty(700);
     // Высота изображения, генерируемого скриптом
     private final IntegerProperty plotHeight = new SimpleIntegerProperty(350);
+    // Загружать только наборы данных и столбцы, на которые ссылается текст скрипта
+    private final BooleanProperty columnProjection = new SimpleBooleanProperty(false);
     // Признак возможности веб-доступа к результату выполнения скрипта
     private final BooleanProperty webAccess = new SimpleBooleanProperty(false);
     // Использовать стандартный шаблон результата выполнения скрипта
@@ -139,46 +144,23 @@ public final class Script {
             throw new IllegalArgumentException("Значение параметра 'requestId' равно null");
         }
 
-        Map<String, ScriptParameter> clientParamsMap = new HashMap<>();
-        for (ScriptParameter param : clientParams) {
-            clientParamsMap.put(param.getName(), param);
-        }
+        Map<String, ScriptParameter> paramsLookup = buildParamsLookup(requestId, clientParams);
+        List<ScriptParameter> paramsList = new ArrayList<>(paramsLookup.values());
+        String scriptBody = substituteParams(paramsLookup);
 
-        Map<String, ScriptParameter> defaultParamsMap = new HashMap<>();
-        for (ScriptParameter param : defaultParams) {
-            defaultParamsMap.put(param.getName(), new ScriptParameter(param.getName(), param.getValue(), param.isHttpParameter()));
-        }
+        // Имена, на которые ссылается скрипт, если наборы данных загружаются только в используемой части
+        ScriptReferences references = isColumnProjection() ? ScriptReferences.analyze(scriptBody) : null;
 
-        // Проверяем, что клиент не задал "лишних" параметров
-        for (Map.Entry<String, ScriptParameter> entry : clientParamsMap.entrySet()) {
-            ScriptParameter param = defaultParamsMap.get(entry.getKey());
-            if (param == null || !param.isHttpParameter()) {
-                throw new IllegalArgumentException("Недопустимый параметр: " + entry.getKey());
-            }
-        }
-
-        Map<String, ScriptParameter> paramsLookup = new HashMap<>();
-        paramsLookup.putAll(defaultParamsMap); // Последовательность важна
-        paramsLookup.putAll(clientParamsMap);  // Последовательность важна
-        paramsLookup.put(ScriptParameter.REQUEST_ID_PARAM, new ScriptParameter(ScriptParameter.REQUEST_ID_PARAM, requestId, false));
-        paramsLookup.put(ScriptParameter.NAME_PARAM, new ScriptParameter(ScriptParameter.NAME_PARAM, getName(), false));
-        paramsLookup.put(ScriptParameter.DESCRIPTION_PARAM, new ScriptParameter(ScriptParameter.DESCRIPTION_PARAM, getDescription(), false));
-        paramsLookup.put(ScriptParameter.RESOURCE_NAME_PARAM, new ScriptParameter(ScriptParameter.RESOURCE_NAME_PARAM, getResourceName(), false));
-
-        List<ScriptParameter> paramsList = new ArrayList<>();
-        for (Map.Entry<String, ScriptParameter> entry : paramsLookup.entrySet()) {
-            ScriptParameter param = entry.getValue();
-            if (param.getValue() == null || (param.getValue().isEmpty() && !param.isPredefined())) {
-                throw new UndefinedParameterException(param.getName());
-            }
-            paramsList.add(entry.getValue());
-        }
-
-        // Получаем наборы данных.
-        Map<String, Future<REXP>> futures = new HashMap<>();
+        // Получаем наборы данных. Запросы выполняются асинхронно, без занятия потока исполнителя
+        // на время ожидания ответа; исполнитель используется только для преобразования в data.frame.
+        Map<String, CompletableFuture<REXP>> futures = new HashMap<>();
         for (DataServiceResource resource : dataServiceResources) {
-            resource.setParametersLookup(paramsLookup);
-            futures.put(resource.getName(), executor.submit(() -> resource.getResourceData().asDataFrame()));
+            if (references != null && !references.isReferenced(resource.getName())) {
+                log.info("[%s] Набор данных '%s' не используется скриптом и не загружается", hashCode(), resource.getName());
+                continue;
+            }
+            futures.put(resource.getName(), getResourceDataAsync(resource, paramsLookup, references, Duration.ZERO)
+                    .thenApplyAsync(DataServiceResponse::asDataFrame, executor));
         }
 
         String host = applicationParams.get(Reducer.RSERVE_HOST_PARAM);
@@ -210,22 +192,15 @@ public final class Script {
 
             try {
                 conn.setStringEncoding("utf8");
-                for (Map.Entry<String, Future<REXP>> future : futures.entrySet()) {
+                for (Map.Entry<String, CompletableFuture<REXP>> future : futures.entrySet()) {
                     // Передаём наборы данных RServe
-                    conn.assign(future.getKey(), future.getValue().get());
+                    conn.assign(future.getKey(), future.getValue().join());
                 }
-            } catch (InterruptedException | ExecutionException e) {
+            } catch (CompletionException e) {
                 log.error(e);
                 throw new ReducerRuntimeException(e);
             }
 
-            // Устанавливаем параметры тела скрипта
-            String scriptBody = getScriptBody();
-            for (Map.Entry<String, ScriptParameter> entry : paramsLookup.entrySet()) {
-                String param = java.util.regex.Pattern.quote(ScriptParameter.addBraces(entry.getKey()));
-                scriptBody = scriptBody.replaceAll(param, entry.getValue().getValue());
-            }
-
             // Определяем, требуется ли выводить графику
             int devNum = 0;
             String[] lines = scriptBody.split("\\r?\\n");
@@ -308,6 +283,99 @@ public final class Script {
         }
     }
 
+    // Составляет значения параметров скрипта: значения по умолчанию, значения клиента и предопределённые параметры.
+    private Map<String, ScriptParameter> buildParamsLookup(String requestId, List<ScriptParameter> clientParams)
+            throws UndefinedParameterException {
+        Map<String, ScriptParameter> clientParamsMap = new HashMap<>();
+        for (ScriptParameter param : clientParams) {
+            clientParamsMap.put(param.getName(), param);
+        }
+
+        Map<String, ScriptParameter> defaultParamsMap = new HashMap<>();
+        for (ScriptParameter param : new ArrayList<>(defaultParams)) {
+            defaultParamsMap.put(param.getName(), new ScriptParameter(param.getName(), param.getValue(), param.isHttpParameter()));
+        }
+
+        // Проверяем, что клиент не задал "лишних" параметров
+        for (Map.Entry<String, ScriptParameter> entry : clientParamsMap.entrySet()) {
+            ScriptParameter param = defaultParamsMap.get(entry.getKey());
+            if (param == null || !param.isHttpParameter()) {
+                throw new IllegalArgumentException("Недопустимый параметр: " + entry.getKey());
+            }
+        }
+
+        Map<String, ScriptParameter> paramsLookup = new HashMap<>();
+        paramsLookup.putAll(defaultParamsMap); // Последовательность важна
+        paramsLookup.putAll(clientParamsMap);  // Последовательность важна
+        paramsLookup.put(ScriptParameter.REQUEST_ID_PARAM, new ScriptParameter(ScriptParameter.REQUEST_ID_PARAM, requestId, false));
+        paramsLookup.put(ScriptParameter.NAME_PARAM, new ScriptParameter(ScriptParameter.NAME_PARAM, getName(), false));
+        paramsLookup.put(ScriptParameter.DESCRIPTION_PARAM, new ScriptParameter(ScriptParameter.DESCRIPTION_PARAM, getDescription(), false));
+        paramsLookup.put(ScriptParameter.RESOURCE_NAME_PARAM, new ScriptParameter(ScriptParameter.RESOURCE_NAME_PARAM, getResourceName(), false));
+
+        for (ScriptParameter param : paramsLookup.values()) {
+            if (param.getValue() == null || (param.getValue().isEmpty() && !param.isPredefined())) {
+                throw new UndefinedParameterException(param.getName());
+            }
+        }
+        return paramsLookup;
+    }
+
+    // Устанавливает параметры тела скрипта.
+    private String substituteParams(Map<String, ScriptParameter> paramsLookup) {
+        String scriptBody = getScriptBody();
+        for (Map.Entry<String, ScriptParameter> entry : paramsLookup.entrySet()) {
+            String param = java.util.regex.Pattern.quote(ScriptParameter.addBraces(entry.getKey()));
+            scriptBody = scriptBody.replaceAll(param, entry.getValue().getValue());
+        }
+        return scriptBody;
+    }
+
+    // Набор данных общий для одновременных выполнений скрипта, поэтому установка значений параметров
+    // и формирование запроса выполняются под его блокировкой.
+    private static CompletableFuture<DataServiceResponse> getResourceDataAsync(DataServiceResource resource,
+                                                                               Map<String, ScriptParameter> paramsLookup,
+                                                                               ScriptReferences references,
+                                                                               Duration refreshAhead)
+            throws UndefinedParameterException {
+        synchronized (resource) {
+            resource.setParametersLookup(paramsLookup);
+            return resource.getResourceDataAsync(references, refreshAhead);
+        }
+    }
+
+    /**
+     * Формирует задачи прогрева кэша наборов данных скрипта со значениями параметров по умолчанию.
+     * Каждая задача получает один набор данных так же, как при выполнении скрипта, поэтому
+     * следующее выполнение находит его в кэше. Наборы данных, не используемые скриптом или не кэшируемые,
+     * не прогреваются.
+     *
+     * @param refreshAhead Остаток времени кэширования, при котором данные в кэше обновляются
+     * @return Задачи прогрева по одной на набор данных
+     * @throws UndefinedParameterException Если не задано значение параметра по умолчанию
+     */
+    List<Supplier<CompletableFuture<DataServiceResponse>>> getWarmUpTasks(Duration refreshAhead)
+            throws UndefinedParameterException {
+        Map<String, ScriptParameter> paramsLookup = buildParamsLookup(generateRequestId(defaultParams), new ArrayList<>());
+        ScriptReferences references = isColumnProjection() ? ScriptReferences.analyze(substituteParams(paramsLookup)) : null;
+        List<Supplier<CompletableFuture<DataServiceResponse>>> result = new ArrayList<>();
+        for (DataServiceResource resource : new ArrayList<>(dataServiceResources)) {
+            if (resource.getCacheLifetime() <= 0
+                    || references != null && !references.isReferenced(resource.getName())) {
+                continue;
+            }
+            result.add(() -> {
+                try {
+                    return getResourceDataAsync(resource, paramsLookup, references, refreshAhead);
+                } catch (UndefinedParameterException e) {
+                    CompletableFuture<DataServiceResponse> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    return failed;
+                }
+            });
+        }
+        return result;
+    }
+
     public void refillParameterList() {
         Set<String> paramsNames = new HashSet<>();
         for (DataServiceResource resource : dataServiceResources) {
@@ -467,6 +535,19 @@ public final class Script {
         this.plotHeight.set(plotHeight);
     }
 
+    public BooleanProperty columnProjectionProperty() {
+        return columnProjection;
+    }
+
+    @XmlElement(name = "ColumnProjection")
+    public boolean isColumnProjection() {
+        return columnProjection.get();
+    }
+
+    public void setColumnProjection(boolean columnProjection) {
+        this.columnProjection.set(columnProjection);
+    }
+
     public BooleanProperty webAccessProperty() {
         return webAccess;
     }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Имена, на которые ссылается текст скрипта на языке R.
+ * <p>
+ * Текст разбирается лексически: комментарии пропускаются, а в набор имён попадают идентификаторы,
+ * имена в обратных кавычках и содержимое строковых литералов. Поэтому к столбцу набора данных можно
+ * обращаться любым способом, упоминающим его имя: <code>df$Сумма</code>, <code>df[["Сумма"]]</code>,
+ * <code>df[, c("Сумма")]</code>, <code>aggregate(Сумма ~ Контрагент, data = df)</code>.
+ * Обращения по номеру столбца или к именам, вычисляемым во время выполнения, анализ не обнаруживает.
+ *
+ * @author Kirill Mikhaylov
+ */
+final class ScriptReferences {
+    private final Set<String> names;
+
+    private ScriptReferences(Set<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * Выполняет анализ текста скрипта.
+     *
+     * @param scriptBody Текст скрипта на языке R
+     * @return Имена, на которые ссылается скрипт
+     */
+    static ScriptReferences analyze(String scriptBody) {
+        if (scriptBody == null) {
+            throw new IllegalArgumentException("Значение параметра 'scriptBody': null");
+        }
+        Set<String> names = new HashSet<>();
+        int len = scriptBody.length();
+        int i = 0;
+        while (i < len) {
+            char c = scriptBody.charAt(i);
+            if (c == '#') {
+                // Комментарий до конца строки
+                while (i < len && scriptBody.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '"' || c == '\'' || c == '`') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (i < len && scriptBody.charAt(i) != c) {
+                    char ch = scriptBody.charAt(i);
+                    if (ch == '\\' && c != '`' && i + 1 < len) {
+                        ch = scriptBody.charAt(++i);
+                    }
+                    sb.append(ch);
+                    i++;
+                }
+                names.add(sb.toString());
+                i++;
+            } else if (Character.isLetter(c) || c == '.') {
+                int start = i;
+                while (i < len && isIdentifierPart(scriptBody.charAt(i))) {
+                    i++;
+                }
+                names.add(scriptBody.substring(start, i));
+            } else if (Character.isDigit(c)) {
+                // Числовая константа, в том числе 1e5, 0x1F и 10L
+                while (i < len && isIdentifierPart(scriptBody.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        return new ScriptReferences(Collections.unmodifiableSet(names));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_';
+    }
+
+    /**
+     * Проверяет, упоминается ли имя в тексте скрипта.
+     *
+     * @param name Имя набора данных или столбца
+     * @return true, если скрипт ссылается на имя
+     */
+    boolean isReferenced(String name) {
+        return names.contains(name);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.model;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.datareducer.dataservice.entity.DataServiceResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Прогрев кэша наборов данных скриптов, доступных через веб.
+ * <p>
+ * Наборы данных каждого такого скрипта периодически запрашиваются со значениями параметров по умолчанию.
+ * Набор данных, время кэширования которого подходит к концу, обновляется в кэше заранее, поэтому
+ * пользователи веб-ресурса получают данные из кэша. Первый прогрев скриптов разнесён во времени
+ * случайной задержкой, период прогрева также немного смещается случайным образом.
+ * <p>
+ * Одновременно выполняется не больше заданного количества запросов прогрева в потоках с низким приоритетом.
+ * Скрипты, наборы данных которых не кэшируются, не прогреваются.
+ *
+ * @author Kirill Mikhaylov
+ */
+final class ScriptWarmer implements AutoCloseable {
+    // Остаток времени кэширования, при котором набор данных обновляется, в процентах
+    private static final int REFRESH_AHEAD_PERCENT = 20;
+    private static final Duration MIN_PERIOD = Duration.ofSeconds(10);
+    private static final Duration MAX_INITIAL_DELAY = Duration.ofSeconds(60);
+    // Случайное смещение периода прогрева, в долях периода
+    private static final double JITTER = 0.1;
+    private static final long TICK_SECONDS = 5;
+
+    private final Supplier<Collection<Script>> scripts;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    // Время следующего прогрева скриптов (System.nanoTime()). Используется только в потоке планировщика.
+    private final Map<Script, Long> nextRuns = new HashMap<>();
+    // Скрипты, прогрев которых выполняется
+    private final Set<Script> running = ConcurrentHashMap.newKeySet();
+
+    private static final Logger log = LogManager.getFormatterLogger(ScriptWarmer.class);
+
+    /**
+     * Создаёт и запускает прогрев кэша.
+     *
+     * @param scripts        Источник текущего списка скриптов
+     * @param maxConcurrency Максимальное количество одновременно выполняемых запросов прогрева
+     */
+    ScriptWarmer(Supplier<Collection<Script>> scripts, int maxConcurrency) {
+        if (scripts == null) {
+            throw new IllegalArgumentException("Значение параметра 'scripts': null");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Значение параметра 'maxConcurrency': " + maxConcurrency);
+        }
+        this.scripts = scripts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> newThread(r, "script-warmer"));
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrency,
+                r -> newThread(r, "script-warmer-" + counter.incrementAndGet()));
+        scheduler.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static Thread newThread(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+
+    // Запускает прогрев скриптов, время которого наступило.
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            Set<Script> current = new HashSet<>();
+            for (Script script : new ArrayList<>(scripts.get())) {
+                Duration lifetime = getMinCacheLifetime(script);
+                if (!script.isWebAccess() || lifetime == null) {
+                    continue;
+                }
+                current.add(script);
+                Duration ahead = lifetime.multipliedBy(REFRESH_AHEAD_PERCENT).dividedBy(100);
+                // Прогрев выполняется не реже двух раз за время, в течение которого набор данных обновляется заранее
+                Duration period = ahead.dividedBy(2).compareTo(MIN_PERIOD) > 0 ? ahead.dividedBy(2) : MIN_PERIOD;
+                Long next = nextRuns.get(script);
+                if (next == null) {
+                    Duration maxDelay = period.compareTo(MAX_INITIAL_DELAY) < 0 ? period : MAX_INITIAL_DELAY;
+                    nextRuns.put(script, now + ThreadLocalRandom.current().nextLong(maxDelay.toNanos() + 1));
+                    continue;
+                }
+                if (now - next < 0 || running.contains(script)) {
+                    continue;
+                }
+                double jitter = 1 + JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+                nextRuns.put(script, now + (long) (period.toNanos() * jitter));
+                warmUp(script, ahead);
+            }
+            nextRuns.keySet().retainAll(current);
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодический прогрев. Список скриптов мог измениться во время обхода.
+            log.warn("Ошибка прогрева кэша: %s", e.getMessage());
+        }
+    }
+
+    // Наименьшее время кэширования наборов данных скрипта или null, если наборы данных не кэшируются.
+    private static Duration getMinCacheLifetime(Script script) {
+        long result = 0;
+        for (DataServiceResource resource : new ArrayList<>(script.getDataServiceResources())) {
+            long lifetime = resource.getCacheLifetime();
+            if (lifetime > 0 && (result == 0 || lifetime < result)) {
+                result = lifetime;
+            }
+        }
+        return result > 0 ? Duration.ofSeconds(result) : null;
+    }
+
+    private void warmUp(Script script, Duration refreshAhead) {
+        List<Supplier<CompletableFuture<DataServiceResponse>>> tasks;
+        try {
+            tasks = script.getWarmUpTasks(refreshAhead);
+        } catch (UndefinedParameterException e) {
+            log.debug("Прогрев кэша скрипта '%s' не выполняется: %s", script.getName(), e.getMessage());
+            return;
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        log.debug("Прогрев кэша скрипта '%s'", script.getName());
+        running.add(script);
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (Supplier<CompletableFuture<DataServiceResponse>> task : tasks) {
+            workers.execute(() -> {
+                try {
+                    // Поток занят до завершения запроса, чем и ограничивается количество одновременных запросов
+                    task.get().join();
+                } catch (RuntimeException e) {
+                    log.warn("Ошибка прогрева кэша скрипта '%s': %s", script.getName(), e.getMessage());
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        running.remove(script);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+}
@@ -214,6 +214,39 @@ public class DataServiceResourceWindow implements Window<DataServiceResource> {
             dataServiceResource.setSlicePeriod(form.slicePeriodDtPkr.getStringValue());
         }
 
+        if (entity instanceof TurnoversVirtualTable) {
+            int maxParallelShards;
+            try {
+                maxParallelShards = Integer.parseInt(form.maxParallelShardsFld.textProperty().get().trim());
+            } catch (NumberFormatException e) {
+                maxParallelShards = 0;
+            }
+            if (maxParallelShards < 1) {
+                errorWindow("Ошибка установки параметров", "Некорректное значение количества частей периода, запрашиваемых одновременно");
+                return false;
+            }
+            dataServiceResource.setShardingPeriod(form.shardingPeriodCmbBx.getValue());
+            dataServiceResource.setMaxParallelShards(maxParallelShards);
+        }
+
+        if (!entity.isVirtual()) {
+            int pageSize;
+            int maxParallelPages;
+            try {
+                pageSize = Integer.parseInt(form.pageSizeFld.textProperty().get().trim());
+                maxParallelPages = Integer.parseInt(form.maxParallelPagesFld.textProperty().get().trim());
+            } catch (NumberFormatException e) {
+                errorWindow("Ошибка установки параметров", "Некорректное значение параметров постраничного получения данных");
+                return false;
+            }
+            if (pageSize < 0 || maxParallelPages < 1) {
+                errorWindow("Ошибка установки параметров", "Некорректное значение параметров постраничного получения данных");
+                return false;
+            }
+            dataServiceResource.setPageSize(pageSize);
+            dataServiceResource.setMaxParallelPages(maxParallelPages);
+        }
+
         if (entity instanceof AccountingRegisterRecordsWithExtDimensions) {
             int top;
             try {
@@ -473,6 +506,18 @@ public class DataServiceResourceWindow implements Window<DataServiceResource> {
         @FXML
         private CheckBox allowedOnlyCkBx;
         @FXML
+        private Label pageSizeLbl;
+        @FXML
+        private TextField pageSizeFld;
+        @FXML
+        private Label maxParallelPagesLbl;
+        @FXML
+        private TextField maxParallelPagesFld;
+        @FXML
+        private Label deltaSyncLbl;
+        @FXML
+        private CheckBox deltaSyncCkBx;
+        @FXML
         private Label slicePeriodLbl;
         @FXML
         private DateTimePicker slicePeriodDtPkr;
@@ -489,6 +534,18 @@ public class DataServiceResourceWindow implements Window<DataServiceResource> {
         @FXML
         private DateTimePicker turnoversEndPeriodDtPkr;
         @FXML
+        private Label shardingPeriodLbl;
+        @FXML
+        private ComboBox<ShardingPeriod> shardingPeriodCmbBx;
+        @FXML
+        private Label maxParallelShardsLbl;
+        @FXML
+        private TextField maxParallelShardsFld;
+        @FXML
+        private Label periodBucketsLbl;
+        @FXML
+        private CheckBox periodBucketsCkBx;
+        @FXML
         private Label topLbl;
         @FXML
         private TextField topFld;
@@ -727,6 +784,21 @@ public class DataServiceResourceWindow implements Window<DataServiceResource> {
                 }
             }, 0));
 
+            if (!entity.isVirtual()) {
+                pageSizeFld.textProperty().setValue(Integer.toString(dataServiceResource.getPageSize()));
+                maxParallelPagesFld.textProperty().setValue(Integer.toString(dataServiceResource.getMaxParallelPages()));
+                pageSizeLbl.setVisible(true);
+                pageSizeFld.setVisible(true);
+                maxParallelPagesLbl.setVisible(true);
+                maxParallelPagesFld.setVisible(true);
+            }
+
+            if (entity instanceof VersionedObject) {
+                deltaSyncCkBx.selectedProperty().bindBidirectional(dataServiceResource.deltaSyncProperty());
+                deltaSyncLbl.setVisible(true);
+                deltaSyncCkBx.setVisible(true);
+            }
+
             if (entity instanceof AccountingRegisterRecordsWithExtDimensions) {
                 topLbl.setVisible(true);
                 topFld.textProperty().setValue(Integer.toString(dataServiceResource.getTop()));
@@ -762,6 +834,43 @@ public class DataServiceResourceWindow implements Window<DataServiceResource> {
                 turnoversEndPeriodDtPkr.setVisible(true);
             }
 
+            if (entity instanceof TurnoversVirtualTable) {
+                shardingPeriodCmbBx.getItems().addAll(null, ShardingPeriod.DAY, ShardingPeriod.WEEK, ShardingPeriod.MONTH);
+                shardingPeriodCmbBx.setConverter(new StringConverter<ShardingPeriod>() {
+                    @Override
+                    public String toString(ShardingPeriod period) {
+                        if (period == null) {
+                            return "Не разбивать";
+                        }
+                        switch (period) {
+                            case DAY:
+                                return "Дням";
+                            case WEEK:
+                                return "Неделям";
+                            default:
+                                return "Месяцам";
+                        }
+                    }
+
+                    @Override
+                    public ShardingPeriod fromString(String string) {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+                shardingPeriodCmbBx.setValue(dataServiceResource.getShardingPeriod());
+                maxParallelShardsFld.textProperty().setValue(Integer.toString(dataServiceResource.getMaxParallelShards()));
+                shardingPeriodLbl.setVisible(true);
+                shardingPeriodCmbBx.setVisible(true);
+                maxParallelShardsLbl.setVisible(true);
+                maxParallelShardsFld.setVisible(true);
+            }
+
+            if (PeriodShards.isBucketable(entity)) {
+                periodBucketsCkBx.selectedProperty().bindBidirectional(dataServiceResource.periodBucketsProperty());
+                periodBucketsLbl.setVisible(true);
+                periodBucketsCkBx.setVisible(true);
+            }
+
             // Таблица вывода данных
             resourceDataTable.getSelectionModel().setCellSelectionEnabled(true);
         }
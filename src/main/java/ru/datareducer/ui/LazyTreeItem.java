@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017-2020 Kirill Mikhaylov <admin@datareducer.ru>
+ *
+ * Этот файл — часть программы DataReducer Console <http://datareducer.ru>.
+ *
+ * Программа DataReducer Console является свободным программным обеспечением.
+ * Вы вправе распространять ее и/или модифицировать в соответствии с условиями
+ * версии 3 либо, по вашему выбору, с условиями более поздней версии
+ * Стандартной Общественной Лицензии GNU, опубликованной Free Software Foundation.
+ *
+ * Программа DataReducer Console распространяется в надежде, что она будет полезной,
+ * но БЕЗО ВСЯКИХ ГАРАНТИЙ, в том числе ГАРАНТИИ ТОВАРНОГО СОСТОЯНИЯ ПРИ ПРОДАЖЕ
+ * и ПРИГОДНОСТИ ДЛЯ ИСПОЛЬЗОВАНИЯ В КОНКРЕТНЫХ ЦЕЛЯХ.
+ * Подробнее см. в Стандартной Общественной Лицензии GNU.
+ *
+ * Вы должны были получить копию Стандартной Общественной Лицензии GNU
+ * вместе с этой программой. Если это не так, см. <https://www.gnu.org/licenses/>.
+ */
+
+package ru.datareducer.ui;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Узел дерева, дочерние узлы которого создаются при первом обращении к ним,
+ * например, при первом раскрытии узла.
+ *
+ * @author Kirill Mikhaylov
+ */
+class LazyTreeItem<T> extends TreeItem<T> {
+    private Runnable childrenLoader;
+
+    LazyTreeItem(T value) {
+        super(value);
+    }
+
+    /**
+     * Устанавливает процедуру создания дочерних узлов. Процедура выполняется один раз
+     * при первом обращении к дочерним узлам и добавляет их методом {@link #getChildren()}.
+     */
+    void setChildrenLoader(Runnable childrenLoader) {
+        this.childrenLoader = childrenLoader;
+    }
+
+    /**
+     * Удаляет дочерние узлы и процедуру их создания.
+     */
+    void reset() {
+        childrenLoader = null;
+        super.getChildren().clear();
+    }
+
+    @Override
+    public ObservableList<TreeItem<T>> getChildren() {
+        if (childrenLoader != null) {
+            Runnable loader = childrenLoader;
+            childrenLoader = null;
+            try {
+                loader.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return super.getChildren();
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return childrenLoader == null && super.getChildren().isEmpty();
+    }
+}
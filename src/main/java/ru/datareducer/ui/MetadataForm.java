@@ -19,6 +19,7 @@
 
 package ru.datareducer.ui;
 
+import javafx.application.Platform;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
@@ -35,6 +36,7 @@ import ru.datareducer.model.InfoBase;
 import ru.datareducer.model.ReducerConfiguration;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 public class MetadataForm extends StackPane implements ModelReplacedListener {
     private final String FIELDS_GROUP_NAME = "Поля";
@@ -48,6 +50,8 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
     private final LoadMetadataTreeService loadMetadataTreeService;
 
     private InfoBase infoBase;
+    // Перестраивает дерево, если метаданные информационной базы изменились после проверки снимка
+    private final Consumer<MetadataTree> metadataTreeListener;
 
     @FXML
     private TreeTableView<DataServiceEntity> metadataTreeTable;
@@ -80,23 +84,28 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
 
     private TreeItem<DataServiceEntity> rootNode;
 
-    private final TreeItem<DataServiceEntity> constantGroupNode;
-    private final TreeItem<DataServiceEntity> catalogGroupNode;
-    private final TreeItem<DataServiceEntity> documentGroupNode;
-    private final TreeItem<DataServiceEntity> documentJournalGroupNode;
-    private final TreeItem<DataServiceEntity> chartOfCharacteristicTypesGroupNode;
-    private final TreeItem<DataServiceEntity> chartOfAccountsGroupNode;
-    private final TreeItem<DataServiceEntity> chartOfCalculationTypesGroupNode;
-    private final TreeItem<DataServiceEntity> informationRegisterGroupNode;
-    private final TreeItem<DataServiceEntity> accumulationRegisterGroupNode;
-    private final TreeItem<DataServiceEntity> accountingRegisterGroupNode;
-    private final TreeItem<DataServiceEntity> calculationRegisterGroupNode;
-    private final TreeItem<DataServiceEntity> exchangePlanGroupNode;
-    private final TreeItem<DataServiceEntity> businessProcessGroupNode;
-    private final TreeItem<DataServiceEntity> taskGroupNode;
+    private final LazyTreeItem<DataServiceEntity> constantGroupNode;
+    private final LazyTreeItem<DataServiceEntity> catalogGroupNode;
+    private final LazyTreeItem<DataServiceEntity> documentGroupNode;
+    private final LazyTreeItem<DataServiceEntity> documentJournalGroupNode;
+    private final LazyTreeItem<DataServiceEntity> chartOfCharacteristicTypesGroupNode;
+    private final LazyTreeItem<DataServiceEntity> chartOfAccountsGroupNode;
+    private final LazyTreeItem<DataServiceEntity> chartOfCalculationTypesGroupNode;
+    private final LazyTreeItem<DataServiceEntity> informationRegisterGroupNode;
+    private final LazyTreeItem<DataServiceEntity> accumulationRegisterGroupNode;
+    private final LazyTreeItem<DataServiceEntity> accountingRegisterGroupNode;
+    private final LazyTreeItem<DataServiceEntity> calculationRegisterGroupNode;
+    private final LazyTreeItem<DataServiceEntity> exchangePlanGroupNode;
+    private final LazyTreeItem<DataServiceEntity> businessProcessGroupNode;
+    private final LazyTreeItem<DataServiceEntity> taskGroupNode;
 
     public MetadataForm() {
         loadMetadataTreeService = new LoadMetadataTreeService();
+        metadataTreeListener = tree -> Platform.runLater(() -> {
+            if (infoBase != null) {
+                loadMetadataTree(infoBase, false);
+            }
+        });
 
         FXMLLoader loader = new FXMLLoader();
         loader.setLocation(getClass().getClassLoader().getResource("fxml/MetadataForm.fxml"));
@@ -112,20 +121,20 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
         typeCol.setCellValueFactory(new TreeItemPropertyValueFactory<>("type"));
         refCol.setCellValueFactory(new TreeItemPropertyValueFactory<>("reference"));
 
-        constantGroupNode = new TreeItem<>(new GroupNode("Константы"));
-        catalogGroupNode = new TreeItem<>(new GroupNode("Справочники"));
-        documentGroupNode = new TreeItem<>(new GroupNode("Документы"));
-        documentJournalGroupNode = new TreeItem<>(new GroupNode("Журналы документов"));
-        chartOfCharacteristicTypesGroupNode = new TreeItem<>(new GroupNode("Планы видов характеристик"));
-        chartOfAccountsGroupNode = new TreeItem<>(new GroupNode("Планы счетов"));
-        chartOfCalculationTypesGroupNode = new TreeItem<>(new GroupNode("Планы видов расчета"));
-        informationRegisterGroupNode = new TreeItem<>(new GroupNode("Регистры сведений"));
-        accumulationRegisterGroupNode = new TreeItem<>(new GroupNode("Регистры накопления"));
-        accountingRegisterGroupNode = new TreeItem<>(new GroupNode("Регистры бухгалтерии"));
-        calculationRegisterGroupNode = new TreeItem<>(new GroupNode("Регистры расчета"));
-        exchangePlanGroupNode = new TreeItem<>(new GroupNode("Планы обмена"));
-        businessProcessGroupNode = new TreeItem<>(new GroupNode("Бизнес-процессы"));
-        taskGroupNode = new TreeItem<>(new GroupNode("Задачи"));
+        constantGroupNode = new LazyTreeItem<>(new GroupNode("Константы"));
+        catalogGroupNode = new LazyTreeItem<>(new GroupNode("Справочники"));
+        documentGroupNode = new LazyTreeItem<>(new GroupNode("Документы"));
+        documentJournalGroupNode = new LazyTreeItem<>(new GroupNode("Журналы документов"));
+        chartOfCharacteristicTypesGroupNode = new LazyTreeItem<>(new GroupNode("Планы видов характеристик"));
+        chartOfAccountsGroupNode = new LazyTreeItem<>(new GroupNode("Планы счетов"));
+        chartOfCalculationTypesGroupNode = new LazyTreeItem<>(new GroupNode("Планы видов расчета"));
+        informationRegisterGroupNode = new LazyTreeItem<>(new GroupNode("Регистры сведений"));
+        accumulationRegisterGroupNode = new LazyTreeItem<>(new GroupNode("Регистры накопления"));
+        accountingRegisterGroupNode = new LazyTreeItem<>(new GroupNode("Регистры бухгалтерии"));
+        calculationRegisterGroupNode = new LazyTreeItem<>(new GroupNode("Регистры расчета"));
+        exchangePlanGroupNode = new LazyTreeItem<>(new GroupNode("Планы обмена"));
+        businessProcessGroupNode = new LazyTreeItem<>(new GroupNode("Бизнес-процессы"));
+        taskGroupNode = new LazyTreeItem<>(new GroupNode("Задачи"));
     }
 
     @FXML
@@ -246,446 +255,474 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
             MetadataTree metadataTree = loadMetadataTreeService.getValue();
 
             // Константы
-            for (Constant constant : metadataTree.getConstants()) {
-                TreeItem<DataServiceEntity> constantsNode = new TreeItem<>(constant);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : constant.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
+            constantGroupNode.setChildrenLoader(() -> {
+                for (Constant constant : metadataTree.getConstants()) {
+                    TreeItem<DataServiceEntity> constantsNode = new TreeItem<>(constant);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : constant.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    constantsNode.getChildren().add(fldGroupNode);
+                    constantGroupNode.getChildren().add(constantsNode);
                 }
-                constantsNode.getChildren().add(fldGroupNode);
-                constantGroupNode.getChildren().add(constantsNode);
-            }
+            });
 
             // Справочники
-            for (Catalog catalog : metadataTree.getCatalogs()) {
-                TreeItem<DataServiceEntity> catalogNode = new TreeItem<>(catalog);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : catalog.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : catalog.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            catalogGroupNode.setChildrenLoader(() -> {
+                for (Catalog catalog : metadataTree.getCatalogs()) {
+                    TreeItem<DataServiceEntity> catalogNode = new TreeItem<>(catalog);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : catalog.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : catalog.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                catalogNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    catalogNode.getChildren().add(tblGroupNode);
+                    catalogNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        catalogNode.getChildren().add(tblGroupNode);
+                    }
+                    catalogGroupNode.getChildren().add(catalogNode);
                 }
-                catalogGroupNode.getChildren().add(catalogNode);
-            }
+            });
 
             // Документы
-            for (Document document : metadataTree.getDocuments()) {
-                TreeItem<DataServiceEntity> documentNode = new TreeItem<>(document);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : document.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : document.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            documentGroupNode.setChildrenLoader(() -> {
+                for (Document document : metadataTree.getDocuments()) {
+                    TreeItem<DataServiceEntity> documentNode = new TreeItem<>(document);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : document.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : document.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                documentNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    documentNode.getChildren().add(tblGroupNode);
+                    documentNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        documentNode.getChildren().add(tblGroupNode);
+                    }
+                    documentGroupNode.getChildren().add(documentNode);
                 }
-                documentGroupNode.getChildren().add(documentNode);
-            }
+            });
 
             // Журналы документов
-            for (DocumentJournal journal : metadataTree.getDocumentJournals()) {
-                TreeItem<DataServiceEntity> documentJournalsNode = new TreeItem<>(journal);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : journal.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
+            documentJournalGroupNode.setChildrenLoader(() -> {
+                for (DocumentJournal journal : metadataTree.getDocumentJournals()) {
+                    TreeItem<DataServiceEntity> documentJournalsNode = new TreeItem<>(journal);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : journal.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    documentJournalsNode.getChildren().add(fldGroupNode);
+                    documentJournalGroupNode.getChildren().add(documentJournalsNode);
                 }
-                documentJournalsNode.getChildren().add(fldGroupNode);
-                documentJournalGroupNode.getChildren().add(documentJournalsNode);
-            }
+            });
 
             // Планы видов характеристик
-            for (ChartOfCharacteristicTypes chartOfCharacteristicTypes : metadataTree.getChartOfCharacteristicTypes()) {
-                TreeItem<DataServiceEntity> chartOfCharacteristicTypesNode = new TreeItem<>(chartOfCharacteristicTypes);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : chartOfCharacteristicTypes.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : chartOfCharacteristicTypes.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            chartOfCharacteristicTypesGroupNode.setChildrenLoader(() -> {
+                for (ChartOfCharacteristicTypes chartOfCharacteristicTypes : metadataTree.getChartOfCharacteristicTypes()) {
+                    TreeItem<DataServiceEntity> chartOfCharacteristicTypesNode = new TreeItem<>(chartOfCharacteristicTypes);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : chartOfCharacteristicTypes.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : chartOfCharacteristicTypes.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                chartOfCharacteristicTypesNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    chartOfCharacteristicTypesNode.getChildren().add(tblGroupNode);
+                    chartOfCharacteristicTypesNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        chartOfCharacteristicTypesNode.getChildren().add(tblGroupNode);
+                    }
+                    chartOfCharacteristicTypesGroupNode.getChildren().add(chartOfCharacteristicTypesNode);
                 }
-                chartOfCharacteristicTypesGroupNode.getChildren().add(chartOfCharacteristicTypesNode);
-            }
+            });
 
             // Планы счетов
-            for (ChartOfAccounts chartOfAccounts : metadataTree.getChartOfAccounts()) {
-                TreeItem<DataServiceEntity> chartOfAccountsNode = new TreeItem<>(chartOfAccounts);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : chartOfAccounts.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : chartOfAccounts.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            chartOfAccountsGroupNode.setChildrenLoader(() -> {
+                for (ChartOfAccounts chartOfAccounts : metadataTree.getChartOfAccounts()) {
+                    TreeItem<DataServiceEntity> chartOfAccountsNode = new TreeItem<>(chartOfAccounts);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : chartOfAccounts.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : chartOfAccounts.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                chartOfAccountsNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    chartOfAccountsNode.getChildren().add(tblGroupNode);
+                    chartOfAccountsNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        chartOfAccountsNode.getChildren().add(tblGroupNode);
+                    }
+                    chartOfAccountsGroupNode.getChildren().add(chartOfAccountsNode);
                 }
-                chartOfAccountsGroupNode.getChildren().add(chartOfAccountsNode);
-            }
+            });
 
             // Планы видов расчета
-            for (ChartOfCalculationTypes chartOfCalculationTypes : metadataTree.getChartOfCalculationTypes()) {
-                TreeItem<DataServiceEntity> chartOfCalculationTypesNode = new TreeItem<>(chartOfCalculationTypes);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : chartOfCalculationTypes.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : chartOfCalculationTypes.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            chartOfCalculationTypesGroupNode.setChildrenLoader(() -> {
+                for (ChartOfCalculationTypes chartOfCalculationTypes : metadataTree.getChartOfCalculationTypes()) {
+                    TreeItem<DataServiceEntity> chartOfCalculationTypesNode = new TreeItem<>(chartOfCalculationTypes);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : chartOfCalculationTypes.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : chartOfCalculationTypes.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                chartOfCalculationTypesNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    chartOfCalculationTypesNode.getChildren().add(tblGroupNode);
+                    chartOfCalculationTypesNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        chartOfCalculationTypesNode.getChildren().add(tblGroupNode);
+                    }
+                    chartOfCalculationTypesGroupNode.getChildren().add(chartOfCalculationTypesNode);
                 }
-                chartOfCalculationTypesGroupNode.getChildren().add(chartOfCalculationTypesNode);
-            }
+            });
 
             // Регистры сведений
-            for (InformationRegister informationRegister : metadataTree.getInformationRegisters()) {
-                TreeItem<DataServiceEntity> informationRegisterNode = new TreeItem<>(informationRegister);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : informationRegister.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                informationRegisterNode.getChildren().add(fldGroupNode);
-
-                InformationRegisterSliceLast sliceLast = informationRegister.getSliceLast();
-                if (sliceLast != null) {
-                    TreeItem<DataServiceEntity> sliceLastNode = new TreeItem<>(sliceLast);
-                    for (Field field : sliceLast.getRegisterFields()) {
-                        sliceLastNode.getChildren().add(new TreeItem<>(field));
+            informationRegisterGroupNode.setChildrenLoader(() -> {
+                for (InformationRegister informationRegister : metadataTree.getInformationRegisters()) {
+                    TreeItem<DataServiceEntity> informationRegisterNode = new TreeItem<>(informationRegister);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : informationRegister.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    informationRegisterNode.getChildren().add(fldGroupNode);
+
+                    InformationRegisterSliceLast sliceLast = informationRegister.getSliceLast();
+                    if (sliceLast != null) {
+                        TreeItem<DataServiceEntity> sliceLastNode = new TreeItem<>(sliceLast);
+                        for (Field field : sliceLast.getRegisterFields()) {
+                            sliceLastNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        informationRegisterNode.getChildren().add(sliceLastNode);
                     }
-                    informationRegisterNode.getChildren().add(sliceLastNode);
-                }
-                InformationRegisterSliceFirst sliceFirst = informationRegister.getSliceFirst();
-                if (sliceFirst != null) {
-                    TreeItem<DataServiceEntity> sliceFirstNode = new TreeItem<>(sliceFirst);
-                    for (Field field : sliceFirst.getRegisterFields()) {
-                        sliceFirstNode.getChildren().add(new TreeItem<>(field));
+                    InformationRegisterSliceFirst sliceFirst = informationRegister.getSliceFirst();
+                    if (sliceFirst != null) {
+                        TreeItem<DataServiceEntity> sliceFirstNode = new TreeItem<>(sliceFirst);
+                        for (Field field : sliceFirst.getRegisterFields()) {
+                            sliceFirstNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        informationRegisterNode.getChildren().add(sliceFirstNode);
                     }
-                    informationRegisterNode.getChildren().add(sliceFirstNode);
+                    informationRegisterGroupNode.getChildren().add(informationRegisterNode);
                 }
-                informationRegisterGroupNode.getChildren().add(informationRegisterNode);
-            }
+            });
 
             // Регистры накопления
-            for (AccumulationRegister accumulationRegister : metadataTree.getAccumulationRegisters()) {
-                TreeItem<DataServiceEntity> accumulationRegisterNode = new TreeItem<>(accumulationRegister);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : accumulationRegister.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                accumulationRegisterNode.getChildren().add(fldGroupNode);
-
-                AccumulationRegisterBalance balance = accumulationRegister.getBalance();
-                if (balance != null) {
-                    TreeItem<DataServiceEntity> balanceNode = new TreeItem<>(balance);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    for (Field field : balance.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balance.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    balanceNode.getChildren().add(dimensionsGroupNode);
-                    balanceNode.getChildren().add(resourcesGroupNode);
-                    accumulationRegisterNode.getChildren().add(balanceNode);
-                }
-                AccumulationRegisterTurnovers turnovers = accumulationRegister.getTurnovers();
-                if (turnovers != null) {
-                    TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(turnovers);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    for (Field field : turnovers.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : turnovers.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    turnoversNode.getChildren().add(dimensionsGroupNode);
-                    turnoversNode.getChildren().add(resourcesGroupNode);
-                    accumulationRegisterNode.getChildren().add(turnoversNode);
-                }
-                AccumulationRegisterBalanceAndTurnovers balanceAndTurnovers = accumulationRegister.getBalanceAndTurnovers();
-                if (balanceAndTurnovers != null) {
-                    TreeItem<DataServiceEntity> balanceAndTurnoversNode = new TreeItem<>(balanceAndTurnovers);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    for (Field field : balanceAndTurnovers.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balanceAndTurnovers.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    balanceAndTurnoversNode.getChildren().add(dimensionsGroupNode);
-                    balanceAndTurnoversNode.getChildren().add(resourcesGroupNode);
-                    accumulationRegisterNode.getChildren().add(balanceAndTurnoversNode);
+            accumulationRegisterGroupNode.setChildrenLoader(() -> {
+                for (AccumulationRegister accumulationRegister : metadataTree.getAccumulationRegisters()) {
+                    TreeItem<DataServiceEntity> accumulationRegisterNode = new TreeItem<>(accumulationRegister);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : accumulationRegister.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    accumulationRegisterNode.getChildren().add(fldGroupNode);
+
+                    AccumulationRegisterBalance balance = accumulationRegister.getBalance();
+                    if (balance != null) {
+                        TreeItem<DataServiceEntity> balanceNode = new TreeItem<>(balance);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        for (Field field : balance.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balance.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        balanceNode.getChildren().add(dimensionsGroupNode);
+                        balanceNode.getChildren().add(resourcesGroupNode);
+                        accumulationRegisterNode.getChildren().add(balanceNode);
+                    }
+                    AccumulationRegisterTurnovers turnovers = accumulationRegister.getTurnovers();
+                    if (turnovers != null) {
+                        TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(turnovers);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        for (Field field : turnovers.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : turnovers.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        turnoversNode.getChildren().add(dimensionsGroupNode);
+                        turnoversNode.getChildren().add(resourcesGroupNode);
+                        accumulationRegisterNode.getChildren().add(turnoversNode);
+                    }
+                    AccumulationRegisterBalanceAndTurnovers balanceAndTurnovers = accumulationRegister.getBalanceAndTurnovers();
+                    if (balanceAndTurnovers != null) {
+                        TreeItem<DataServiceEntity> balanceAndTurnoversNode = new TreeItem<>(balanceAndTurnovers);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        for (Field field : balanceAndTurnovers.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balanceAndTurnovers.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        balanceAndTurnoversNode.getChildren().add(dimensionsGroupNode);
+                        balanceAndTurnoversNode.getChildren().add(resourcesGroupNode);
+                        accumulationRegisterNode.getChildren().add(balanceAndTurnoversNode);
+                    }
+                    accumulationRegisterGroupNode.getChildren().add(accumulationRegisterNode);
                 }
-                accumulationRegisterGroupNode.getChildren().add(accumulationRegisterNode);
-            }
+            });
 
             // Регистры бухгалтерии
-            for (AccountingRegister accountingRegister : metadataTree.getAccountingRegisters()) {
-                TreeItem<DataServiceEntity> accountingRegisterNode = new TreeItem<>(accountingRegister);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : accountingRegister.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                accountingRegisterNode.getChildren().add(fldGroupNode);
-                AccountingRegisterBalance balance = accountingRegister.getBalance();
-                if (balance != null) {
-                    TreeItem<DataServiceEntity> balanceNode = new TreeItem<>(balance);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
-                    for (Field field : balance.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balance.getExtDimensions()) {
-                        extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balance.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    balanceNode.getChildren().add(dimensionsGroupNode);
-                    balanceNode.getChildren().add(extDimensionsGroupNode);
-                    balanceNode.getChildren().add(resourcesGroupNode);
-                    accountingRegisterNode.getChildren().add(balanceNode);
-                }
-                AccountingRegisterTurnovers turnovers = accountingRegister.getTurnovers();
-                if (turnovers != null) {
-                    TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(turnovers);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
-                    for (Field field : turnovers.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : turnovers.getExtDimensions()) {
-                        extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : turnovers.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    turnoversNode.getChildren().add(dimensionsGroupNode);
-                    turnoversNode.getChildren().add(extDimensionsGroupNode);
-                    turnoversNode.getChildren().add(resourcesGroupNode);
-                    accountingRegisterNode.getChildren().add(turnoversNode);
-                }
-                AccountingRegisterBalanceAndTurnovers balanceAndTurnovers = accountingRegister.getBalanceAndTurnovers();
-                if (balanceAndTurnovers != null) {
-                    TreeItem<DataServiceEntity> balanceAndTurnoversNode = new TreeItem<>(balanceAndTurnovers);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
-                    for (Field field : balanceAndTurnovers.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balanceAndTurnovers.getExtDimensions()) {
-                        extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : balanceAndTurnovers.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    balanceAndTurnoversNode.getChildren().add(dimensionsGroupNode);
-                    balanceAndTurnoversNode.getChildren().add(extDimensionsGroupNode);
-                    balanceAndTurnoversNode.getChildren().add(resourcesGroupNode);
-                    accountingRegisterNode.getChildren().add(balanceAndTurnoversNode);
-                }
-                AccountingRegisterExtDimensions extDimensions = accountingRegister.getExtDimensions();
-                if (extDimensions != null) {
-                    TreeItem<DataServiceEntity> extDimensionsNode = new TreeItem<>(extDimensions);
-                    for (Field field : extDimensions.getVirtualTableFields()) {
-                        extDimensionsNode.getChildren().add(new TreeItem<>(field));
+            accountingRegisterGroupNode.setChildrenLoader(() -> {
+                for (AccountingRegister accountingRegister : metadataTree.getAccountingRegisters()) {
+                    TreeItem<DataServiceEntity> accountingRegisterNode = new TreeItem<>(accountingRegister);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : accountingRegister.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    accountingRegisterNode.getChildren().add(fldGroupNode);
+                    AccountingRegisterBalance balance = accountingRegister.getBalance();
+                    if (balance != null) {
+                        TreeItem<DataServiceEntity> balanceNode = new TreeItem<>(balance);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
+                        for (Field field : balance.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balance.getExtDimensions()) {
+                            extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balance.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        balanceNode.getChildren().add(dimensionsGroupNode);
+                        balanceNode.getChildren().add(extDimensionsGroupNode);
+                        balanceNode.getChildren().add(resourcesGroupNode);
+                        accountingRegisterNode.getChildren().add(balanceNode);
+                    }
+                    AccountingRegisterTurnovers turnovers = accountingRegister.getTurnovers();
+                    if (turnovers != null) {
+                        TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(turnovers);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
+                        for (Field field : turnovers.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : turnovers.getExtDimensions()) {
+                            extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : turnovers.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        turnoversNode.getChildren().add(dimensionsGroupNode);
+                        turnoversNode.getChildren().add(extDimensionsGroupNode);
+                        turnoversNode.getChildren().add(resourcesGroupNode);
+                        accountingRegisterNode.getChildren().add(turnoversNode);
+                    }
+                    AccountingRegisterBalanceAndTurnovers balanceAndTurnovers = accountingRegister.getBalanceAndTurnovers();
+                    if (balanceAndTurnovers != null) {
+                        TreeItem<DataServiceEntity> balanceAndTurnoversNode = new TreeItem<>(balanceAndTurnovers);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
+                        for (Field field : balanceAndTurnovers.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balanceAndTurnovers.getExtDimensions()) {
+                            extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : balanceAndTurnovers.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        balanceAndTurnoversNode.getChildren().add(dimensionsGroupNode);
+                        balanceAndTurnoversNode.getChildren().add(extDimensionsGroupNode);
+                        balanceAndTurnoversNode.getChildren().add(resourcesGroupNode);
+                        accountingRegisterNode.getChildren().add(balanceAndTurnoversNode);
+                    }
+                    AccountingRegisterExtDimensions extDimensions = accountingRegister.getExtDimensions();
+                    if (extDimensions != null) {
+                        TreeItem<DataServiceEntity> extDimensionsNode = new TreeItem<>(extDimensions);
+                        for (Field field : extDimensions.getVirtualTableFields()) {
+                            extDimensionsNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        accountingRegisterNode.getChildren().add(extDimensionsNode);
                     }
-                    accountingRegisterNode.getChildren().add(extDimensionsNode);
-                }
-                AccountingRegisterRecordsWithExtDimensions recordsWithExtDimensions = accountingRegister.getRecordsWithExtDimensions();
-                if (recordsWithExtDimensions != null) {
-                    TreeItem<DataServiceEntity> recordsWithExtDimensionsNode = new TreeItem<>(recordsWithExtDimensions);
-                    for (Field field : recordsWithExtDimensions.getVirtualTableFields()) {
-                        recordsWithExtDimensionsNode.getChildren().add(new TreeItem<>(field));
+                    AccountingRegisterRecordsWithExtDimensions recordsWithExtDimensions = accountingRegister.getRecordsWithExtDimensions();
+                    if (recordsWithExtDimensions != null) {
+                        TreeItem<DataServiceEntity> recordsWithExtDimensionsNode = new TreeItem<>(recordsWithExtDimensions);
+                        for (Field field : recordsWithExtDimensions.getVirtualTableFields()) {
+                            recordsWithExtDimensionsNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        accountingRegisterNode.getChildren().add(recordsWithExtDimensionsNode);
+                    }
+                    AccountingRegisterDrCrTurnovers drCrTurnovers = accountingRegister.getDrCrTurnovers();
+                    if (drCrTurnovers != null) {
+                        TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(drCrTurnovers);
+                        TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
+                        TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
+                        TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
+                        for (Field field : drCrTurnovers.getDimensions()) {
+                            dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : drCrTurnovers.getExtDimensions()) {
+                            extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        for (Field field : drCrTurnovers.getResources()) {
+                            resourcesGroupNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        turnoversNode.getChildren().add(dimensionsGroupNode);
+                        turnoversNode.getChildren().add(extDimensionsGroupNode);
+                        turnoversNode.getChildren().add(resourcesGroupNode);
+                        accountingRegisterNode.getChildren().add(turnoversNode);
                     }
-                    accountingRegisterNode.getChildren().add(recordsWithExtDimensionsNode);
-                }
-                AccountingRegisterDrCrTurnovers drCrTurnovers = accountingRegister.getDrCrTurnovers();
-                if (drCrTurnovers != null) {
-                    TreeItem<DataServiceEntity> turnoversNode = new TreeItem<>(drCrTurnovers);
-                    TreeItem<DataServiceEntity> dimensionsGroupNode = new TreeItem<>(new GroupNode(DIMENSIONS_GROUP_NAME));
-                    TreeItem<DataServiceEntity> resourcesGroupNode = new TreeItem<>(new GroupNode(RESOURCES_GROUP_NAME));
-                    TreeItem<DataServiceEntity> extDimensionsGroupNode = new TreeItem<>(new GroupNode(EXT_DIMENSIONS_GROUP_NAME));
-                    for (Field field : drCrTurnovers.getDimensions()) {
-                        dimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : drCrTurnovers.getExtDimensions()) {
-                        extDimensionsGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    for (Field field : drCrTurnovers.getResources()) {
-                        resourcesGroupNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    turnoversNode.getChildren().add(dimensionsGroupNode);
-                    turnoversNode.getChildren().add(extDimensionsGroupNode);
-                    turnoversNode.getChildren().add(resourcesGroupNode);
-                    accountingRegisterNode.getChildren().add(turnoversNode);
-                }
-
-                accountingRegisterGroupNode.getChildren().add(accountingRegisterNode);
-            }
 
-            // Регистры расчета
-            for (CalculationRegister calculationRegister : metadataTree.getCalculationRegisters()) {
-                TreeItem<DataServiceEntity> calculationRegisterNode = new TreeItem<>(calculationRegister);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                for (Field field : calculationRegister.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    accountingRegisterGroupNode.getChildren().add(accountingRegisterNode);
                 }
-                calculationRegisterNode.getChildren().add(fldGroupNode);
+            });
 
-                CalculationRegisterScheduleData scheduleData = calculationRegister.getScheduleData();
-                if (scheduleData != null) {
-                    TreeItem<DataServiceEntity> scheduleDataNode = new TreeItem<>(scheduleData);
-                    for (Field field : scheduleData.getVirtualTableFields()) {
-                        scheduleDataNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    calculationRegisterNode.getChildren().add(scheduleDataNode);
-                }
-                CalculationRegisterActualActionPeriod actualActionPeriod = calculationRegister.getActualActionPeriod();
-                if (actualActionPeriod != null) {
-                    TreeItem<DataServiceEntity> actualActionPeriodNode = new TreeItem<>(actualActionPeriod);
-                    for (Field field : scheduleData.getVirtualTableFields()) {
-                        actualActionPeriodNode.getChildren().add(new TreeItem<>(field));
-                    }
-                    calculationRegisterNode.getChildren().add(actualActionPeriodNode);
-                }
-                if (!calculationRegister.getRecalculations().isEmpty()) {
-                    TreeItem<DataServiceEntity> recalcGroupNode = new TreeItem<>(new GroupNode(RECALCULATIONS_GROUP_NAME));
-                    for (CalculationRegisterRecalculation recalculation : calculationRegister.getRecalculations()) {
-                        TreeItem<DataServiceEntity> recalcNode = new TreeItem<>(recalculation);
-                        for (Field field : recalculation.getVirtualTableFields()) {
-                            recalcNode.getChildren().add(new TreeItem<>(field));
+            // Регистры расчета
+            calculationRegisterGroupNode.setChildrenLoader(() -> {
+                for (CalculationRegister calculationRegister : metadataTree.getCalculationRegisters()) {
+                    TreeItem<DataServiceEntity> calculationRegisterNode = new TreeItem<>(calculationRegister);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    for (Field field : calculationRegister.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    calculationRegisterNode.getChildren().add(fldGroupNode);
+
+                    CalculationRegisterScheduleData scheduleData = calculationRegister.getScheduleData();
+                    if (scheduleData != null) {
+                        TreeItem<DataServiceEntity> scheduleDataNode = new TreeItem<>(scheduleData);
+                        for (Field field : scheduleData.getVirtualTableFields()) {
+                            scheduleDataNode.getChildren().add(new TreeItem<>(field));
                         }
-                        recalcGroupNode.getChildren().add(recalcNode);
+                        calculationRegisterNode.getChildren().add(scheduleDataNode);
                     }
-                    calculationRegisterNode.getChildren().add(recalcGroupNode);
-                }
-                if (!calculationRegister.getBaseRegisters().isEmpty()) {
-                    TreeItem<DataServiceEntity> baseRegGroupNode = new TreeItem<>(new GroupNode(BASE_REGISTERS_GROUP_NAME));
-                    for (CalculationRegisterBaseRegister baseRegister : calculationRegister.getBaseRegisters()) {
-                        TreeItem<DataServiceEntity> baseRegNode = new TreeItem<>(baseRegister);
-                        for (Field field : baseRegister.getVirtualTableFields()) {
-                            baseRegNode.getChildren().add(new TreeItem<>(field));
+                    CalculationRegisterActualActionPeriod actualActionPeriod = calculationRegister.getActualActionPeriod();
+                    if (actualActionPeriod != null) {
+                        TreeItem<DataServiceEntity> actualActionPeriodNode = new TreeItem<>(actualActionPeriod);
+                        for (Field field : scheduleData.getVirtualTableFields()) {
+                            actualActionPeriodNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        calculationRegisterNode.getChildren().add(actualActionPeriodNode);
+                    }
+                    if (!calculationRegister.getRecalculations().isEmpty()) {
+                        TreeItem<DataServiceEntity> recalcGroupNode = new TreeItem<>(new GroupNode(RECALCULATIONS_GROUP_NAME));
+                        for (CalculationRegisterRecalculation recalculation : calculationRegister.getRecalculations()) {
+                            TreeItem<DataServiceEntity> recalcNode = new TreeItem<>(recalculation);
+                            for (Field field : recalculation.getVirtualTableFields()) {
+                                recalcNode.getChildren().add(new TreeItem<>(field));
+                            }
+                            recalcGroupNode.getChildren().add(recalcNode);
                         }
-                        baseRegGroupNode.getChildren().add(baseRegNode);
+                        calculationRegisterNode.getChildren().add(recalcGroupNode);
+                    }
+                    if (!calculationRegister.getBaseRegisters().isEmpty()) {
+                        TreeItem<DataServiceEntity> baseRegGroupNode = new TreeItem<>(new GroupNode(BASE_REGISTERS_GROUP_NAME));
+                        for (CalculationRegisterBaseRegister baseRegister : calculationRegister.getBaseRegisters()) {
+                            TreeItem<DataServiceEntity> baseRegNode = new TreeItem<>(baseRegister);
+                            for (Field field : baseRegister.getVirtualTableFields()) {
+                                baseRegNode.getChildren().add(new TreeItem<>(field));
+                            }
+                            baseRegGroupNode.getChildren().add(baseRegNode);
+                        }
+                        calculationRegisterNode.getChildren().add(baseRegGroupNode);
                     }
-                    calculationRegisterNode.getChildren().add(baseRegGroupNode);
-                }
 
-                calculationRegisterGroupNode.getChildren().add(calculationRegisterNode);
-            }
+                    calculationRegisterGroupNode.getChildren().add(calculationRegisterNode);
+                }
+            });
 
             // Планы обмена
-            for (ExchangePlan exchangePlan : metadataTree.getExchangePlans()) {
-                TreeItem<DataServiceEntity> exchangePlanNode = new TreeItem<>(exchangePlan);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : exchangePlan.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : exchangePlan.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            exchangePlanGroupNode.setChildrenLoader(() -> {
+                for (ExchangePlan exchangePlan : metadataTree.getExchangePlans()) {
+                    TreeItem<DataServiceEntity> exchangePlanNode = new TreeItem<>(exchangePlan);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : exchangePlan.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : exchangePlan.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                exchangePlanNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    exchangePlanNode.getChildren().add(tblGroupNode);
+                    exchangePlanNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        exchangePlanNode.getChildren().add(tblGroupNode);
+                    }
+                    exchangePlanGroupNode.getChildren().add(exchangePlanNode);
                 }
-                exchangePlanGroupNode.getChildren().add(exchangePlanNode);
-            }
+            });
 
             // Бизнес-процессы
-            for (BusinessProcess businessProcess : metadataTree.getBusinessProcesses()) {
-                TreeItem<DataServiceEntity> businessProcessNode = new TreeItem<>(businessProcess);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : businessProcess.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : businessProcess.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            businessProcessGroupNode.setChildrenLoader(() -> {
+                for (BusinessProcess businessProcess : metadataTree.getBusinessProcesses()) {
+                    TreeItem<DataServiceEntity> businessProcessNode = new TreeItem<>(businessProcess);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : businessProcess.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : businessProcess.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                businessProcessNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    businessProcessNode.getChildren().add(tblGroupNode);
+                    businessProcessNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        businessProcessNode.getChildren().add(tblGroupNode);
+                    }
+                    businessProcessGroupNode.getChildren().add(businessProcessNode);
                 }
-                businessProcessGroupNode.getChildren().add(businessProcessNode);
-            }
+            });
 
             // Задачи
-            for (ru.datareducer.dataservice.entity.Task task : metadataTree.getTasks()) {
-                TreeItem<DataServiceEntity> taskNode = new TreeItem<>(task);
-                TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
-                TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
-                for (Field field : task.getFields()) {
-                    fldGroupNode.getChildren().add(new TreeItem<>(field));
-                }
-                for (TabularSection tabularSection : task.getTabularSections()) {
-                    TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
-                    for (Field field : tabularSection.getFields()) {
-                        tabularSectionNode.getChildren().add(new TreeItem<>(field));
+            taskGroupNode.setChildrenLoader(() -> {
+                for (ru.datareducer.dataservice.entity.Task task : metadataTree.getTasks()) {
+                    TreeItem<DataServiceEntity> taskNode = new TreeItem<>(task);
+                    TreeItem<DataServiceEntity> fldGroupNode = new TreeItem<>(new GroupNode(FIELDS_GROUP_NAME));
+                    TreeItem<DataServiceEntity> tblGroupNode = new TreeItem<>(new GroupNode(TABULAR_SECTIONS_GROUP_NAME));
+                    for (Field field : task.getFields()) {
+                        fldGroupNode.getChildren().add(new TreeItem<>(field));
+                    }
+                    for (TabularSection tabularSection : task.getTabularSections()) {
+                        TreeItem<DataServiceEntity> tabularSectionNode = new TreeItem<>(tabularSection);
+                        for (Field field : tabularSection.getFields()) {
+                            tabularSectionNode.getChildren().add(new TreeItem<>(field));
+                        }
+                        tblGroupNode.getChildren().add(tabularSectionNode);
                     }
-                    tblGroupNode.getChildren().add(tabularSectionNode);
-                }
-                taskNode.getChildren().add(fldGroupNode);
-                if (!tblGroupNode.getChildren().isEmpty()) {
-                    taskNode.getChildren().add(tblGroupNode);
+                    taskNode.getChildren().add(fldGroupNode);
+                    if (!tblGroupNode.getChildren().isEmpty()) {
+                        taskNode.getChildren().add(tblGroupNode);
+                    }
+                    taskGroupNode.getChildren().add(taskNode);
                 }
-                taskGroupNode.getChildren().add(taskNode);
-            }
+            });
 
             rootNode = new TreeItem<>(infoBase);
 
@@ -715,10 +752,14 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
     }
 
     void loadMetadataTree(InfoBase infoBase, boolean reload) {
+        if (this.infoBase != null) {
+            this.infoBase.removeMetadataTreeListener(metadataTreeListener);
+        }
         this.infoBase = infoBase;
+        infoBase.addMetadataTreeListener(metadataTreeListener);
         if (rootNode != null) {
-            for (TreeItem treeItem : rootNode.getChildren()) {
-                treeItem.getChildren().clear();
+            for (TreeItem<DataServiceEntity> treeItem : rootNode.getChildren()) {
+                ((LazyTreeItem<DataServiceEntity>) treeItem).reset();
             }
         }
         loadMetadataTreeService.setReload(reload);
@@ -734,6 +775,10 @@ public class MetadataForm extends StackPane implements ModelReplacedListener {
     }
 
     void clearMetadataTree() {
+        if (infoBase != null) {
+            infoBase.removeMetadataTreeListener(metadataTreeListener);
+            infoBase = null;
+        }
         metadataTreeTable.setRoot(null);
     }
 
@@ -486,7 +486,9 @@ public class ReducerPresenter implements ModelReplacedListener {
 
     private void registerOptionsFormEventHandlers() {
         optionsWindow.getSaveButton().setOnAction(e -> {
-            Map<String, String> paramsMap = optionsWindow.getApplicationParams();
+            // Параметры, которых нет в окне настроек (например, объём кэшей), сохраняются без изменений.
+            Map<String, String> paramsMap = new LinkedHashMap<>(reducer.getApplicationParams());
+            paramsMap.putAll(optionsWindow.getApplicationParams());
             Properties props = new Properties();
             for (Map.Entry<String, String> entry : paramsMap.entrySet()) {
                 if (entry.getValue() != null) {
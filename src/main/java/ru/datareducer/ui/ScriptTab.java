@@ -358,6 +358,8 @@ public class ScriptTab extends Tab implements Window<Script> {
         private TextField nameFld;
         @FXML
         private TextArea descriptionArea;
+        @FXML
+        private CheckBox columnProjectionCkBx;
 
         @FXML
         private TableView<Map> scriptResultTable;
@@ -420,6 +422,7 @@ public class ScriptTab extends Tab implements Window<Script> {
             // Панель настроек
             nameFld.textProperty().bindBidirectional(script.nameProperty());
             descriptionArea.textProperty().bindBidirectional(script.descriptionProperty());
+            columnProjectionCkBx.selectedProperty().bindBidirectional(script.columnProjectionProperty());
 
             // Область вывода графики
             IntegerStringConverter converter = new IntegerStringConverter() {